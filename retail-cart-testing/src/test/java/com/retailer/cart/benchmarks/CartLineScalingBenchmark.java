@@ -0,0 +1,124 @@
+package com.retailer.cart.benchmarks;
+
+import com.retailer.cart.models.Product;
+import com.retailer.cart.models.ShoppingCart;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk add / update / remove cost of the keyed cart line store compared with
+ * the previous linear-scan list, from 10 to 100k distinct lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CartLineScalingBenchmark {
+    
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int lines;
+    
+    private Product[] products;
+    private String[] shuffledIds;
+    
+    @Setup
+    public void setup() {
+        products = new Product[lines];
+        shuffledIds = new String[lines];
+        for (int i = 0; i < lines; i++) {
+            products[i] = new Product("SKU-" + i, "Item " + i, 9.99, 1);
+            shuffledIds[i] = products[i].getProductId();
+        }
+        Random random = new Random(42);
+        for (int i = lines - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String tmp = shuffledIds[i];
+            shuffledIds[i] = shuffledIds[j];
+            shuffledIds[j] = tmp;
+        }
+    }
+    
+    @Benchmark
+    public ShoppingCart keyedBulkAddUpdateRemove() {
+        ShoppingCart cart = new ShoppingCart();
+        for (Product product : products) {
+            cart.addProduct(copy(product));
+        }
+        for (String id : shuffledIds) {
+            cart.updateProductQuantity(id, 3);
+        }
+        for (String id : shuffledIds) {
+            cart.removeProduct(id);
+        }
+        return cart;
+    }
+    
+    @Benchmark
+    public LinearScanCart linearBulkAddUpdateRemove() {
+        LinearScanCart cart = new LinearScanCart();
+        for (Product product : products) {
+            cart.addProduct(copy(product));
+        }
+        for (String id : shuffledIds) {
+            cart.updateProductQuantity(id, 3);
+        }
+        for (String id : shuffledIds) {
+            cart.removeProduct(id);
+        }
+        return cart;
+    }
+    
+    private static Product copy(Product product) {
+        return new Product(product.getProductId(), product.getName(), product.getPrice(), product.getQuantity());
+    }
+    
+    /**
+     * The list-backed line store ShoppingCart used before lines were keyed by product ID.
+     */
+    public static class LinearScanCart {
+        private final List<Product> products = new ArrayList<>();
+        
+        public void addProduct(Product product) {
+            for (Product p : products) {
+                if (p.getProductId().equals(product.getProductId())) {
+                    p.setQuantity(p.getQuantity() + product.getQuantity());
+                    return;
+                }
+            }
+            products.add(product);
+        }
+        
+        public void removeProduct(String productId) {
+            products.removeIf(p -> p.getProductId().equals(productId));
+        }
+        
+        public void updateProductQuantity(String productId, int quantity) {
+            for (Product p : products) {
+                if (p.getProductId().equals(productId)) {
+                    if (quantity <= 0) {
+                        removeProduct(productId);
+                    } else {
+                        p.setQuantity(quantity);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.retailer.cart.benchmarks;
+
+import com.retailer.cart.models.Product;
+import com.retailer.cart.models.Promotion;
+import com.retailer.cart.models.ShoppingCart;
+import com.retailer.cart.utils.PromotionEngine;
+import com.retailer.cart.utils.PromotionRegistry;
+import com.retailer.cart.utils.PromotionService;
+import com.retailer.cart.utils.TestDataGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Core cart pricing operations across cart sizes and promotion catalog sizes.
+ * Run through the {@code benchmarks} Maven profile to get JSON results.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class CartPricingBenchmark {
+    
+    @Param({"1", "10", "100", "1000", "10000"})
+    public int lines;
+    
+    @Param({"8", "64", "512"})
+    public int promotions;
+    
+    private PromotionService promotionService;
+    private ShoppingCart cart;
+    private Product extraLine;
+    private Promotion probe;
+    private String[] codes;
+    private int codeIndex;
+    private int quantity;
+    private double subtotal;
+    
+    @Setup
+    public void setup() {
+        List<Promotion> catalog = TestDataGenerator.generatePromotionCatalog(promotions, 0.1, 7);
+        // A private registry, so the benchmark catalog never leaks into the shared one
+        PromotionRegistry registry = new PromotionRegistry();
+        registry.publish(catalog, "benchmark");
+        promotionService = new PromotionService(registry);
+        
+        cart = new ShoppingCart(new PromotionEngine(promotionService).plan());
+        for (int i = 0; i < lines; i++) {
+            cart.addProduct(new Product("SKU-" + i, "Item " + i, 4.99 + (i % 50), 1 + i % 3));
+        }
+        cart.applyPromotion(catalog.get(0));
+        extraLine = new Product("SKU-EXTRA", "Extra item", 12.50, 1);
+        probe = catalog.get(catalog.size() - 1);
+        subtotal = cart.getSubtotal();
+        
+        // Half hits, half misses
+        codes = new String[1024];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = i % 2 == 0 ? catalog.get(i % catalog.size()).getCode() : "MISS" + i;
+        }
+    }
+    
+    @Benchmark
+    public ShoppingCart addProduct() {
+        cart.addProduct(extraLine);
+        cart.removeProduct(extraLine.getProductId());
+        return cart;
+    }
+    
+    @Benchmark
+    public double getFinalPrice() {
+        return cart.getFinalPrice();
+    }
+    
+    @Benchmark
+    public double getFinalPriceAfterChange() {
+        quantity = quantity % 3 + 1;
+        cart.updateProductQuantity("SKU-0", quantity);
+        return cart.getFinalPrice();
+    }
+    
+    @Benchmark
+    public boolean applyPromotion() {
+        boolean applied = cart.applyPromotion(probe);
+        cart.removePromotion(probe.getCode());
+        cart.clearErrorMessages();
+        return applied;
+    }
+    
+    @Benchmark
+    public double calculateDiscount() {
+        return probe.calculateDiscount(subtotal);
+    }
+    
+    @Benchmark
+    public Promotion getPromotionByCode() {
+        return promotionService.getPromotionByCode(codes[codeIndex++ & (codes.length - 1)]);
+    }
+}
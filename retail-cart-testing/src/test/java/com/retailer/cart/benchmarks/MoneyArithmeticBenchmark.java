@@ -0,0 +1,88 @@
+package com.retailer.cart.benchmarks;
+
+import com.retailer.cart.models.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prices a cart (sum of price x quantity, then a 12.5% discount) three ways:
+ * the old double path, long cents via {@link Money}, and BigDecimal.
+ * Run with {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyArithmeticBenchmark {
+    
+    @Param({"10", "1000", "100000"})
+    public int lines;
+    
+    private double[] doublePrices;
+    private long[] centPrices;
+    private BigDecimal[] decimalPrices;
+    private int[] quantities;
+    
+    private static final BigDecimal DISCOUNT_RATE = new BigDecimal("0.125");
+    private static final long DISCOUNT_BASIS_POINTS = 1250;
+    
+    @Setup
+    public void setup() {
+        Random random = new Random(7);
+        doublePrices = new double[lines];
+        centPrices = new long[lines];
+        decimalPrices = new BigDecimal[lines];
+        quantities = new int[lines];
+        for (int i = 0; i < lines; i++) {
+            long cents = 99 + random.nextInt(50_000);
+            centPrices[i] = cents;
+            doublePrices[i] = Money.toMajor(cents);
+            decimalPrices[i] = BigDecimal.valueOf(cents, 2);
+            quantities[i] = 1 + random.nextInt(5);
+        }
+    }
+    
+    @Benchmark
+    public double doublePricing() {
+        double subtotal = 0;
+        for (int i = 0; i < lines; i++) {
+            subtotal += doublePrices[i] * quantities[i];
+        }
+        return subtotal - subtotal * (12.5 / 100.0);
+    }
+    
+    @Benchmark
+    public long longCentsPricing() {
+        long subtotal = 0;
+        for (int i = 0; i < lines; i++) {
+            subtotal += Money.times(centPrices[i], quantities[i]);
+        }
+        return subtotal - Money.percentage(subtotal, DISCOUNT_BASIS_POINTS);
+    }
+    
+    @Benchmark
+    public BigDecimal bigDecimalPricing() {
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (int i = 0; i < lines; i++) {
+            subtotal = subtotal.add(decimalPrices[i].multiply(BigDecimal.valueOf(quantities[i])));
+        }
+        BigDecimal discount = subtotal.multiply(DISCOUNT_RATE).setScale(2, RoundingMode.HALF_UP);
+        return subtotal.subtract(discount);
+    }
+}
@@ -0,0 +1,91 @@
+package com.retailer.cart.benchmarks;
+
+import com.retailer.cart.models.Product;
+import com.retailer.cart.models.ShoppingCart;
+import com.retailer.cart.utils.PromotionGate;
+import com.retailer.cart.utils.PromotionRateLimiter;
+import com.retailer.cart.utils.PromotionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bots guessing promotion codes from many threads: the unguarded lookup-and-apply
+ * path against {@link PromotionGate}. With one client the limiter throttles almost
+ * every attempt; with many clients most attempts get a token and the Bloom filter
+ * does the rejecting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class PromotionAttackBenchmark {
+    
+    private static final int GUESSES = 1 << 14;
+    
+    @Param({"1", "65536"})
+    public int clients;
+    
+    private PromotionService promotionService;
+    private PromotionGate gate;
+    private String[] guesses;
+    private String[] clientKeys;
+    
+    @State(Scope.Thread)
+    public static class Attacker {
+        private final ShoppingCart cart = new ShoppingCart();
+        private final SplittableRandom random = new SplittableRandom();
+        
+        @Setup
+        public void setup() {
+            cart.addProduct(new Product("P001", "Slim Fit Jeans", 49.99, 1));
+        }
+    }
+    
+    @Setup
+    public void setup() {
+        promotionService = new PromotionService();
+        gate = new PromotionGate(promotionService, new PromotionRateLimiter(65536, 5, 1));
+        SplittableRandom random = new SplittableRandom(17);
+        guesses = new String[GUESSES];
+        for (int i = 0; i < GUESSES; i++) {
+            guesses[i] = "SAVE" + Integer.toString(random.nextInt(1 << 24), 36).toUpperCase();
+        }
+        clientKeys = new String[clients];
+        for (int i = 0; i < clientKeys.length; i++) {
+            clientKeys[i] = "client-" + i;
+        }
+    }
+    
+    @Benchmark
+    public boolean unguarded(Attacker attacker) {
+        String code = guesses[attacker.random.nextInt(GUESSES)];
+        boolean applied = attacker.cart.applyPromotion(promotionService.getPromotionByCode(code));
+        attacker.cart.clearErrorMessages();
+        return applied;
+    }
+    
+    @Benchmark
+    public PromotionGate.Outcome gated(Attacker attacker) {
+        String code = guesses[attacker.random.nextInt(GUESSES)];
+        String client = clientKeys[attacker.random.nextInt(clientKeys.length)];
+        PromotionGate.Outcome outcome = gate.applyCode(attacker.cart, client, code);
+        attacker.cart.clearErrorMessages();
+        return outcome;
+    }
+}
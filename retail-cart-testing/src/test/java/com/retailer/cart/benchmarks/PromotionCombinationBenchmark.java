@@ -0,0 +1,63 @@
+package com.retailer.cart.benchmarks;
+
+import com.retailer.cart.models.Money;
+import com.retailer.cart.models.Promotion;
+import com.retailer.cart.models.PromotionCombinationSolver;
+import com.retailer.cart.utils.TestDataGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Best-discount combination search over generated promotion sets of up to 64
+ * candidates, across sparse to dense incompatibility graphs. The mixed sets are
+ * mostly percentages on a subtotal they soon use up; the fixed-amount sets never
+ * reach the subtotal, so the search cannot stop early and has to prove its best set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromotionCombinationBenchmark {
+    
+    @Param({"8", "16", "32", "64"})
+    public int candidates;
+    
+    @Param({"0.05", "0.15", "0.3", "0.7"})
+    public double incompatibilityRate;
+    
+    @Param({"mixed", "fixedAmount"})
+    public String catalog;
+    
+    private List<Promotion> promotions;
+    private LocalDate today;
+    private long subtotalCents;
+    
+    @Setup
+    public void setup() {
+        boolean fixedAmounts = catalog.equals("fixedAmount");
+        promotions = TestDataGenerator.generatePromotionCatalog(candidates, incompatibilityRate, 11, fixedAmounts);
+        // 64 fixed amounts come to at most 1280.00
+        subtotalCents = Money.ofMajor(fixedAmounts ? 5000.00 : 1250.00);
+        today = LocalDate.now();
+    }
+    
+    @Benchmark
+    public PromotionCombinationSolver.Result solve() {
+        return PromotionCombinationSolver.solve(promotions, subtotalCents, today);
+    }
+}
@@ -0,0 +1,71 @@
+package com.retailer.cart.benchmarks;
+
+import com.retailer.cart.models.Product;
+import com.retailer.cart.models.Promotion;
+import com.retailer.cart.models.ReceiptRenderer;
+import com.retailer.cart.models.ShoppingCart;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receipt text via {@link ShoppingCart#toString()} against a reused
+ * {@link ReceiptRenderer}, into its builder and into a direct byte buffer.
+ * Run with {@code -prof gc} to see the per-render allocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReceiptRenderingBenchmark {
+    
+    @Param({"5", "50", "500"})
+    public int lines;
+    
+    private ShoppingCart cart;
+    private ReceiptRenderer renderer;
+    private ByteBuffer buffer;
+    
+    @Setup
+    public void setup() {
+        cart = new ShoppingCart();
+        for (int i = 0; i < lines; i++) {
+            cart.addProduct(new Product("P" + i, "Product " + i, 4.99 + i * 1.25, 1 + i % 3));
+        }
+        LocalDate now = LocalDate.now();
+        cart.applyPromotion(new Promotion("SUMMER25", "Summer Collection 25% Off", 25.0,
+                now.minusDays(1), now.plusDays(1), true));
+        renderer = new ReceiptRenderer();
+        buffer = ByteBuffer.allocateDirect(64 * 1024);
+    }
+    
+    @Benchmark
+    public String toStringReceipt() {
+        return cart.toString();
+    }
+    
+    @Benchmark
+    public int renderReused() {
+        return renderer.render(cart).length();
+    }
+    
+    @Benchmark
+    public int renderToByteBuffer() {
+        buffer.clear();
+        return renderer.renderTo(cart, buffer).position();
+    }
+}
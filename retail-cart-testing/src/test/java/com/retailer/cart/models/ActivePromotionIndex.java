@@ -0,0 +1,188 @@
+package com.retailer.cart.models;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Interval index over promotion validity windows.
+ * <p>
+ * Every start date and every day after an end date is a boundary; between two
+ * consecutive boundaries the set of active promotions cannot change. The index keeps
+ * the sorted boundaries plus one active-ID bit set per segment, so "what is active on
+ * day D" and "when does that change next" are a binary search, and pricing across a
+ * date range only has to happen once per segment rather than once per day.
+ * Promotion IDs are list positions, matching {@link PromotionCompatibilityMatrix#build}.
+ * A promotion that ends before it starts is never active and adds no boundaries.
+ */
+public final class ActivePromotionIndex {
+    
+    private final Promotion[] promotions;
+    private final long[] startDays;
+    private final long[] endDays;
+    // boundaries[i] is the first epoch day of segment i; segment i runs until boundaries[i + 1] - 1
+    private final long[] boundaries;
+    private final long[][] activeSets;
+    private final int words;
+    
+    private ActivePromotionIndex(List<Promotion> source) {
+        int size = source.size();
+        this.promotions = source.toArray(new Promotion[0]);
+        this.startDays = new long[size];
+        this.endDays = new long[size];
+        this.words = Math.max(1, (size + 63) >>> 6);
+        
+        long[] events = new long[size * 2];
+        int eventCount = 0;
+        for (int id = 0; id < size; id++) {
+            startDays[id] = promotions[id].getStartDate().toEpochDay();
+            endDays[id] = promotions[id].getEndDate().toEpochDay();
+            if (startDays[id] <= endDays[id]) {
+                events[eventCount++] = startDays[id];
+                events[eventCount++] = endDays[id] + 1;
+            }
+        }
+        Arrays.sort(events, 0, eventCount);
+        int unique = 0;
+        for (int i = 0; i < eventCount; i++) {
+            if (i == 0 || events[i] != events[i - 1]) {
+                events[unique++] = events[i];
+            }
+        }
+        this.boundaries = Arrays.copyOf(events, unique);
+        
+        // Sweep the boundaries once, applying starts and expiries per segment
+        this.activeSets = new long[unique][];
+        Integer[] byStart = sortedIds(startDays);
+        Integer[] byEnd = sortedIds(endDays);
+        long[] active = new long[words];
+        int nextStart = 0;
+        int nextEnd = 0;
+        for (int segment = 0; segment < unique; segment++) {
+            long day = boundaries[segment];
+            while (nextEnd < size && endDays[byEnd[nextEnd]] < day) {
+                int id = byEnd[nextEnd++];
+                active[id >>> 6] &= ~(1L << id);
+            }
+            while (nextStart < size && startDays[byStart[nextStart]] <= day) {
+                int id = byStart[nextStart++];
+                if (endDays[id] >= day) {
+                    active[id >>> 6] |= 1L << id;
+                }
+            }
+            activeSets[segment] = active.clone();
+        }
+    }
+    
+    public static ActivePromotionIndex build(List<Promotion> promotions) {
+        return new ActivePromotionIndex(promotions);
+    }
+    
+    public int size() {
+        return promotions.length;
+    }
+    
+    public int segmentCount() {
+        return boundaries.length;
+    }
+    
+    public boolean isActive(int id, LocalDate date) {
+        long day = date.toEpochDay();
+        return startDays[id] <= day && day <= endDays[id];
+    }
+    
+    /**
+     * @return the active-ID bit set for the date; shared, must not be modified
+     */
+    public long[] activeSetOn(LocalDate date) {
+        int segment = segmentOf(date.toEpochDay());
+        return segment < 0 ? new long[words] : activeSets[segment];
+    }
+    
+    public List<Promotion> activeOn(LocalDate date) {
+        return toPromotions(activeSetOn(date));
+    }
+    
+    /**
+     * @return the first day after {@code date} on which the active set changes, or null if it never does
+     */
+    public LocalDate nextChangeAfter(LocalDate date) {
+        int segment = segmentOf(date.toEpochDay());
+        int next = segment + 1;
+        if (next >= boundaries.length || boundaries[next] > LocalDate.MAX.toEpochDay()) {
+            return null;
+        }
+        return LocalDate.ofEpochDay(boundaries[next]);
+    }
+    
+    /**
+     * Splits {@code [from, to]} into the runs of days that share one active set.
+     */
+    public List<Segment> segmentsBetween(LocalDate from, LocalDate to) {
+        List<Segment> segments = new ArrayList<>();
+        long day = from.toEpochDay();
+        long last = to.toEpochDay();
+        while (day <= last) {
+            int segment = segmentOf(day);
+            long segmentEnd = segment + 1 < boundaries.length ? boundaries[segment + 1] - 1 : Long.MAX_VALUE;
+            long end = Math.min(segmentEnd, last);
+            long[] active = segment < 0 ? new long[words] : activeSets[segment];
+            segments.add(new Segment(LocalDate.ofEpochDay(day), LocalDate.ofEpochDay(end), toPromotions(active)));
+            day = end + 1;
+        }
+        return segments;
+    }
+    
+    private int segmentOf(long day) {
+        int index = Arrays.binarySearch(boundaries, day);
+        return index >= 0 ? index : -index - 2;
+    }
+    
+    private List<Promotion> toPromotions(long[] set) {
+        List<Promotion> active = new ArrayList<>();
+        for (int w = 0; w < set.length; w++) {
+            for (long bits = set[w]; bits != 0; bits &= bits - 1) {
+                active.add(promotions[(w << 6) + Long.numberOfTrailingZeros(bits)]);
+            }
+        }
+        return active;
+    }
+    
+    private static Integer[] sortedIds(long[] days) {
+        Integer[] ids = new Integer[days.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+        }
+        Arrays.sort(ids, (a, b) -> Long.compare(days[a], days[b]));
+        return ids;
+    }
+    
+    /**
+     * A run of consecutive days with the same active promotions.
+     */
+    public static final class Segment {
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final List<Promotion> activePromotions;
+        
+        private Segment(LocalDate startDate, LocalDate endDate, List<Promotion> activePromotions) {
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.activePromotions = Collections.unmodifiableList(activePromotions);
+        }
+        
+        public LocalDate getStartDate() {
+            return startDate;
+        }
+        
+        public LocalDate getEndDate() {
+            return endDate;
+        }
+        
+        public List<Promotion> getActivePromotions() {
+            return activePromotions;
+        }
+    }
+}
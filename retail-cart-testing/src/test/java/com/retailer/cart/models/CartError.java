@@ -0,0 +1,28 @@
+package com.retailer.cart.models;
+
+/**
+ * Reasons a cart operation can be rejected. The user-facing text is only built
+ * when somebody asks for it, see {@link CartErrorBuffer#getMessages()} and
+ * {@link ConcurrentCartErrorBuffer#getMessages()}.
+ */
+public enum CartError {
+    INVALID_PROMOTION_CODE("Invalid promotion code"),
+    PROMOTION_NOT_ACTIVE("This promotion is not currently active"),
+    PROMOTION_EXPIRED("This promotion code has expired"),
+    PROMOTION_NOT_COMBINABLE("This promotion cannot be combined with "),
+    PROMOTION_NOT_SHAREABLE("This promotion cannot be applied to a shared cart"),
+    TOO_MANY_PROMOTION_ATTEMPTS("Too many promotion attempts, please try again later");
+    
+    private final String message;
+    
+    CartError(String message) {
+        this.message = message;
+    }
+    
+    /**
+     * @param argument the error's detail, e.g. the conflicting promotion code; may be null
+     */
+    public String format(String argument) {
+        return argument == null ? message : message + argument;
+    }
+}
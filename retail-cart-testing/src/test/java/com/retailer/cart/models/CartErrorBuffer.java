@@ -0,0 +1,123 @@
+package com.retailer.cart.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-capacity ring of the most recent cart errors.
+ * <p>
+ * Recording stores an enum constant and a reference to an existing string (such as
+ * the conflicting promotion code) in preallocated slots, so a storm of failed
+ * promotion attempts allocates nothing and never grows the cart; once full, the oldest
+ * entry is overwritten. Messages are formatted only when read.
+ */
+public final class CartErrorBuffer {
+    
+    public static final int DEFAULT_CAPACITY = 16;
+    
+    private final CartError[] errors;
+    private final String[] arguments;
+    private int next;
+    private int size;
+    private long recorded;
+    
+    public CartErrorBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    public CartErrorBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.errors = new CartError[capacity];
+        this.arguments = new String[capacity];
+    }
+    
+    public void record(CartError error, String argument) {
+        errors[next] = error;
+        arguments[next] = argument;
+        next = next + 1 == errors.length ? 0 : next + 1;
+        if (size < errors.length) {
+            size++;
+        }
+        recorded++;
+    }
+    
+    /**
+     * @return the number of errors currently held, at most the capacity
+     */
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public int capacity() {
+        return errors.length;
+    }
+    
+    /**
+     * @return every error recorded since the last clear, including overwritten ones
+     */
+    public long getRecordedCount() {
+        return recorded;
+    }
+    
+    /**
+     * @return the number of errors overwritten since the last clear
+     */
+    public long getDroppedCount() {
+        return recorded - size;
+    }
+    
+    /**
+     * @param index 0 for the oldest error held, {@code size() - 1} for the latest
+     */
+    public CartError errorAt(int index) {
+        return errors[slot(index)];
+    }
+    
+    public String argumentAt(int index) {
+        return arguments[slot(index)];
+    }
+    
+    /**
+     * @return the latest error, or null if none is held
+     */
+    public CartError latest() {
+        return size == 0 ? null : errorAt(size - 1);
+    }
+    
+    /**
+     * Formats the held errors, oldest first.
+     */
+    public List<String> getMessages() {
+        List<String> messages = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int slot = slot(i);
+            messages.add(errors[slot].format(arguments[slot]));
+        }
+        return messages;
+    }
+    
+    public void clear() {
+        // Drop references so cleared arguments can be collected
+        for (int i = 0; i < errors.length; i++) {
+            errors[i] = null;
+            arguments[i] = null;
+        }
+        next = 0;
+        size = 0;
+        recorded = 0;
+    }
+    
+    private int slot(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " outside 0.." + (size - 1));
+        }
+        int slot = next - size + index;
+        return slot < 0 ? slot + errors.length : slot;
+    }
+}
@@ -0,0 +1,383 @@
+package com.retailer.cart.models;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Append-only binary log of {@link ShoppingCart} mutations.
+ * <p>
+ * Each event is one type byte followed by its fields: integers as unsigned
+ * LEB128 varints (zig-zag for signed values) and strings as a varint length plus
+ * UTF-8 bytes, so a typical quantity change takes under a dozen bytes. Strings that
+ * may be absent, such as a line's category, store their length plus one, with 0 for
+ * null. A
+ * {@link #checkpoint} writes the full cart state inline; {@link #replay} starts from
+ * the last checkpoint and applies only the events after it, and
+ * {@link #replayInto} applies an incremental tail to a cart that is already
+ * up to date to a known offset.
+ * <p>
+ * Only promotions the cart accepted are logged, by code. Replay resolves each code
+ * and by default {@linkplain ReplayMode#RESTORE restores} it without checking its
+ * dates or compatibility again, so the rebuilt cart is the cart that was recorded
+ * whenever it is replayed. {@link ReplayMode#REVALIDATE} re-runs the cart's checks
+ * instead, for replaying a production log against a new promotion catalog or new
+ * pricing logic; give the target a {@link PromotionPlan} to check against the plan's
+ * pricing date rather than today.
+ */
+public final class CartEventLog {
+    
+    public static final byte PRODUCT_ADDED = 1;
+    public static final byte QUANTITY_UPDATED = 2;
+    public static final byte PRODUCT_REMOVED = 3;
+    public static final byte PROMOTION_APPLIED = 4;
+    public static final byte PROMOTION_REMOVED = 5;
+    public static final byte PROMOTIONS_CLEARED = 6;
+    public static final byte CHECKPOINT = 7;
+    
+    /**
+     * How replay treats the logged promotions.
+     */
+    public enum ReplayMode {
+        /** Re-apply every logged promotion as it was accepted. */
+        RESTORE,
+        /** Re-apply through {@link ShoppingCart#applyPromotion}, which may now reject it. */
+        REVALIDATE
+    }
+    
+    private byte[] buffer;
+    private int size;
+    private int eventCount;
+    private int lastCheckpoint = -1;
+    
+    public CartEventLog() {
+        this(256);
+    }
+    
+    public CartEventLog(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+    
+    public void productAdded(Product product) {
+        writeType(PRODUCT_ADDED);
+        writeString(product.getProductId());
+        writeString(product.getName());
+        writeVarLong(zigZag(product.getPriceCents()));
+        writeVarLong(zigZag(product.getQuantity()));
+        writeNullableString(product.getCategory());
+    }
+    
+    public void quantityUpdated(String productId, int quantity) {
+        writeType(QUANTITY_UPDATED);
+        writeString(productId);
+        writeVarLong(zigZag(quantity));
+    }
+    
+    public void productRemoved(String productId) {
+        writeType(PRODUCT_REMOVED);
+        writeString(productId);
+    }
+    
+    public void promotionApplied(String promotionCode) {
+        writeType(PROMOTION_APPLIED);
+        writeString(promotionCode);
+    }
+    
+    public void promotionRemoved(String promotionCode) {
+        writeType(PROMOTION_REMOVED);
+        writeString(promotionCode);
+    }
+    
+    public void promotionsCleared() {
+        writeType(PROMOTIONS_CLEARED);
+    }
+    
+    /**
+     * Writes the cart's full state so later replays can start here.
+     * @return the offset of the checkpoint record
+     */
+    public int checkpoint(ShoppingCart cart) {
+        int offset = size;
+        writeType(CHECKPOINT);
+        writeVarLong(cart.getLineCount());
+        cart.forEachLine((productId, name, priceCents, quantity) -> {
+            writeString(productId);
+            writeString(name);
+            writeVarLong(zigZag(priceCents));
+            writeVarLong(zigZag(quantity));
+            // Scoped promotions match lines on their own category
+            writeNullableString(cart.getProduct(productId).getCategory());
+        });
+        Map<String, Promotion> promotions = cart.getAppliedPromotions();
+        writeVarLong(promotions.size());
+        for (String code : promotions.keySet()) {
+            writeString(code);
+        }
+        lastCheckpoint = offset;
+        return offset;
+    }
+    
+    /**
+     * Rebuilds a cart from the last checkpoint, or from the start if there is none.
+     * @param target an empty cart without an event log of its own
+     * @param promotions resolves logged promotion codes; null results are rejected by the cart
+     */
+    public ShoppingCart replay(ShoppingCart target, Function<String, Promotion> promotions) {
+        return replay(target, promotions, ReplayMode.RESTORE);
+    }
+    
+    public ShoppingCart replay(ShoppingCart target, Function<String, Promotion> promotions, ReplayMode mode) {
+        replayInto(target, Math.max(0, lastCheckpoint), promotions, mode);
+        return target;
+    }
+    
+    /**
+     * Applies the events from {@code fromOffset} to the end of the log, restoring the
+     * logged promotions.
+     * @return the offset to continue from next time
+     */
+    public int replayInto(ShoppingCart target, int fromOffset, Function<String, Promotion> promotions) {
+        return replayInto(target, fromOffset, promotions, ReplayMode.RESTORE);
+    }
+    
+    public int replayInto(ShoppingCart target, int fromOffset, Function<String, Promotion> promotions,
+                          ReplayMode mode) {
+        Reader reader = new Reader(buffer, fromOffset, size);
+        while (reader.position < size) {
+            byte type = reader.buffer[reader.position++];
+            switch (type) {
+                case PRODUCT_ADDED:
+                    target.addProduct(reader.readProduct());
+                    break;
+                case QUANTITY_UPDATED:
+                    target.updateProductQuantity(reader.readString(), (int) unZigZag(reader.readVarLong()));
+                    break;
+                case PRODUCT_REMOVED:
+                    target.removeProduct(reader.readString());
+                    break;
+                case PROMOTION_APPLIED:
+                    applyPromotion(target, promotions.apply(reader.readString()), mode);
+                    break;
+                case PROMOTION_REMOVED:
+                    target.removePromotion(reader.readString());
+                    break;
+                case PROMOTIONS_CLEARED:
+                    target.clearPromotions();
+                    break;
+                case CHECKPOINT:
+                    restoreCheckpoint(target, reader, promotions, mode);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown cart event type " + type + " at offset " + (reader.position - 1));
+            }
+        }
+        return size;
+    }
+    
+    /**
+     * Writes the bytes from {@code fromOffset} onward, e.g. everything appended since the
+     * last flush, so persisting a cart costs only what changed.
+     * @return the offset to continue from next time
+     */
+    public int writeTo(OutputStream out, int fromOffset) throws IOException {
+        out.write(buffer, fromOffset, size - fromOffset);
+        return size;
+    }
+    
+    /**
+     * Reads a log written by {@link #writeTo}, possibly in several appended chunks.
+     */
+    public static CartEventLog readFrom(InputStream in) throws IOException {
+        byte[] bytes = in.readAllBytes();
+        CartEventLog log = new CartEventLog(bytes.length);
+        System.arraycopy(bytes, 0, log.buffer, 0, bytes.length);
+        log.size = bytes.length;
+        log.index();
+        return log;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public int getEventCount() {
+        return eventCount;
+    }
+    
+    /**
+     * @return the offset of the last checkpoint, or -1 if none was written
+     */
+    public int getLastCheckpoint() {
+        return lastCheckpoint;
+    }
+    
+    private void restoreCheckpoint(ShoppingCart target, Reader reader, Function<String, Promotion> promotions,
+                                   ReplayMode mode) {
+        for (Product product : target.getProducts()) {
+            target.removeProduct(product.getProductId());
+        }
+        target.clearPromotions();
+        int lineCount = (int) reader.readVarLong();
+        for (int i = 0; i < lineCount; i++) {
+            target.addProduct(reader.readProduct());
+        }
+        int promotionCount = (int) reader.readVarLong();
+        for (int i = 0; i < promotionCount; i++) {
+            applyPromotion(target, promotions.apply(reader.readString()), mode);
+        }
+    }
+    
+    private static void applyPromotion(ShoppingCart target, Promotion promotion, ReplayMode mode) {
+        if (mode == ReplayMode.REVALIDATE) {
+            target.applyPromotion(promotion);
+        } else {
+            target.restorePromotion(promotion);
+        }
+    }
+    
+    /** Walks a loaded log to recover the event count and last checkpoint. */
+    private void index() {
+        Reader reader = new Reader(buffer, 0, size);
+        while (reader.position < size) {
+            int offset = reader.position;
+            byte type = reader.buffer[reader.position++];
+            eventCount++;
+            switch (type) {
+                case PRODUCT_ADDED:
+                    reader.readProduct();
+                    break;
+                case QUANTITY_UPDATED:
+                    reader.readString();
+                    reader.readVarLong();
+                    break;
+                case PRODUCT_REMOVED:
+                case PROMOTION_APPLIED:
+                case PROMOTION_REMOVED:
+                    reader.readString();
+                    break;
+                case PROMOTIONS_CLEARED:
+                    break;
+                case CHECKPOINT:
+                    lastCheckpoint = offset;
+                    int lineCount = (int) reader.readVarLong();
+                    for (int i = 0; i < lineCount; i++) {
+                        reader.readProduct();
+                    }
+                    int promotionCount = (int) reader.readVarLong();
+                    for (int i = 0; i < promotionCount; i++) {
+                        reader.readString();
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown cart event type " + type + " at offset " + offset);
+            }
+        }
+    }
+    
+    private void writeType(byte type) {
+        ensureCapacity(1);
+        buffer[size++] = type;
+        eventCount++;
+    }
+    
+    private void writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+    
+    private void writeNullableString(String value) {
+        if (value == null) {
+            writeVarLong(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length + 1L);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+    
+    private void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+    
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+    
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+    
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    private static final class Reader {
+        private final byte[] buffer;
+        private final int limit;
+        private int position;
+        
+        private Reader(byte[] buffer, int position, int limit) {
+            this.buffer = buffer;
+            this.position = position;
+            this.limit = limit;
+        }
+        
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= limit) {
+                    throw new IllegalStateException("Truncated cart event log at offset " + position);
+                }
+                byte b = buffer[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("Malformed varint in cart event log at offset " + position);
+        }
+        
+        private String readString() {
+            return readBytes((int) readVarLong());
+        }
+        
+        private String readNullableString() {
+            long length = readVarLong();
+            return length == 0 ? null : readBytes((int) (length - 1));
+        }
+        
+        private String readBytes(int length) {
+            if (length < 0 || position + length > limit) {
+                throw new IllegalStateException("Truncated cart event log at offset " + position);
+            }
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+        
+        private Product readProduct() {
+            String productId = readString();
+            String name = readString();
+            long priceCents = unZigZag(readVarLong());
+            int quantity = (int) unZigZag(readVarLong());
+            String category = readNullableString();
+            return Product.of(new ProductDescriptor(productId, name, priceCents, category), quantity);
+        }
+    }
+}
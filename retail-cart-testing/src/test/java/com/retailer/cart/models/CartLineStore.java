@@ -0,0 +1,51 @@
+package com.retailer.cart.models;
+
+import java.util.List;
+
+/**
+ * Storage for the lines of a {@link ShoppingCart}, keyed by product ID and kept in
+ * insertion order. Mutators report the subtotal change in cents so the cart can keep
+ * its running totals without re-reading the lines.
+ */
+public interface CartLineStore {
+    
+    /**
+     * Receives one line at a time without materializing a {@link Product}.
+     */
+    @FunctionalInterface
+    interface LineVisitor {
+        void visit(String productId, String name, long priceCents, int quantity);
+    }
+    
+    int size();
+    
+    boolean contains(String productId);
+    
+    /**
+     * Adds the line, or merges its quantity into the existing line at the existing price.
+     * @return the subtotal change in cents
+     */
+    long add(Product product);
+    
+    /**
+     * @return the subtotal change in cents; the line must exist
+     */
+    long setQuantity(String productId, int quantity);
+    
+    /**
+     * @return the subtotal of the removed line in cents, or -1 if there was no such line
+     */
+    long remove(String productId);
+    
+    /**
+     * @return the line as a product, or null; whether it is live or a copy depends on the store
+     */
+    Product get(String productId);
+    
+    /**
+     * @return a copy of the lines in insertion order
+     */
+    List<Product> toList();
+    
+    void forEach(LineVisitor visitor);
+}
@@ -0,0 +1,254 @@
+package com.retailer.cart.models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Struct-of-arrays line store for analytics-sized carts.
+ * <p>
+ * A line is one slot across three parallel primitive columns: the product's code in
+ * the shared {@link ProductIdDictionary}, its price in cents and its quantity. ID and
+ * name strings live once in the dictionary instead of once per line, and lookups go
+ * through an open-addressing int-to-int index, so a line costs about 16 bytes of
+ * columns plus 8 bytes of index instead of a {@link Product} object, its strings and
+ * a map entry. Removed lines leave tombstones that are compacted away in bulk to
+ * preserve insertion order. {@link #get(String)} returns a detached copy.
+ */
+public class ColumnarCartLineStore implements CartLineStore {
+    
+    private static final int REMOVED = -1;
+    private static final int EMPTY_KEY = 0;
+    private static final int DELETED_KEY = -1;
+    
+    private final ProductIdDictionary dictionary;
+    
+    private int[] productCodes;
+    private long[] priceCents;
+    private int[] quantities;
+    private int slots;
+    private int live;
+    
+    // Open-addressing index: keys hold code + 1 so that 0 can mean empty
+    private int[] indexKeys;
+    private int[] indexSlots;
+    private int indexUsed;
+    
+    public ColumnarCartLineStore() {
+        this(16);
+    }
+    
+    public ColumnarCartLineStore(int expectedLines) {
+        this.dictionary = ProductIdDictionary.getInstance();
+        int capacity = Math.max(4, expectedLines);
+        this.productCodes = new int[capacity];
+        this.priceCents = new long[capacity];
+        this.quantities = new int[capacity];
+        allocateIndex(capacity);
+    }
+    
+    @Override
+    public int size() {
+        return live;
+    }
+    
+    @Override
+    public boolean contains(String productId) {
+        return slotOf(productId) >= 0;
+    }
+    
+    @Override
+    public long add(Product product) {
+        int code = dictionary.encode(product.getProductId(), product.getName());
+        int slot = findSlot(code);
+        if (slot >= 0) {
+            quantities[slot] += product.getQuantity();
+            return Money.times(priceCents[slot], product.getQuantity());
+        }
+        
+        if (slots == productCodes.length) {
+            growColumns();
+        }
+        slot = slots++;
+        productCodes[slot] = code;
+        priceCents[slot] = product.getPriceCents();
+        quantities[slot] = product.getQuantity();
+        live++;
+        insertIndex(code, slot);
+        return product.getSubtotalCents();
+    }
+    
+    @Override
+    public long setQuantity(String productId, int quantity) {
+        int slot = slotOf(productId);
+        long delta = Money.times(priceCents[slot], quantity - quantities[slot]);
+        quantities[slot] = quantity;
+        return delta;
+    }
+    
+    @Override
+    public long remove(String productId) {
+        int code = dictionary.codeOf(productId);
+        int position = code < 0 ? -1 : indexPositionOf(code);
+        if (position < 0) {
+            return -1;
+        }
+        int slot = indexSlots[position];
+        long removed = Money.times(priceCents[slot], quantities[slot]);
+        indexKeys[position] = DELETED_KEY;
+        productCodes[slot] = REMOVED;
+        quantities[slot] = 0;
+        live--;
+        
+        if (slots - live > 16 && slots - live > live) {
+            compact();
+        }
+        return removed;
+    }
+    
+    @Override
+    public Product get(String productId) {
+        int slot = slotOf(productId);
+        return slot < 0 ? null : toProduct(slot);
+    }
+    
+    @Override
+    public List<Product> toList() {
+        List<Product> products = new ArrayList<>(live);
+        for (int slot = 0; slot < slots; slot++) {
+            if (productCodes[slot] != REMOVED) {
+                products.add(toProduct(slot));
+            }
+        }
+        return products;
+    }
+    
+    @Override
+    public void forEach(LineVisitor visitor) {
+        for (int slot = 0; slot < slots; slot++) {
+            int code = productCodes[slot];
+            if (code != REMOVED) {
+                visitor.visit(dictionary.productIdOf(code), dictionary.nameOf(code), priceCents[slot], quantities[slot]);
+            }
+        }
+    }
+    
+    /**
+     * @return total units across all lines, read straight from the quantity column
+     */
+    public long totalUnits() {
+        long units = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            units += quantities[slot];
+        }
+        return units;
+    }
+    
+    /**
+     * @return the subtotal recomputed from the price and quantity columns
+     */
+    public long subtotalCents() {
+        long subtotal = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            subtotal += priceCents[slot] * quantities[slot];
+        }
+        return subtotal;
+    }
+    
+    private Product toProduct(int slot) {
+        int code = productCodes[slot];
+        return Product.ofCents(dictionary.productIdOf(code), dictionary.nameOf(code), priceCents[slot], quantities[slot]);
+    }
+    
+    private int slotOf(String productId) {
+        int code = dictionary.codeOf(productId);
+        return code < 0 ? -1 : findSlot(code);
+    }
+    
+    private int findSlot(int code) {
+        int position = indexPositionOf(code);
+        return position < 0 ? -1 : indexSlots[position];
+    }
+    
+    private int indexPositionOf(int code) {
+        int key = code + 1;
+        int mask = indexKeys.length - 1;
+        for (int position = mix(key) & mask; ; position = (position + 1) & mask) {
+            int existing = indexKeys[position];
+            if (existing == key) {
+                return position;
+            }
+            if (existing == EMPTY_KEY) {
+                return -1;
+            }
+        }
+    }
+    
+    private void insertIndex(int code, int slot) {
+        // Keep at least half the table empty so probes stay short and always terminate
+        if ((indexUsed + 1) * 2 > indexKeys.length) {
+            rebuildIndex(Math.max(indexKeys.length, live * 2));
+            // rebuildIndex already indexed the new slot
+            return;
+        }
+        int mask = indexKeys.length - 1;
+        int position = mix(code + 1) & mask;
+        while (indexKeys[position] != EMPTY_KEY) {
+            position = (position + 1) & mask;
+        }
+        indexKeys[position] = code + 1;
+        indexSlots[position] = slot;
+        indexUsed++;
+    }
+    
+    private void growColumns() {
+        int capacity = productCodes.length * 2;
+        productCodes = Arrays.copyOf(productCodes, capacity);
+        priceCents = Arrays.copyOf(priceCents, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+    }
+    
+    private void compact() {
+        int target = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (productCodes[slot] != REMOVED) {
+                productCodes[target] = productCodes[slot];
+                priceCents[target] = priceCents[slot];
+                quantities[target] = quantities[slot];
+                target++;
+            }
+        }
+        slots = target;
+        rebuildIndex(indexKeys.length);
+    }
+    
+    private void rebuildIndex(int minCapacity) {
+        allocateIndex(minCapacity);
+        int mask = indexKeys.length - 1;
+        for (int slot = 0; slot < slots; slot++) {
+            int code = productCodes[slot];
+            if (code == REMOVED) {
+                continue;
+            }
+            int position = mix(code + 1) & mask;
+            while (indexKeys[position] != EMPTY_KEY) {
+                position = (position + 1) & mask;
+            }
+            indexKeys[position] = code + 1;
+            indexSlots[position] = slot;
+            indexUsed++;
+        }
+    }
+    
+    private void allocateIndex(int minCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(8, minCapacity * 2 - 1));
+        indexKeys = new int[capacity];
+        indexSlots = new int[capacity];
+        indexUsed = 0;
+    }
+    
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,108 @@
+package com.retailer.cart.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Thread-safe, fixed-capacity ring of the most recent errors of a cart shared between
+ * threads; the {@link CartErrorBuffer} counterpart for {@link ConcurrentShoppingCart}.
+ * <p>
+ * Recording claims a sequence number from one atomic counter and stores a small entry
+ * (the error, a reference to an existing argument string and that number) in the slot
+ * the number maps to, so a storm of failed attempts keeps at most the capacity's worth
+ * of entries and never formats a message. Readers skip slots that were claimed but not
+ * yet written or already overwritten, so under contention a read may miss the errors
+ * recorded while it ran. No operation takes a lock.
+ */
+public final class ConcurrentCartErrorBuffer {
+    
+    private final AtomicReferenceArray<Entry> entries;
+    private final AtomicLong recorded = new AtomicLong();
+    // Sequence numbers below this were recorded before the last clear
+    private volatile long clearedAt;
+    
+    public ConcurrentCartErrorBuffer() {
+        this(CartErrorBuffer.DEFAULT_CAPACITY);
+    }
+    
+    public ConcurrentCartErrorBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.entries = new AtomicReferenceArray<>(capacity);
+    }
+    
+    public void record(CartError error, String argument) {
+        long sequence = recorded.getAndIncrement();
+        entries.set(slot(sequence), new Entry(error, argument, sequence));
+    }
+    
+    public int capacity() {
+        return entries.length();
+    }
+    
+    /**
+     * @return every error recorded since the last clear, including overwritten ones
+     */
+    public long getRecordedCount() {
+        return recorded.get() - clearedAt;
+    }
+    
+    /**
+     * @return the latest error held, or null if none is
+     */
+    public CartError latest() {
+        long end = recorded.get();
+        for (long sequence = end - 1; sequence >= first(end); sequence--) {
+            Entry entry = entries.get(slot(sequence));
+            if (entry != null && entry.sequence == sequence) {
+                return entry.error;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Formats the held errors, oldest first.
+     */
+    public List<String> getMessages() {
+        long end = recorded.get();
+        long start = first(end);
+        List<String> messages = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            Entry entry = entries.get(slot(sequence));
+            if (entry != null && entry.sequence == sequence) {
+                messages.add(entry.error.format(entry.argument));
+            }
+        }
+        return messages;
+    }
+    
+    public void clear() {
+        // Entries stay in their slots until overwritten, but readers no longer reach them
+        clearedAt = recorded.get();
+    }
+    
+    private long first(long end) {
+        // A clear racing with the read may already be past end
+        return Math.min(end, Math.max(clearedAt, end - entries.length()));
+    }
+    
+    private int slot(long sequence) {
+        return (int) (sequence % entries.length());
+    }
+    
+    private static final class Entry {
+        private final CartError error;
+        private final String argument;
+        private final long sequence;
+        
+        private Entry(CartError error, String argument, long sequence) {
+            this.error = error;
+            this.argument = argument;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.retailer.cart.models;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Shopping cart that can be edited from several threads at once, e.g. two tabs or
+ * devices sharing one session.
+ * <p>
+ * Each line's quantity is an {@link AtomicInteger} changed only by compare-and-set,
+ * so concurrent merges on the same product never lose an update. The subtotal, the
+ * applied promotions and the discount live together in one immutable {@link Totals}
+ * value swapped by compare-and-set: promotion checks run against the exact set they
+ * are added to, and {@link #getTotals()} always returns figures that belong together.
+ * No operation takes a lock, and rejected promotions are recorded in a bounded
+ * {@link ConcurrentCartErrorBuffer}. The totals hold no lines to price line by line,
+ * so {@link ScopedPromotion}s are refused.
+ */
+public class ConcurrentShoppingCart {
+    
+    private static final int REMOVED = -1;
+    
+    private final ConcurrentHashMap<String, Line> lines = new ConcurrentHashMap<>();
+    private final AtomicReference<Totals> totals = new AtomicReference<>(Totals.EMPTY);
+    private final AtomicLong lineSequence = new AtomicLong();
+    private final ConcurrentCartErrorBuffer errors = new ConcurrentCartErrorBuffer();
+    
+    public void addProduct(Product product) {
+        String productId = product.getProductId();
+        int added = product.getQuantity();
+        while (true) {
+            Line line = lines.get(productId);
+            if (line == null) {
+                Line created = new Line(product, lineSequence.incrementAndGet());
+                if (lines.putIfAbsent(productId, created) == null) {
+                    addToSubtotal(product.getSubtotalCents());
+                    return;
+                }
+                continue;
+            }
+            int quantity = line.quantity.get();
+            if (quantity == REMOVED) {
+                // A concurrent remove won; help it finish and start a fresh line
+                lines.remove(productId, line);
+                continue;
+            }
+            if (line.quantity.compareAndSet(quantity, quantity + added)) {
+                addToSubtotal(Money.times(line.priceCents, added));
+                return;
+            }
+        }
+    }
+    
+    public void updateProductQuantity(String productId, int quantity) {
+        if (quantity <= 0) {
+            removeProduct(productId);
+            return;
+        }
+        Line line = lines.get(productId);
+        if (line == null) {
+            return;
+        }
+        while (true) {
+            int current = line.quantity.get();
+            if (current == REMOVED) {
+                return;
+            }
+            if (line.quantity.compareAndSet(current, quantity)) {
+                addToSubtotal(Money.times(line.priceCents, quantity - current));
+                return;
+            }
+        }
+    }
+    
+    public void removeProduct(String productId) {
+        Line line = lines.get(productId);
+        if (line == null) {
+            return;
+        }
+        int quantity = line.quantity.getAndSet(REMOVED);
+        if (quantity == REMOVED) {
+            return;
+        }
+        lines.remove(productId, line);
+        addToSubtotal(-Money.times(line.priceCents, quantity));
+    }
+    
+    public boolean applyPromotion(Promotion promotion) {
+        if (promotion == null) {
+            errors.record(CartError.INVALID_PROMOTION_CODE, null);
+            return false;
+        }
+        if (promotion instanceof ScopedPromotion) {
+            errors.record(CartError.PROMOTION_NOT_SHAREABLE, null);
+            return false;
+        }
+        LocalDate currentDate = LocalDate.now();
+        if (!promotion.isActive(currentDate)) {
+            errors.record(currentDate.isBefore(promotion.getStartDate())
+                    ? CartError.PROMOTION_NOT_ACTIVE
+                    : CartError.PROMOTION_EXPIRED, null);
+            return false;
+        }
+        
+        while (true) {
+            Totals current = totals.get();
+            for (Promotion existing : current.promotions.values()) {
+                if (!existing.isCompatibleWith(promotion)) {
+                    errors.record(CartError.PROMOTION_NOT_COMBINABLE, existing.getCode());
+                    return false;
+                }
+            }
+            Map<String, Promotion> promotions = new LinkedHashMap<>(current.promotions);
+            promotions.put(promotion.getCode(), promotion);
+            if (totals.compareAndSet(current, new Totals(current.subtotalCents, promotions))) {
+                return true;
+            }
+        }
+    }
+    
+    public boolean removePromotion(String promotionCode) {
+        while (true) {
+            Totals current = totals.get();
+            if (!current.promotions.containsKey(promotionCode)) {
+                return false;
+            }
+            Map<String, Promotion> promotions = new LinkedHashMap<>(current.promotions);
+            promotions.remove(promotionCode);
+            if (totals.compareAndSet(current, new Totals(current.subtotalCents, promotions))) {
+                return true;
+            }
+        }
+    }
+    
+    public void clearPromotions() {
+        totals.updateAndGet(current -> new Totals(current.subtotalCents, Collections.emptyMap()));
+    }
+    
+    /**
+     * @return subtotal, discount and applied promotions read as one consistent value
+     */
+    public Totals getTotals() {
+        return totals.get();
+    }
+    
+    public double getSubtotal() {
+        return Money.toMajor(totals.get().subtotalCents);
+    }
+    
+    public double getTotalDiscount() {
+        return Money.toMajor(totals.get().discountCents);
+    }
+    
+    public double getFinalPrice() {
+        return Money.toMajor(totals.get().getFinalPriceCents());
+    }
+    
+    public int getQuantity(String productId) {
+        Line line = lines.get(productId);
+        int quantity = line == null ? 0 : line.quantity.get();
+        return Math.max(0, quantity);
+    }
+    
+    /**
+     * @return the lines in the order they were added; each quantity is read atomically
+     *         but lines edited during the call may be seen before or after the edit
+     */
+    public List<Product> getProducts() {
+        List<Line> ordered = new ArrayList<>(lines.values());
+        ordered.sort(Comparator.comparingLong(line -> line.sequence));
+        List<Product> products = new ArrayList<>(ordered.size());
+        for (Line line : ordered) {
+            int quantity = line.quantity.get();
+            if (quantity != REMOVED) {
+                products.add(Product.ofCents(line.productId, line.name, line.priceCents, quantity));
+            }
+        }
+        return products;
+    }
+    
+    /**
+     * @return the most recent error messages, oldest first, formatted on each call;
+     *         at most {@link CartErrorBuffer#DEFAULT_CAPACITY} are kept
+     */
+    public List<String> getErrorMessages() {
+        return errors.getMessages();
+    }
+    
+    /**
+     * @return the structured errors behind {@link #getErrorMessages()}
+     */
+    public ConcurrentCartErrorBuffer getErrors() {
+        return errors;
+    }
+    
+    public void clearErrorMessages() {
+        errors.clear();
+    }
+    
+    private void addToSubtotal(long deltaCents) {
+        if (deltaCents == 0) {
+            return;
+        }
+        while (true) {
+            Totals current = totals.get();
+            Totals next = new Totals(current.subtotalCents + deltaCents, current.promotions);
+            if (totals.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+    
+    private static final class Line {
+        private final String productId;
+        private final String name;
+        private final long priceCents;
+        private final long sequence;
+        private final AtomicInteger quantity;
+        
+        private Line(Product product, long sequence) {
+            this.productId = product.getProductId();
+            this.name = product.getName();
+            this.priceCents = product.getPriceCents();
+            this.sequence = sequence;
+            this.quantity = new AtomicInteger(product.getQuantity());
+        }
+    }
+    
+    /**
+     * Immutable view of the cart's money figures and applied promotions.
+     */
+    public static final class Totals {
+        
+        static final Totals EMPTY = new Totals(0, Collections.emptyMap());
+        
+        private final long subtotalCents;
+        private final long discountCents;
+        private final Map<String, Promotion> promotions;
+        
+        private Totals(long subtotalCents, Map<String, Promotion> promotions) {
+            this.subtotalCents = subtotalCents;
+            this.promotions = Collections.unmodifiableMap(promotions);
+            long discount = 0;
+            for (Promotion promotion : promotions.values()) {
+                discount += promotion.calculateDiscountCents(subtotalCents);
+            }
+            this.discountCents = discount;
+        }
+        
+        public long getSubtotalCents() {
+            return subtotalCents;
+        }
+        
+        public long getDiscountCents() {
+            return discountCents;
+        }
+        
+        public long getFinalPriceCents() {
+            return Math.max(0, subtotalCents - discountCents);
+        }
+        
+        public Map<String, Promotion> getAppliedPromotions() {
+            return promotions;
+        }
+    }
+}
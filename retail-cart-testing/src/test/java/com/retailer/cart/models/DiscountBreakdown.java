@@ -0,0 +1,79 @@
+package com.retailer.cart.models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of stacking a cart's promotions: the discount each promotion contributed
+ * and their total, as decided by a {@link DiscountStackingStrategy}.
+ */
+public final class DiscountBreakdown {
+    
+    private final List<Promotion> promotions;
+    private final long[] discountCents;
+    private final long totalCents;
+    
+    DiscountBreakdown(List<Promotion> promotions, long[] discountCents) {
+        this.promotions = Collections.unmodifiableList(promotions);
+        this.discountCents = discountCents;
+        long total = 0;
+        for (long discount : discountCents) {
+            total += discount;
+        }
+        this.totalCents = total;
+    }
+    
+    /**
+     * Puts line-level discounts ahead of a cart-level breakdown.
+     */
+    static DiscountBreakdown concat(List<Promotion> linePromotions, long[] lineDiscounts, DiscountBreakdown cartLevel) {
+        List<Promotion> promotions = new ArrayList<>(linePromotions);
+        promotions.addAll(cartLevel.promotions);
+        long[] discounts = Arrays.copyOf(lineDiscounts, promotions.size());
+        System.arraycopy(cartLevel.discountCents, 0, discounts, lineDiscounts.length, cartLevel.discountCents.length);
+        return new DiscountBreakdown(promotions, discounts);
+    }
+    
+    /**
+     * @return the promotions in the order they were stacked
+     */
+    public List<Promotion> getPromotions() {
+        return promotions;
+    }
+    
+    public long getDiscountCents(int index) {
+        return discountCents[index];
+    }
+    
+    /**
+     * @return the discount the promotion with this code contributed, 0 if it is not applied
+     */
+    public long getDiscountCents(String promotionCode) {
+        for (int i = 0; i < promotions.size(); i++) {
+            if (promotions.get(i).getCode().equals(promotionCode)) {
+                return discountCents[i];
+            }
+        }
+        return 0;
+    }
+    
+    public long getTotalCents() {
+        return totalCents;
+    }
+    
+    public double getTotal() {
+        return Money.toMajor(totalCents);
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("DiscountBreakdown{");
+        for (int i = 0; i < promotions.size(); i++) {
+            sb.append(promotions.get(i).getCode()).append("=");
+            Money.appendTo(sb, discountCents[i]).append(", ");
+        }
+        return Money.appendTo(sb.append("total="), totalCents).append('}').toString();
+    }
+}
@@ -0,0 +1,87 @@
+package com.retailer.cart.models;
+
+import java.util.List;
+
+/**
+ * Decides how the promotions applied to a cart combine into one discount.
+ */
+@FunctionalInterface
+public interface DiscountStackingStrategy {
+    
+    /**
+     * Every promotion is taken off the undiscounted subtotal and the amounts are summed.
+     * This is how the cart has always priced promotions.
+     */
+    DiscountStackingStrategy ADDITIVE = (promotions, subtotalCents) -> {
+        long[] discounts = new long[promotions.size()];
+        for (int i = 0; i < discounts.length; i++) {
+            discounts[i] = promotions.get(i).calculateDiscountCents(subtotalCents);
+        }
+        return new DiscountBreakdown(promotions, discounts);
+    };
+    
+    /**
+     * Promotions apply one after another in the order they were applied, each to the
+     * amount left by the previous ones, so 25% then 10% gives 32.5% rather than 35%.
+     * Minimum spend is still judged against the undiscounted subtotal.
+     */
+    DiscountStackingStrategy SEQUENTIAL = (promotions, subtotalCents) -> {
+        long[] discounts = new long[promotions.size()];
+        long remaining = subtotalCents;
+        for (int i = 0; i < discounts.length; i++) {
+            discounts[i] = promotions.get(i).calculateDiscountCents(subtotalCents, remaining);
+            remaining -= discounts[i];
+        }
+        return new DiscountBreakdown(promotions, discounts);
+    };
+    
+    /**
+     * Only the single largest discount counts; the other promotions contribute nothing.
+     */
+    DiscountStackingStrategy BEST_OF = (promotions, subtotalCents) -> {
+        long[] discounts = new long[promotions.size()];
+        int best = -1;
+        for (int i = 0; i < discounts.length; i++) {
+            long discount = promotions.get(i).calculateDiscountCents(subtotalCents);
+            if (best < 0 || discount > discounts[best]) {
+                if (best >= 0) {
+                    discounts[best] = 0;
+                }
+                discounts[i] = discount;
+                best = i;
+            }
+        }
+        return new DiscountBreakdown(promotions, discounts);
+    };
+    
+    /**
+     * @param promotions the applied promotions in application order
+     * @param subtotalCents the undiscounted cart subtotal
+     */
+    DiscountBreakdown apply(List<Promotion> promotions, long subtotalCents);
+    
+    /**
+     * Limits another strategy's total to a share of the subtotal. Amounts over the cap
+     * are taken back from the last promotions stacked.
+     * @param maxPercentage the largest total discount allowed, e.g. 50 for half the subtotal
+     */
+    static DiscountStackingStrategy capped(DiscountStackingStrategy base, double maxPercentage) {
+        long maxBasisPoints = Money.basisPoints(maxPercentage);
+        return (promotions, subtotalCents) -> {
+            DiscountBreakdown uncapped = base.apply(promotions, subtotalCents);
+            long cap = Money.percentage(subtotalCents, maxBasisPoints);
+            if (uncapped.getTotalCents() <= cap) {
+                return uncapped;
+            }
+            long[] discounts = new long[promotions.size()];
+            long excess = uncapped.getTotalCents() - cap;
+            for (int i = discounts.length - 1; i >= 0; i--) {
+                long discount = uncapped.getDiscountCents(i);
+                long trimmed = Math.min(discount, excess);
+                discounts[i] = discount - trimmed;
+                excess -= trimmed;
+            }
+            return new DiscountBreakdown(promotions, discounts);
+        };
+    }
+}
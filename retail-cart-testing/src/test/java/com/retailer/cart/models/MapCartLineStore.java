@@ -0,0 +1,68 @@
+package com.retailer.cart.models;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Default line store: the cart's own {@link Product} objects in an insertion-ordered map.
+ * {@link #get(String)} returns the live line.
+ */
+public class MapCartLineStore implements CartLineStore {
+    
+    private final Map<String, Product> products = new LinkedHashMap<>();
+    
+    @Override
+    public int size() {
+        return products.size();
+    }
+    
+    @Override
+    public boolean contains(String productId) {
+        return products.containsKey(productId);
+    }
+    
+    @Override
+    public long add(Product product) {
+        // Read before merging: re-adding the same instance must not see its doubled quantity
+        int addedQuantity = product.getQuantity();
+        Product existing = products.putIfAbsent(product.getProductId(), product);
+        if (existing == null) {
+            return product.getSubtotalCents();
+        }
+        existing.setQuantity(existing.getQuantity() + addedQuantity);
+        return Money.times(existing.getPriceCents(), addedQuantity);
+    }
+    
+    @Override
+    public long setQuantity(String productId, int quantity) {
+        Product product = products.get(productId);
+        long delta = Money.times(product.getPriceCents(), quantity - product.getQuantity());
+        product.setQuantity(quantity);
+        return delta;
+    }
+    
+    @Override
+    public long remove(String productId) {
+        Product removed = products.remove(productId);
+        return removed == null ? -1 : removed.getSubtotalCents();
+    }
+    
+    @Override
+    public Product get(String productId) {
+        return products.get(productId);
+    }
+    
+    @Override
+    public List<Product> toList() {
+        return new ArrayList<>(products.values());
+    }
+    
+    @Override
+    public void forEach(LineVisitor visitor) {
+        for (Product product : products.values()) {
+            visitor.visit(product.getProductId(), product.getName(), product.getPriceCents(), product.getQuantity());
+        }
+    }
+}
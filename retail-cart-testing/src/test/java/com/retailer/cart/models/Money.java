@@ -0,0 +1,77 @@
+package com.retailer.cart.models;
+
+/**
+ * Exact money arithmetic on {@code long} minor units (cents).
+ * All operations work on primitives so the pricing hot path never allocates;
+ * rounding is half-up to the nearest cent wherever a fraction can appear, and
+ * symmetric: a negative amount rounds like its positive counterpart, so -0.125
+ * becomes -13 cents just as 0.125 becomes 13.
+ */
+public final class Money {
+    
+    public static final long CENTS_PER_UNIT = 100;
+    public static final long BASIS_POINTS_PER_UNIT = 10_000;
+    
+    private Money() {
+    }
+    
+    /**
+     * Converts a major-unit amount (e.g. 19.99) to cents, rounding half-up.
+     */
+    public static long ofMajor(double amount) {
+        return roundHalfUp(amount * CENTS_PER_UNIT);
+    }
+    
+    public static double toMajor(long cents) {
+        return (double) cents / CENTS_PER_UNIT;
+    }
+    
+    public static long times(long cents, int quantity) {
+        return Math.multiplyExact(cents, (long) quantity);
+    }
+    
+    /**
+     * Converts a percentage such as 12.5 into basis points (1250).
+     */
+    public static long basisPoints(double percentage) {
+        return roundHalfUp(percentage * 100);
+    }
+    
+    /**
+     * Applies a basis-point rate to an amount, rounding half-up to the cent; negative
+     * amounts round the same way as their positive counterparts.
+     */
+    public static long percentage(long cents, long basisPoints) {
+        long scaled = Math.multiplyExact(cents, basisPoints);
+        long half = BASIS_POINTS_PER_UNIT / 2;
+        return scaled >= 0
+                ? (scaled + half) / BASIS_POINTS_PER_UNIT
+                : -((-scaled + half) / BASIS_POINTS_PER_UNIT);
+    }
+    
+    /**
+     * Appends the amount as a plain decimal with two fraction digits (e.g. "-1234.05").
+     */
+    public static StringBuilder appendTo(StringBuilder sb, long cents) {
+        // Split before dropping the sign: -Long.MIN_VALUE does not fit in a long
+        long units = Math.abs(cents / CENTS_PER_UNIT);
+        long fraction = Math.abs(cents % CENTS_PER_UNIT);
+        if (cents < 0) {
+            sb.append('-');
+        }
+        sb.append(units).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+    
+    public static String format(long cents) {
+        return appendTo(new StringBuilder(24), cents).toString();
+    }
+    
+    private static long roundHalfUp(double value) {
+        // Math.round alone takes halves towards positive infinity
+        return value >= 0 ? Math.round(value) : -Math.round(-value);
+    }
+}
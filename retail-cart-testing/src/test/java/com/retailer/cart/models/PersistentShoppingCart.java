@@ -0,0 +1,446 @@
+package com.retailer.cart.models;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable shopping cart in which every change returns a new version.
+ * <p>
+ * Lines and applied promotions are held in {@link PersistentTreeMap}s, so a new version
+ * copies only O(log n) nodes and shares the rest with its predecessor. Each version
+ * also keeps a link to the one it was derived from, which gives undo and an edit
+ * history at no extra copying, and {@link #diff} compares two versions in time
+ * proportional to what changed between them rather than to the size of the cart.
+ * <p>
+ * The history is bounded so that a long-lived cart does not hold on to every version
+ * it has ever been. At least the last {@link #getHistoryLimit()} versions stay
+ * reachable through {@link #undo()}; once twice that many have piled up, the oldest
+ * are dropped in one go, which keeps the trimming amortized constant time per change.
+ * <p>
+ * Promotions are kept by code, not in the order they were applied, and are priced
+ * additively, as a {@link ShoppingCart} with {@link DiscountStackingStrategy#ADDITIVE} does.
+ * Lines keep no categories, so {@link ScopedPromotion}s are refused.
+ */
+public final class PersistentShoppingCart {
+    
+    public static final int DEFAULT_HISTORY_LIMIT = 128;
+    
+    private static final PersistentShoppingCart EMPTY = new PersistentShoppingCart(
+            PersistentTreeMap.empty(), PersistentTreeMap.empty(), 0, 0, 0, null, null, 0, DEFAULT_HISTORY_LIMIT);
+    
+    private final PersistentTreeMap<String, Line> lines;
+    private final PersistentTreeMap<String, Promotion> promotions;
+    private final long subtotalCents;
+    private final long totalDiscountCents;
+    private final long nextSequence;
+    private final PersistentShoppingCart previous;
+    private final String errorMessage;
+    private final int version;
+    private final int historyLimit;
+    private final int retainedVersions;
+    
+    private PersistentShoppingCart(PersistentTreeMap<String, Line> lines,
+                                   PersistentTreeMap<String, Promotion> promotions,
+                                   long subtotalCents, long totalDiscountCents, long nextSequence,
+                                   PersistentShoppingCart previous, String errorMessage, int version,
+                                   int historyLimit) {
+        this.lines = lines;
+        this.promotions = promotions;
+        this.subtotalCents = subtotalCents;
+        this.totalDiscountCents = totalDiscountCents;
+        this.nextSequence = nextSequence;
+        this.previous = previous;
+        this.errorMessage = errorMessage;
+        this.version = version;
+        this.historyLimit = historyLimit;
+        this.retainedVersions = previous == null ? 1 : previous.retainedVersions + 1;
+    }
+    
+    public static PersistentShoppingCart empty() {
+        return EMPTY;
+    }
+    
+    /**
+     * Captures the current state of a mutable cart as version 0 of a new history.
+     * @throws IllegalArgumentException if the cart stacks its promotions other than
+     *         additively or has a scoped promotion applied, since the snapshot could not
+     *         price them the same way
+     */
+    public static PersistentShoppingCart of(ShoppingCart cart) {
+        if (cart.getStackingStrategy() != DiscountStackingStrategy.ADDITIVE) {
+            throw new IllegalArgumentException(
+                    "Only carts that stack promotions additively can be captured as a persistent cart");
+        }
+        PersistentShoppingCart snapshot = EMPTY;
+        for (Product product : cart.getProducts()) {
+            snapshot = snapshot.withProduct(product);
+        }
+        PersistentTreeMap<String, Promotion> promotions = PersistentTreeMap.empty();
+        for (Promotion promotion : cart.getAppliedPromotions().values()) {
+            if (promotion instanceof ScopedPromotion) {
+                throw new IllegalArgumentException("Scoped promotion " + promotion.getCode()
+                        + " cannot be captured as part of a persistent cart");
+            }
+            promotions = promotions.plus(promotion.getCode(), promotion);
+        }
+        return new PersistentShoppingCart(snapshot.lines, promotions, snapshot.subtotalCents,
+                discountOf(promotions, snapshot.subtotalCents), snapshot.nextSequence, null, null, 0,
+                DEFAULT_HISTORY_LIMIT);
+    }
+    
+    /**
+     * @param historyLimit the number of most recent versions that must stay reachable
+     *                     through {@link #undo()}, this one included
+     * @return this version with a different history limit, trimmed to it if need be
+     */
+    public PersistentShoppingCart withHistoryLimit(int historyLimit) {
+        if (historyLimit < 1) {
+            throw new IllegalArgumentException("History limit must be positive: " + historyLimit);
+        }
+        if (historyLimit == this.historyLimit) {
+            return this;
+        }
+        return retain(Math.min(retainedVersions, historyLimit), historyLimit);
+    }
+    
+    public PersistentShoppingCart withProduct(Product product) {
+        String productId = product.getProductId();
+        Line existing = lines.get(productId);
+        Line line;
+        long sequence = nextSequence;
+        if (existing == null) {
+            line = new Line(productId, product.getName(), product.getPriceCents(), product.getQuantity(), sequence++);
+        } else {
+            // Merge at the price already in the cart, as ShoppingCart does
+            line = existing.withQuantity(existing.quantity + product.getQuantity());
+        }
+        long delta = Money.times(line.priceCents, product.getQuantity());
+        return next(lines.plus(productId, line), promotions, subtotalCents + delta, sequence);
+    }
+    
+    public PersistentShoppingCart withQuantity(String productId, int quantity) {
+        Line existing = lines.get(productId);
+        if (existing == null) {
+            return this;
+        }
+        if (quantity <= 0) {
+            return withoutProduct(productId);
+        }
+        if (quantity == existing.quantity) {
+            return this;
+        }
+        long delta = Money.times(existing.priceCents, quantity - existing.quantity);
+        return next(lines.plus(productId, existing.withQuantity(quantity)), promotions,
+                subtotalCents + delta, nextSequence);
+    }
+    
+    public PersistentShoppingCart withoutProduct(String productId) {
+        Line existing = lines.get(productId);
+        if (existing == null) {
+            return this;
+        }
+        return next(lines.minus(productId), promotions, subtotalCents - existing.getSubtotalCents(), nextSequence);
+    }
+    
+    /**
+     * Applies a promotion using the same checks as {@link ShoppingCart#applyPromotion}.
+     * A rejected promotion still yields a new version, unchanged apart from
+     * {@link #getErrorMessage()}, so the rejection shows up in the history.
+     */
+    public PersistentShoppingCart withPromotion(Promotion promotion) {
+        if (promotion == null) {
+            return rejected("Invalid promotion code");
+        }
+        if (promotion instanceof ScopedPromotion) {
+            return rejected("This promotion cannot be applied to a saved cart");
+        }
+        LocalDate currentDate = LocalDate.now();
+        if (!promotion.isActive(currentDate)) {
+            return rejected(currentDate.isBefore(promotion.getStartDate())
+                    ? "This promotion is not currently active"
+                    : "This promotion code has expired");
+        }
+        for (Promotion existing : promotions.values()) {
+            if (!existing.isCompatibleWith(promotion)) {
+                return rejected("This promotion cannot be combined with " + existing.getCode());
+            }
+        }
+        return next(lines, promotions.plus(promotion.getCode(), promotion), subtotalCents, nextSequence);
+    }
+    
+    public PersistentShoppingCart withoutPromotion(String promotionCode) {
+        if (!promotions.containsKey(promotionCode)) {
+            return this;
+        }
+        return next(lines, promotions.minus(promotionCode), subtotalCents, nextSequence);
+    }
+    
+    public PersistentShoppingCart withoutPromotions() {
+        if (promotions.isEmpty()) {
+            return this;
+        }
+        return next(lines, PersistentTreeMap.empty(), subtotalCents, nextSequence);
+    }
+    
+    /**
+     * @return the version this one was derived from, or this version if it is the first
+     *         one still retained
+     */
+    public PersistentShoppingCart undo() {
+        return previous != null ? previous : this;
+    }
+    
+    /**
+     * @return every retained version from the oldest up to and including this one
+     */
+    public List<PersistentShoppingCart> history() {
+        List<PersistentShoppingCart> history = new ArrayList<>(retainedVersions);
+        for (PersistentShoppingCart cart = this; cart != null; cart = cart.previous) {
+            history.add(cart);
+        }
+        Collections.reverse(history);
+        return history;
+    }
+    
+    /**
+     * Compares this version with another, visiting only the subtrees they do not share.
+     */
+    public CartDiff diff(PersistentShoppingCart other) {
+        CartDiff diff = new CartDiff();
+        lines.diff(other.lines, (productId, before, after) -> {
+            if (before == null) {
+                diff.addedLines.add(after);
+            } else if (after == null) {
+                diff.removedLines.add(before);
+            } else {
+                diff.changedLines.add(after);
+            }
+        });
+        promotions.diff(other.promotions, (code, before, after) -> {
+            if (before == null) {
+                diff.addedPromotions.add(code);
+            } else if (after == null) {
+                diff.removedPromotions.add(code);
+            }
+        });
+        return diff;
+    }
+    
+    /**
+     * @return the number of changes since the history began, including any no longer retained
+     */
+    public int getVersion() {
+        return version;
+    }
+    
+    public int getHistoryLimit() {
+        return historyLimit;
+    }
+    
+    /**
+     * @return the reason the change that produced this version was rejected, or null
+     */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+    
+    public Line getLine(String productId) {
+        return lines.get(productId);
+    }
+    
+    public boolean containsProduct(String productId) {
+        return lines.containsKey(productId);
+    }
+    
+    public int getLineCount() {
+        return lines.size();
+    }
+    
+    /**
+     * @return the lines in the order they were first added
+     */
+    public List<Line> getLines() {
+        List<Line> ordered = lines.values();
+        ordered.sort(Comparator.comparingLong(line -> line.sequence));
+        return ordered;
+    }
+    
+    public List<Product> getProducts() {
+        List<Product> products = new ArrayList<>(lines.size());
+        for (Line line : getLines()) {
+            products.add(line.toProduct());
+        }
+        return products;
+    }
+    
+    public boolean hasPromotion(String promotionCode) {
+        return promotions.containsKey(promotionCode);
+    }
+    
+    public List<Promotion> getAppliedPromotions() {
+        return promotions.values();
+    }
+    
+    public double getSubtotal() {
+        return Money.toMajor(subtotalCents);
+    }
+    
+    public double getTotalDiscount() {
+        return Money.toMajor(totalDiscountCents);
+    }
+    
+    public double getFinalPrice() {
+        return Money.toMajor(getFinalPriceCents());
+    }
+    
+    public long getSubtotalCents() {
+        return subtotalCents;
+    }
+    
+    public long getTotalDiscountCents() {
+        return totalDiscountCents;
+    }
+    
+    public long getFinalPriceCents() {
+        return Math.max(0, subtotalCents - totalDiscountCents);
+    }
+    
+    private PersistentShoppingCart next(PersistentTreeMap<String, Line> lines,
+                                        PersistentTreeMap<String, Promotion> promotions,
+                                        long subtotalCents, long nextSequence) {
+        return new PersistentShoppingCart(lines, promotions, subtotalCents,
+                discountOf(promotions, subtotalCents), nextSequence, predecessor(), null, version + 1,
+                historyLimit);
+    }
+    
+    private PersistentShoppingCart rejected(String errorMessage) {
+        return new PersistentShoppingCart(lines, promotions, subtotalCents, totalDiscountCents,
+                nextSequence, predecessor(), errorMessage, version + 1, historyLimit);
+    }
+    
+    /**
+     * @return this version, or a copy of it holding only its last {@code historyLimit - 1}
+     *         versions once the chain has grown to twice the limit
+     */
+    private PersistentShoppingCart predecessor() {
+        if (retainedVersions < historyLimit || retainedVersions - historyLimit < historyLimit) {
+            return this;
+        }
+        return retain(historyLimit - 1, historyLimit);
+    }
+    
+    /**
+     * Rebuilds the newest {@code count} versions ending at this one, so that the oldest
+     * of them starts the chain and everything before it can be collected.
+     */
+    private PersistentShoppingCart retain(int count, int historyLimit) {
+        PersistentShoppingCart[] kept = new PersistentShoppingCart[count];
+        PersistentShoppingCart cart = this;
+        for (int i = count - 1; i >= 0; i--) {
+            kept[i] = cart;
+            cart = cart.previous;
+        }
+        PersistentShoppingCart copy = null;
+        for (PersistentShoppingCart version : kept) {
+            copy = new PersistentShoppingCart(version.lines, version.promotions, version.subtotalCents,
+                    version.totalDiscountCents, version.nextSequence, copy, version.errorMessage,
+                    version.version, historyLimit);
+        }
+        return copy;
+    }
+    
+    private static long discountOf(PersistentTreeMap<String, Promotion> promotions, long subtotalCents) {
+        long[] discount = new long[1];
+        promotions.forEach((code, promotion) -> discount[0] += promotion.calculateDiscountCents(subtotalCents));
+        return discount[0];
+    }
+    
+    /**
+     * One immutable cart line.
+     */
+    public static final class Line {
+        private final String productId;
+        private final String name;
+        private final long priceCents;
+        private final int quantity;
+        private final long sequence;
+        
+        private Line(String productId, String name, long priceCents, int quantity, long sequence) {
+            this.productId = productId;
+            this.name = name;
+            this.priceCents = priceCents;
+            this.quantity = quantity;
+            this.sequence = sequence;
+        }
+        
+        private Line withQuantity(int quantity) {
+            return new Line(productId, name, priceCents, quantity, sequence);
+        }
+        
+        public String getProductId() {
+            return productId;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public long getPriceCents() {
+            return priceCents;
+        }
+        
+        public int getQuantity() {
+            return quantity;
+        }
+        
+        public long getSubtotalCents() {
+            return Money.times(priceCents, quantity);
+        }
+        
+        public Product toProduct() {
+            return Product.ofCents(productId, name, priceCents, quantity);
+        }
+    }
+    
+    /**
+     * Differences between two cart versions, seen from the first towards the second.
+     */
+    public static final class CartDiff {
+        private final List<Line> addedLines = new ArrayList<>();
+        private final List<Line> removedLines = new ArrayList<>();
+        private final List<Line> changedLines = new ArrayList<>();
+        private final List<String> addedPromotions = new ArrayList<>();
+        private final List<String> removedPromotions = new ArrayList<>();
+        
+        public List<Line> getAddedLines() {
+            return addedLines;
+        }
+        
+        public List<Line> getRemovedLines() {
+            return removedLines;
+        }
+        
+        /**
+         * @return the other version's copy of each line whose quantity changed
+         */
+        public List<Line> getChangedLines() {
+            return changedLines;
+        }
+        
+        public List<String> getAddedPromotions() {
+            return addedPromotions;
+        }
+        
+        public List<String> getRemovedPromotions() {
+            return removedPromotions;
+        }
+        
+        public boolean isEmpty() {
+            return addedLines.isEmpty() && removedLines.isEmpty() && changedLines.isEmpty()
+                    && addedPromotions.isEmpty() && removedPromotions.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.retailer.cart.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable sorted map whose updates return a new map sharing all untouched nodes
+ * with the old one.
+ * <p>
+ * It is a treap whose node priorities are derived from the key hash, so the tree shape
+ * depends only on the key set and not on the order of updates. {@link #plus} and
+ * {@link #minus} copy one root-to-leaf path (O(log n) expected), and {@link #diff}
+ * skips every subtree two versions still share, which makes comparing neighbouring
+ * versions proportional to the number of changed keys.
+ */
+public final class PersistentTreeMap<K extends Comparable<K>, V> {
+    
+    private static final PersistentTreeMap<?, ?> EMPTY = new PersistentTreeMap<>(null);
+    
+    private final Node<K, V> root;
+    
+    private PersistentTreeMap(Node<K, V> root) {
+        this.root = root;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<K>, V> PersistentTreeMap<K, V> empty() {
+        return (PersistentTreeMap<K, V>) EMPTY;
+    }
+    
+    public int size() {
+        return size(root);
+    }
+    
+    public boolean isEmpty() {
+        return root == null;
+    }
+    
+    public V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int cmp = key.compareTo(node.key);
+            if (cmp == 0) {
+                return node.value;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+    
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+    
+    /**
+     * @return a map with {@code key} bound to {@code value}; this map if it already was
+     */
+    public PersistentTreeMap<K, V> plus(K key, V value) {
+        Objects.requireNonNull(value, "value");
+        Node<K, V> updated = insert(root, key, value, priorityOf(key));
+        return updated == root ? this : new PersistentTreeMap<>(updated);
+    }
+    
+    /**
+     * @return a map without {@code key}; this map if the key was absent
+     */
+    public PersistentTreeMap<K, V> minus(K key) {
+        Node<K, V> updated = delete(root, key);
+        return updated == root ? this : new PersistentTreeMap<>(updated);
+    }
+    
+    /**
+     * Visits the entries in key order.
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        forEach(root, action);
+    }
+    
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size());
+        forEach((key, value) -> values.add(value));
+        return values;
+    }
+    
+    /**
+     * Reports every key whose binding differs between this map and {@code other}.
+     * The visitor receives this map's value (null if absent here) and the other map's
+     * value (null if absent there).
+     */
+    public void diff(PersistentTreeMap<K, V> other, DiffVisitor<K, V> visitor) {
+        diff(root, other.root, visitor);
+    }
+    
+    @FunctionalInterface
+    public interface DiffVisitor<K, V> {
+        void changed(K key, V before, V after);
+    }
+    
+    private static <K extends Comparable<K>, V> void diff(Node<K, V> before, Node<K, V> after,
+                                                          DiffVisitor<K, V> visitor) {
+        if (before == after) {
+            return;
+        }
+        if (before == null) {
+            forEach(after, (key, value) -> visitor.changed(key, null, value));
+            return;
+        }
+        if (after == null) {
+            forEach(before, (key, value) -> visitor.changed(key, value, null));
+            return;
+        }
+        // Splitting on a key that is already the other side's root allocates nothing,
+        // so neighbouring versions line up and their shared subtrees are skipped above
+        Split<K, V> split = split(after, before.key);
+        diff(before.left, split.less, visitor);
+        if (split.match == null || split.match.value != before.value) {
+            visitor.changed(before.key, before.value, split.match == null ? null : split.match.value);
+        }
+        diff(before.right, split.greater, visitor);
+    }
+    
+    private static <K extends Comparable<K>, V> Node<K, V> insert(Node<K, V> node, K key, V value, int priority) {
+        if (node == null) {
+            return new Node<>(key, value, priority, null, null);
+        }
+        int cmp = key.compareTo(node.key);
+        if (cmp == 0) {
+            return node.value == value ? node : new Node<>(key, value, node.priority, node.left, node.right);
+        }
+        if (cmp < 0) {
+            Node<K, V> left = insert(node.left, key, value, priority);
+            if (left == node.left) {
+                return node;
+            }
+            if (outranks(left, node)) {
+                // Rotate right
+                return new Node<>(left.key, left.value, left.priority, left.left,
+                        new Node<>(node.key, node.value, node.priority, left.right, node.right));
+            }
+            return new Node<>(node.key, node.value, node.priority, left, node.right);
+        }
+        Node<K, V> right = insert(node.right, key, value, priority);
+        if (right == node.right) {
+            return node;
+        }
+        if (outranks(right, node)) {
+            // Rotate left
+            return new Node<>(right.key, right.value, right.priority,
+                    new Node<>(node.key, node.value, node.priority, node.left, right.left), right.right);
+        }
+        return new Node<>(node.key, node.value, node.priority, node.left, right);
+    }
+    
+    private static <K extends Comparable<K>, V> Node<K, V> delete(Node<K, V> node, K key) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = key.compareTo(node.key);
+        if (cmp == 0) {
+            return merge(node.left, node.right);
+        }
+        if (cmp < 0) {
+            Node<K, V> left = delete(node.left, key);
+            return left == node.left ? node : new Node<>(node.key, node.value, node.priority, left, node.right);
+        }
+        Node<K, V> right = delete(node.right, key);
+        return right == node.right ? node : new Node<>(node.key, node.value, node.priority, node.left, right);
+    }
+    
+    /** Joins two treaps where every key in {@code left} is below every key in {@code right}. */
+    private static <K extends Comparable<K>, V> Node<K, V> merge(Node<K, V> left, Node<K, V> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (outranks(left, right)) {
+            return new Node<>(left.key, left.value, left.priority, left.left, merge(left.right, right));
+        }
+        return new Node<>(right.key, right.value, right.priority, merge(left, right.left), right.right);
+    }
+    
+    private static <K extends Comparable<K>, V> Split<K, V> split(Node<K, V> node, K key) {
+        if (node == null) {
+            return new Split<>(null, null, null);
+        }
+        int cmp = key.compareTo(node.key);
+        if (cmp == 0) {
+            return new Split<>(node.left, node, node.right);
+        }
+        if (cmp < 0) {
+            Split<K, V> split = split(node.left, key);
+            return new Split<>(split.less, split.match,
+                    new Node<>(node.key, node.value, node.priority, split.greater, node.right));
+        }
+        Split<K, V> split = split(node.right, key);
+        return new Split<>(new Node<>(node.key, node.value, node.priority, node.left, split.less),
+                split.match, split.greater);
+    }
+    
+    private static <K extends Comparable<K>, V> void forEach(Node<K, V> node, BiConsumer<? super K, ? super V> action) {
+        while (node != null) {
+            forEach(node.left, action);
+            action.accept(node.key, node.value);
+            node = node.right;
+        }
+    }
+    
+    private static int size(Node<?, ?> node) {
+        return node == null ? 0 : node.size;
+    }
+    
+    /** Priority order with ties broken by key, so the shape is fully determined by the key set. */
+    private static <K extends Comparable<K>> boolean outranks(Node<K, ?> a, Node<K, ?> b) {
+        return a.priority != b.priority ? a.priority > b.priority : a.key.compareTo(b.key) < 0;
+    }
+    
+    private static int priorityOf(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+    
+    private static final class Node<K, V> {
+        private final K key;
+        private final V value;
+        private final int priority;
+        private final int size;
+        private final Node<K, V> left;
+        private final Node<K, V> right;
+        
+        private Node(K key, V value, int priority, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + size(left) + size(right);
+        }
+    }
+    
+    private static final class Split<K, V> {
+        private final Node<K, V> less;
+        private final Node<K, V> match;
+        private final Node<K, V> greater;
+        
+        private Split(Node<K, V> less, Node<K, V> match, Node<K, V> greater) {
+            this.less = less;
+            this.match = match;
+            this.greater = greater;
+        }
+    }
+}
@@ -1,43 +1,68 @@
 package com.retailer.cart.models;
 
+/**
+ * A cart line: a {@link ProductDescriptor} plus a quantity. Lines created through
+ * {@link ProductCatalog} share their descriptor; the setters for descriptor fields
+ * give this line a private copy instead of changing the shared one.
+ */
 public class Product {
-    private String productId;
-    private String name;
-    private double price;
+    private ProductDescriptor descriptor;
     private int quantity;
     
     public Product() {
+        this.descriptor = ProductDescriptor.EMPTY;
     }
     
     public Product(String productId, String name, double price, int quantity) {
-        this.productId = productId;
-        this.name = name;
-        this.price = price;
+        this.descriptor = new ProductDescriptor(productId, name, Money.ofMajor(price), null);
         this.quantity = quantity;
     }
     
+    public static Product ofCents(String productId, String name, long priceCents, int quantity) {
+        return of(new ProductDescriptor(productId, name, priceCents, null), quantity);
+    }
+    
+    public static Product of(ProductDescriptor descriptor, int quantity) {
+        Product product = new Product();
+        product.descriptor = descriptor;
+        product.quantity = quantity;
+        return product;
+    }
+    
+    public ProductDescriptor getDescriptor() {
+        return descriptor;
+    }
+    
     public String getProductId() {
-        return productId;
+        return descriptor.getProductId();
     }
     
     public void setProductId(String productId) {
-        this.productId = productId;
+        this.descriptor = descriptor.withProductId(productId);
     }
     
     public String getName() {
-        return name;
+        return descriptor.getName();
     }
     
     public void setName(String name) {
-        this.name = name;
+        this.descriptor = descriptor.withName(name);
     }
     
     public double getPrice() {
-        return price;
+        return Money.toMajor(descriptor.getPriceCents());
     }
     
     public void setPrice(double price) {
-        this.price = price;
+        this.descriptor = descriptor.withPriceCents(Money.ofMajor(price));
+    }
+    
+    public long getPriceCents() {
+        return descriptor.getPriceCents();
+    }
+    
+    public void setPriceCents(long priceCents) {
+        this.descriptor = descriptor.withPriceCents(priceCents);
     }
     
     public int getQuantity() {
@@ -49,15 +74,30 @@ public class Product {
     }
     
     public double getSubtotal() {
-        return price * quantity;
+        return Money.toMajor(getSubtotalCents());
+    }
+    
+    /**
+     * @return the catalog category, e.g. Clothing or Footwear; null if unknown
+     */
+    public String getCategory() {
+        return descriptor.getCategory();
+    }
+    
+    public void setCategory(String category) {
+        this.descriptor = descriptor.withCategory(category);
+    }
+    
+    public long getSubtotalCents() {
+        return Money.times(descriptor.getPriceCents(), quantity);
     }
     
     @Override
     public String toString() {
         return "Product{" +
-                "productId='" + productId + '\'' +
-                ", name='" + name + '\'' +
-                ", price=" + price +
+                "productId='" + getProductId() + '\'' +
+                ", name='" + getName() + '\'' +
+                ", price=" + Money.format(getPriceCents()) +
                 ", quantity=" + quantity +
                 '}';
     }
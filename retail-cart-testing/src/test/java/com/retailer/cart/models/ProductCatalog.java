@@ -0,0 +1,85 @@
+package com.retailer.cart.models;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide table of interned {@link ProductDescriptor}s, keyed by product ID.
+ * <p>
+ * Pages and CSV or JSON rows all produce fresh ID and name strings for the same
+ * product. Interning them here means every cart line built through
+ * {@link #newProduct} points at one shared descriptor and holds only its quantity,
+ * so a million carts of the same products cost a million quantities, not a million
+ * copies of each name. If a product comes back with a different name, price or
+ * category, the catalog switches to a new descriptor; lines already holding the old
+ * one keep the price they were added at. A null category means the source does not
+ * know it, as on the cart page, and keeps the category already interned. Only sources
+ * that describe the real products may intern them; randomly generated one-off products
+ * stay out of the catalog so they cannot leave their category on a real product ID.
+ */
+public final class ProductCatalog {
+    
+    private static final ProductCatalog INSTANCE = new ProductCatalog();
+    
+    private final ConcurrentHashMap<String, ProductDescriptor> descriptors = new ConcurrentHashMap<>();
+    
+    private ProductCatalog() {
+    }
+    
+    public static ProductCatalog getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * @param category null if unknown, to keep the category already interned
+     * @return the shared descriptor for these details, creating or replacing it as needed
+     */
+    public ProductDescriptor intern(String productId, String name, long priceCents, String category) {
+        ProductDescriptor current = descriptors.get(productId);
+        if (current != null && current.sameAs(name, priceCents, knownCategory(current, category))) {
+            return current;
+        }
+        return descriptors.compute(productId, (id, existing) -> {
+            String resolvedCategory = knownCategory(existing, category);
+            if (existing != null && existing.sameAs(name, priceCents, resolvedCategory)) {
+                return existing;
+            }
+            // Reuse the interned ID string so old and new descriptors share it
+            String sharedId = existing != null ? existing.getProductId() : id;
+            String sharedName = existing != null && name != null && name.equals(existing.getName()) ? existing.getName() : name;
+            return new ProductDescriptor(sharedId, sharedName, priceCents, resolvedCategory);
+        });
+    }
+    
+    private static String knownCategory(ProductDescriptor existing, String category) {
+        return category == null && existing != null ? existing.getCategory() : category;
+    }
+    
+    /**
+     * @return a cart line for an interned product
+     */
+    public Product newProduct(String productId, String name, double price, int quantity) {
+        return newProduct(productId, name, price, null, quantity);
+    }
+    
+    public Product newProduct(String productId, String name, double price, String category, int quantity) {
+        return Product.of(intern(productId, name, Money.ofMajor(price), category), quantity);
+    }
+    
+    /**
+     * @return the current descriptor for the product, or null if it was never interned
+     */
+    public ProductDescriptor get(String productId) {
+        return descriptors.get(productId);
+    }
+    
+    public int size() {
+        return descriptors.size();
+    }
+    
+    /**
+     * Forgets every descriptor; lines that already hold one are unaffected.
+     */
+    public void clear() {
+        descriptors.clear();
+    }
+}
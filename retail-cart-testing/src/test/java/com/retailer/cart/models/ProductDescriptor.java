@@ -0,0 +1,79 @@
+package com.retailer.cart.models;
+
+import java.util.Objects;
+
+/**
+ * Immutable description of a catalog product: everything about a cart line except
+ * its quantity. Descriptors handed out by {@link ProductCatalog} are shared by every
+ * line and every cart that holds the product.
+ */
+public final class ProductDescriptor {
+    
+    static final ProductDescriptor EMPTY = new ProductDescriptor(null, null, 0, null);
+    
+    private final String productId;
+    private final String name;
+    private final long priceCents;
+    private final String category;
+    
+    public ProductDescriptor(String productId, String name, long priceCents, String category) {
+        this.productId = productId;
+        this.name = name;
+        this.priceCents = priceCents;
+        this.category = category;
+    }
+    
+    public String getProductId() {
+        return productId;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public long getPriceCents() {
+        return priceCents;
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    ProductDescriptor withProductId(String productId) {
+        return new ProductDescriptor(productId, name, priceCents, category);
+    }
+    
+    ProductDescriptor withName(String name) {
+        return new ProductDescriptor(productId, name, priceCents, category);
+    }
+    
+    ProductDescriptor withPriceCents(long priceCents) {
+        return new ProductDescriptor(productId, name, priceCents, category);
+    }
+    
+    ProductDescriptor withCategory(String category) {
+        return new ProductDescriptor(productId, name, priceCents, category);
+    }
+    
+    boolean sameAs(String name, long priceCents, String category) {
+        return this.priceCents == priceCents && Objects.equals(this.name, name)
+                && Objects.equals(this.category, category);
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ProductDescriptor)) {
+            return false;
+        }
+        ProductDescriptor other = (ProductDescriptor) o;
+        return Objects.equals(productId, other.productId) && other.sameAs(name, priceCents, category);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(productId, name, priceCents, category);
+    }
+}
@@ -0,0 +1,68 @@
+package com.retailer.cart.models;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide dictionary encoding product IDs as dense ints, with the product
+ * name stored once per ID. Lookups of known IDs are lock-free; only new IDs take
+ * the lock. The first name registered for an ID is the one kept.
+ */
+public final class ProductIdDictionary {
+    
+    private static final ProductIdDictionary INSTANCE = new ProductIdDictionary();
+    
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] productIds = new String[1024];
+    private volatile String[] names = new String[1024];
+    private int size;
+    
+    private ProductIdDictionary() {
+    }
+    
+    public static ProductIdDictionary getInstance() {
+        return INSTANCE;
+    }
+    
+    public int encode(String productId, String name) {
+        Integer code = codes.get(productId);
+        return code != null ? code : register(productId, name);
+    }
+    
+    /**
+     * @return the code of a known product ID, or -1
+     */
+    public int codeOf(String productId) {
+        Integer code = codes.get(productId);
+        return code == null ? -1 : code;
+    }
+    
+    public String productIdOf(int code) {
+        return productIds[code];
+    }
+    
+    public String nameOf(int code) {
+        return names[code];
+    }
+    
+    public int size() {
+        return codes.size();
+    }
+    
+    private synchronized int register(String productId, String name) {
+        Integer existing = codes.get(productId);
+        if (existing != null) {
+            return existing;
+        }
+        int code = size++;
+        if (code == productIds.length) {
+            productIds = Arrays.copyOf(productIds, code * 2);
+            names = Arrays.copyOf(names, code * 2);
+        }
+        productIds[code] = productId;
+        names[code] = name;
+        // Publishing through the map makes the array writes visible to readers of the code
+        codes.put(productId, code);
+        return code;
+    }
+}
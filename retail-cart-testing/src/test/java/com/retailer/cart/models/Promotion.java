@@ -5,13 +5,22 @@ import java.util.HashSet;
 import java.util.Set;
 
 public class Promotion {
+    
+    public enum DiscountType {
+        PERCENTAGE,
+        FIXED_AMOUNT
+    }
+    
     private String code;
     private String description;
     private double discountPercentage;
     private double discountAmount;
+    private long discountBasisPoints;
+    private long discountAmountCents;
     private boolean isPercentage;
     private LocalDate startDate;
     private LocalDate endDate;
+    private long minSpendCents;
     private boolean isCombinableWithOthers;
     private Set<String> incompatiblePromotions;
     
@@ -24,6 +33,7 @@ public class Promotion {
         this.code = code;
         this.description = description;
         this.discountPercentage = discountPercentage;
+        this.discountBasisPoints = Money.basisPoints(discountPercentage);
         this.isPercentage = true;
         this.startDate = startDate;
         this.endDate = endDate;
@@ -37,8 +47,10 @@ public class Promotion {
         this.description = description;
         if (isPercentage) {
             this.discountPercentage = discountAmount;
+            this.discountBasisPoints = Money.basisPoints(discountAmount);
         } else {
             this.discountAmount = discountAmount;
+            this.discountAmountCents = Money.ofMajor(discountAmount);
         }
         this.isPercentage = isPercentage;
         this.startDate = startDate;
@@ -47,6 +59,13 @@ public class Promotion {
         this.incompatiblePromotions = new HashSet<>();
     }
     
+    public Promotion(String code, DiscountType discountType, double discountValue,
+                     LocalDate startDate, LocalDate endDate, double minSpend, boolean isCombinableWithOthers) {
+        this(code, null, discountValue, discountType == DiscountType.PERCENTAGE,
+             startDate, endDate, isCombinableWithOthers);
+        this.minSpendCents = Money.ofMajor(minSpend);
+    }
+    
     public String getCode() {
         return code;
     }
@@ -69,22 +88,36 @@ public class Promotion {
     
     public void setDiscountPercentage(double discountPercentage) {
         this.discountPercentage = discountPercentage;
+        this.discountBasisPoints = Money.basisPoints(discountPercentage);
         this.isPercentage = true;
     }
     
+    public long getDiscountBasisPoints() {
+        return discountBasisPoints;
+    }
+    
     public double getDiscountAmount() {
         return discountAmount;
     }
     
     public void setDiscountAmount(double discountAmount) {
         this.discountAmount = discountAmount;
+        this.discountAmountCents = Money.ofMajor(discountAmount);
         this.isPercentage = false;
     }
     
+    public long getDiscountAmountCents() {
+        return discountAmountCents;
+    }
+    
     public boolean isPercentage() {
         return isPercentage;
     }
     
+    public DiscountType getDiscountType() {
+        return isPercentage ? DiscountType.PERCENTAGE : DiscountType.FIXED_AMOUNT;
+    }
+    
     public void setPercentage(boolean percentage) {
         isPercentage = percentage;
     }
@@ -105,6 +138,18 @@ public class Promotion {
         this.endDate = endDate;
     }
     
+    public double getMinSpend() {
+        return Money.toMajor(minSpendCents);
+    }
+    
+    public void setMinSpend(double minSpend) {
+        this.minSpendCents = Money.ofMajor(minSpend);
+    }
+    
+    public long getMinSpendCents() {
+        return minSpendCents;
+    }
+    
     public boolean isCombinableWithOthers() {
         return isCombinableWithOthers;
     }
@@ -134,10 +179,25 @@ public class Promotion {
     }
     
     public double calculateDiscount(double subtotal) {
+        return Money.toMajor(calculateDiscountCents(Money.ofMajor(subtotal)));
+    }
+    
+    public long calculateDiscountCents(long subtotalCents) {
+        return calculateDiscountCents(subtotalCents, subtotalCents);
+    }
+    
+    /**
+     * Discount on {@code baseCents}, with the minimum spend judged against
+     * {@code qualifyingCents}; used when promotions stack on an already discounted amount.
+     */
+    public long calculateDiscountCents(long qualifyingCents, long baseCents) {
+        if (qualifyingCents < minSpendCents) {
+            return 0;
+        }
         if (isPercentage) {
-            return subtotal * (discountPercentage / 100.0);
+            return Money.percentage(baseCents, discountBasisPoints);
         } else {
-            return Math.min(discountAmount, subtotal);
+            return Math.min(discountAmountCents, baseCents);
         }
     }
     
@@ -0,0 +1,79 @@
+package com.retailer.cart.models;
+
+import java.util.Collection;
+
+/**
+ * Bloom filter over the known promotion codes.
+ * <p>
+ * {@link #mightContain} answers "no" for a code that is certainly not in the catalog
+ * with a few multiply-and-shift probes of one small bit array, so guessed codes can be
+ * turned away before any map lookup or error handling. A "yes" may still be a false
+ * positive (under 0.1% at the sizing used here) and must be confirmed by a real lookup.
+ * The filter is immutable; build a new one when the catalog changes.
+ */
+public final class PromotionCodeFilter {
+    
+    private static final int BITS_PER_CODE = 16;
+    private static final int PROBES = 8;
+    // Small arrays give double hashing too few distinct probe sequences
+    private static final int MIN_BITS = 1024;
+    
+    private final long[] bits;
+    private final int mask;
+    
+    private PromotionCodeFilter(int bitCount) {
+        this.bits = new long[bitCount >>> 6];
+        this.mask = bitCount - 1;
+    }
+    
+    public static PromotionCodeFilter build(Collection<Promotion> promotions) {
+        int wanted = Math.max(MIN_BITS, promotions.size() * BITS_PER_CODE);
+        PromotionCodeFilter filter = new PromotionCodeFilter(Integer.highestOneBit(wanted - 1) << 1);
+        for (Promotion promotion : promotions) {
+            if (promotion != null) {
+                filter.add(promotion.getCode());
+            }
+        }
+        return filter;
+    }
+    
+    /**
+     * @return false if the code is definitely unknown; true if it may be known
+     */
+    public boolean mightContain(String code) {
+        if (code == null) {
+            return false;
+        }
+        long hash = mix(code.hashCode());
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < PROBES; i++) {
+            int bit = (h1 + i * h2) & mask;
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    public int bitCount() {
+        return bits.length << 6;
+    }
+    
+    private void add(String code) {
+        long hash = mix(code.hashCode());
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < PROBES; i++) {
+            int bit = (h1 + i * h2) & mask;
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+    
+    /** Stafford variant 13 finalizer, spreading the 32-bit string hash over 64 bits. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,279 @@
+package com.retailer.cart.models;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Finds the set of mutually compatible promotions with the largest total discount.
+ * <p>
+ * Candidates become vertices of a compatibility graph held as one {@code long} of
+ * neighbour bits each, so at most 64 usable candidates are supported. The search is
+ * a branch and bound over cliques. At every node, candidates that conflict with no
+ * other candidate are taken outright, and the rest are covered greedily with groups
+ * of mutually incompatible promotions: at most one per group can be chosen, so the
+ * sum of each group's largest discount bounds what the branch can still add. A branch
+ * is cut as soon as that bound cannot beat the best set found, or once the discount
+ * already covers the whole subtotal. Branching is on the candidate with the most
+ * conflicts, which shrinks the remaining graph fastest either way.
+ */
+public final class PromotionCombinationSolver {
+    
+    public static final int MAX_CANDIDATES = 64;
+    
+    private final Promotion[] vertices;
+    private final long[] weights;
+    private final long[] neighbours;
+    private final long[] conflicts;
+    private final long cap;
+    private final ToLongFunction<List<Promotion>> combinedDiscountOf;
+    
+    private long bestDiscount;
+    private long bestSet;
+    
+    private PromotionCombinationSolver(List<Promotion> usable, long[] usableWeights, long capCents,
+                                       ToLongFunction<List<Promotion>> combinedDiscountOf) {
+        int size = usable.size();
+        this.vertices = new Promotion[size];
+        this.weights = new long[size];
+        this.neighbours = new long[size];
+        this.conflicts = new long[size];
+        this.cap = capCents;
+        this.combinedDiscountOf = combinedDiscountOf;
+        
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(usableWeights[b], usableWeights[a]));
+        for (int i = 0; i < size; i++) {
+            vertices[i] = usable.get(order[i]);
+            weights[i] = usableWeights[order[i]];
+        }
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                if (vertices[i].isCompatibleWith(vertices[j])) {
+                    neighbours[i] |= 1L << j;
+                    neighbours[j] |= 1L << i;
+                }
+            }
+        }
+        long all = allVertices(size);
+        for (int i = 0; i < size; i++) {
+            conflicts[i] = all & ~neighbours[i] & ~(1L << i);
+        }
+    }
+    
+    /**
+     * Solves for the given subtotal. Candidates that are null, inactive on the date,
+     * worth nothing or repeat an earlier code are ignored.
+     *
+     * @throws IllegalArgumentException if more than {@value #MAX_CANDIDATES} candidates remain
+     */
+    public static Result solve(Collection<Promotion> candidates, long subtotalCents, LocalDate date) {
+        return solve(candidates, promotion -> promotion.calculateDiscountCents(subtotalCents), subtotalCents, date);
+    }
+    
+    /**
+     * Solves with caller-supplied weights, for promotions whose discount is not a function
+     * of the subtotal alone, such as a {@link ScopedPromotion} on a particular cart. The
+     * weights of a combination are summed, as if the promotions did not interact.
+     *
+     * @param discountOf a candidate's discount in cents when applied on its own
+     * @param capCents the most any combination can be worth, usually the subtotal
+     * @throws IllegalArgumentException if more than {@value #MAX_CANDIDATES} candidates remain
+     */
+    public static Result solve(Collection<Promotion> candidates, ToLongFunction<Promotion> discountOf,
+                               long capCents, LocalDate date) {
+        return solve(candidates, discountOf, null, capCents, date);
+    }
+    
+    /**
+     * Solves for promotions that interact, such as a cart's promotions under a
+     * {@link DiscountStackingStrategy} other than additive. Each combination is priced
+     * as a whole; the single-promotion weights only order the search and bound it, so
+     * a promotion must never add more to a combination than it is worth alone, and
+     * adding a compatible promotion must never lower a combination's discount.
+     *
+     * @param discountOf a candidate's discount in cents when applied on its own
+     * @param combinedDiscountOf the discount of a combination, given largest weight first
+     *                           as it would be applied; null to sum the weights
+     * @param capCents the most any combination can be worth, usually the subtotal
+     * @throws IllegalArgumentException if more than {@value #MAX_CANDIDATES} candidates remain
+     */
+    public static Result solve(Collection<Promotion> candidates, ToLongFunction<Promotion> discountOf,
+                               ToLongFunction<List<Promotion>> combinedDiscountOf, long capCents, LocalDate date) {
+        List<Promotion> usable = new ArrayList<>(candidates.size());
+        long[] usableWeights = new long[candidates.size()];
+        Set<String> seenCodes = new HashSet<>();
+        for (Promotion promotion : candidates) {
+            if (promotion == null || !promotion.isActive(date)) {
+                continue;
+            }
+            long weight = discountOf.applyAsLong(promotion);
+            if (weight > 0 && seenCodes.add(promotion.getCode())) {
+                usableWeights[usable.size()] = weight;
+                usable.add(promotion);
+            }
+        }
+        if (usable.size() > MAX_CANDIDATES) {
+            throw new IllegalArgumentException("At most " + MAX_CANDIDATES
+                    + " usable promotion candidates are supported, got " + usable.size());
+        }
+        if (usable.isEmpty() || capCents <= 0) {
+            return new Result(Collections.emptyList(), 0);
+        }
+        
+        PromotionCombinationSolver solver = new PromotionCombinationSolver(usable, usableWeights, capCents,
+                combinedDiscountOf);
+        // A greedy pick is a cheap first bound to beat, and is often already optimal
+        if (!solver.seedGreedy()) {
+            solver.search(allVertices(usable.size()), 0L, 0L);
+        }
+        return solver.result();
+    }
+    
+    /**
+     * @param candidates vertices compatible with everything in {@code chosen}
+     * @return true once a set worth the whole cap is found, which ends the search
+     */
+    private boolean search(long candidates, long chosen, long discount) {
+        // Adding a promotion never lowers the discount, so a candidate without conflicts
+        // belongs in every best extension
+        long free = 0;
+        int branch = -1;
+        int branchConflicts = 0;
+        for (long set = candidates; set != 0; set &= set - 1) {
+            int v = Long.numberOfTrailingZeros(set);
+            int degree = Long.bitCount(candidates & conflicts[v]);
+            if (degree == 0) {
+                free |= 1L << v;
+            } else if (degree > branchConflicts) {
+                branch = v;
+                branchConflicts = degree;
+            }
+        }
+        chosen |= free;
+        discount += weightOf(free);
+        candidates &= ~free;
+        
+        long capped = Math.min(valueOf(chosen, discount), cap);
+        if (capped > bestDiscount) {
+            bestDiscount = capped;
+            bestSet = chosen;
+            if (capped >= cap) {
+                return true;
+            }
+        }
+        // The summed weights bound the combined discount from above
+        if (candidates == 0 || Math.min(discount + coverBound(candidates), cap) <= bestDiscount) {
+            return false;
+        }
+        
+        long bit = 1L << branch;
+        return search(candidates & neighbours[branch], chosen | bit, discount + weights[branch])
+                || search(candidates & ~bit, chosen, discount);
+    }
+    
+    /**
+     * Covers the candidates with groups of pairwise incompatible promotions, heaviest
+     * first; vertices are in descending weight order, so each group's first vertex
+     * is its largest discount.
+     * @return the sum of those largest discounts, an upper bound on any compatible subset
+     */
+    private long coverBound(long candidates) {
+        long bound = 0;
+        while (candidates != 0) {
+            int v = Long.numberOfTrailingZeros(candidates);
+            bound += weights[v];
+            long group = 1L << v;
+            long joinable = candidates & conflicts[v];
+            while (joinable != 0) {
+                int u = Long.numberOfTrailingZeros(joinable);
+                group |= 1L << u;
+                joinable &= conflicts[u];
+            }
+            candidates &= ~group;
+        }
+        return bound;
+    }
+    
+    /**
+     * Takes the heaviest remaining compatible candidate until none is left.
+     * @return true if that already reaches the cap
+     */
+    private boolean seedGreedy() {
+        long candidates = allVertices(vertices.length);
+        long chosen = 0;
+        long discount = 0;
+        while (candidates != 0) {
+            int v = Long.numberOfTrailingZeros(candidates);
+            chosen |= 1L << v;
+            discount += weights[v];
+            candidates &= neighbours[v];
+        }
+        bestDiscount = Math.min(valueOf(chosen, discount), cap);
+        bestSet = chosen;
+        return bestDiscount >= cap;
+    }
+    
+    /**
+     * @param weight the set's summed weights, its discount when the promotions do not interact
+     */
+    private long valueOf(long set, long weight) {
+        return combinedDiscountOf == null ? weight : combinedDiscountOf.applyAsLong(promotionsOf(set));
+    }
+    
+    private long weightOf(long set) {
+        long total = 0;
+        while (set != 0) {
+            total += weights[Long.numberOfTrailingZeros(set)];
+            set &= set - 1;
+        }
+        return total;
+    }
+    
+    private List<Promotion> promotionsOf(long set) {
+        List<Promotion> promotions = new ArrayList<>(Long.bitCount(set));
+        for (; set != 0; set &= set - 1) {
+            promotions.add(vertices[Long.numberOfTrailingZeros(set)]);
+        }
+        return promotions;
+    }
+    
+    private Result result() {
+        return new Result(Collections.unmodifiableList(promotionsOf(bestSet)), bestDiscount);
+    }
+    
+    private static long allVertices(int size) {
+        return size == 64 ? -1L : (1L << size) - 1;
+    }
+    
+    /**
+     * The chosen promotions, largest discount first, and their combined discount
+     * capped at the subtotal, or at the cap given with caller-supplied weights.
+     */
+    public static final class Result {
+        private final List<Promotion> promotions;
+        private final long discountCents;
+        
+        private Result(List<Promotion> promotions, long discountCents) {
+            this.promotions = promotions;
+            this.discountCents = discountCents;
+        }
+        
+        public List<Promotion> getPromotions() {
+            return promotions;
+        }
+        
+        public long getDiscountCents() {
+            return discountCents;
+        }
+    }
+}
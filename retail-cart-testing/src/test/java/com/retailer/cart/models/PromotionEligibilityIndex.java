@@ -0,0 +1,143 @@
+package com.retailer.cart.models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precomputed answer to "which scoped promotions can discount this product?".
+ * <p>
+ * Every product in the catalog, and every product ID a promotion names directly, is
+ * resolved once against every {@link ScopedPromotion}'s product and category targets.
+ * Pricing a cart then costs one hash lookup per line plus the handful of promotions
+ * that actually match, instead of testing each line against each promotion's
+ * predicates. Build a new index when the catalog or the scoped promotions change.
+ */
+public final class PromotionEligibilityIndex {
+    
+    private static final int[] NONE = new int[0];
+    
+    private final List<ScopedPromotion> promotions;
+    private final Map<String, Integer> idsByCode;
+    private final Map<String, String> categories;
+    private final Map<String, int[]> eligibleByProduct;
+    
+    private PromotionEligibilityIndex(List<ScopedPromotion> promotions, Map<String, String> categories) {
+        this.promotions = promotions;
+        this.categories = categories;
+        this.idsByCode = new HashMap<>();
+        for (int id = 0; id < promotions.size(); id++) {
+            idsByCode.put(promotions.get(id).getCode(), id);
+        }
+        
+        Map<String, List<Integer>> eligible = new HashMap<>();
+        for (Map.Entry<String, String> entry : categories.entrySet()) {
+            for (int id = 0; id < promotions.size(); id++) {
+                if (promotions.get(id).appliesTo(entry.getKey(), entry.getValue())) {
+                    eligible.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(id);
+                }
+            }
+        }
+        // Products named by ID but missing from the catalog
+        for (int id = 0; id < promotions.size(); id++) {
+            for (String productId : promotions.get(id).getProductIds()) {
+                if (!categories.containsKey(productId)) {
+                    eligible.computeIfAbsent(productId, k -> new ArrayList<>()).add(id);
+                }
+            }
+        }
+        
+        this.eligibleByProduct = new HashMap<>(eligible.size() * 2);
+        for (Map.Entry<String, List<Integer>> entry : eligible.entrySet()) {
+            List<Integer> ids = entry.getValue();
+            int[] packed = new int[ids.size()];
+            for (int i = 0; i < packed.length; i++) {
+                packed[i] = ids.get(i);
+            }
+            eligibleByProduct.put(entry.getKey(), packed);
+        }
+    }
+    
+    /**
+     * @param promotions any promotions; only {@link ScopedPromotion}s are indexed
+     * @param catalog the products whose categories scoped promotions may target
+     */
+    public static PromotionEligibilityIndex build(Collection<? extends Promotion> promotions,
+                                                  Collection<Product> catalog) {
+        Map<String, String> categories = new HashMap<>();
+        for (Product product : catalog) {
+            categories.put(product.getProductId(), product.getCategory());
+        }
+        return new PromotionEligibilityIndex(scopedOnly(promotions), categories);
+    }
+    
+    /**
+     * @return an index over the same catalog for a different set of promotions
+     */
+    public PromotionEligibilityIndex withPromotions(Collection<? extends Promotion> promotions) {
+        return new PromotionEligibilityIndex(scopedOnly(promotions), categories);
+    }
+    
+    /**
+     * Resolves one product, replacing whatever was known about it. Only for an index
+     * built by {@link #build} and private to one cart, which grows it line by line
+     * instead of rebuilding it for every line added.
+     */
+    void addProduct(String productId, String category) {
+        categories.put(productId, category);
+        int[] matched = new int[promotions.size()];
+        int count = 0;
+        for (int id = 0; id < promotions.size(); id++) {
+            if (promotions.get(id).appliesTo(productId, category)) {
+                matched[count++] = id;
+            }
+        }
+        if (count == 0) {
+            eligibleByProduct.remove(productId);
+        } else {
+            eligibleByProduct.put(productId, Arrays.copyOf(matched, count));
+        }
+    }
+    
+    /**
+     * @return the IDs of the scoped promotions that can discount this product, possibly empty;
+     *         the array is shared and must not be modified
+     */
+    public int[] eligiblePromotions(String productId) {
+        return eligibleByProduct.getOrDefault(productId, NONE);
+    }
+    
+    /**
+     * @return the promotion's ID, or -1 if it is not indexed
+     */
+    public int idOf(String promotionCode) {
+        Integer id = idsByCode.get(promotionCode);
+        return id == null ? -1 : id;
+    }
+    
+    public ScopedPromotion promotionOf(int id) {
+        return promotions.get(id);
+    }
+    
+    public String categoryOf(String productId) {
+        return categories.get(productId);
+    }
+    
+    public int size() {
+        return promotions.size();
+    }
+    
+    private static List<ScopedPromotion> scopedOnly(Collection<? extends Promotion> promotions) {
+        List<ScopedPromotion> scoped = new ArrayList<>();
+        for (Promotion promotion : promotions) {
+            if (promotion instanceof ScopedPromotion) {
+                scoped.add((ScopedPromotion) promotion);
+            }
+        }
+        return Collections.unmodifiableList(scoped);
+    }
+}
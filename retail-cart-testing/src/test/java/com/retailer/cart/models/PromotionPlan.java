@@ -0,0 +1,150 @@
+package com.retailer.cart.models;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A promotion catalog compiled for one catalog version and one pricing date.
+ * Every promotion gets a dense integer ID; its discount and activity on the plan date
+ * are resolved up front into flat arrays and its compatibility into a
+ * {@link PromotionCompatibilityMatrix}, so evaluating
+ * a cart is a loop over ints with no hashing, date arithmetic or virtual calls.
+ */
+public final class PromotionPlan {
+    
+    public static final int APPLICABLE = 0;
+    public static final int NOT_YET_ACTIVE = 1;
+    public static final int EXPIRED = 2;
+    
+    private final long catalogVersion;
+    private final LocalDate pricingDate;
+    private final Promotion[] promotions;
+    private final PromotionCompatibilityMatrix compatibility;
+    
+    private final boolean[] percentage;
+    private final long[] basisPoints;
+    private final long[] amountCents;
+    private final long[] minSpendCents;
+    private final byte[] status;
+    
+    private PromotionPlan(long catalogVersion, LocalDate pricingDate, List<Promotion> source,
+                          PromotionCompatibilityMatrix compatibility) {
+        int size = source.size();
+        this.catalogVersion = catalogVersion;
+        this.pricingDate = pricingDate;
+        this.promotions = source.toArray(new Promotion[0]);
+        this.compatibility = compatibility;
+        this.percentage = new boolean[size];
+        this.basisPoints = new long[size];
+        this.amountCents = new long[size];
+        this.minSpendCents = new long[size];
+        this.status = new byte[size];
+        
+        for (int id = 0; id < size; id++) {
+            Promotion promotion = promotions[id];
+            percentage[id] = promotion.isPercentage();
+            basisPoints[id] = promotion.getDiscountBasisPoints();
+            amountCents[id] = promotion.getDiscountAmountCents();
+            minSpendCents[id] = promotion.getMinSpendCents();
+            if (pricingDate.isBefore(promotion.getStartDate())) {
+                status[id] = NOT_YET_ACTIVE;
+            } else if (pricingDate.isAfter(promotion.getEndDate())) {
+                status[id] = EXPIRED;
+            } else {
+                status[id] = APPLICABLE;
+            }
+        }
+    }
+    
+    /**
+     * Compiles the given promotions; null entries are skipped.
+     */
+    public static PromotionPlan compile(Collection<Promotion> promotions, long catalogVersion, LocalDate pricingDate) {
+        List<Promotion> source = new ArrayList<>(promotions.size());
+        for (Promotion promotion : promotions) {
+            if (promotion != null) {
+                source.add(promotion);
+            }
+        }
+        return new PromotionPlan(catalogVersion, pricingDate, source, PromotionCompatibilityMatrix.build(source));
+    }
+    
+    /**
+     * Compiles a plan that reuses an existing matrix; its IDs must match the list order.
+     */
+    public static PromotionPlan compile(List<Promotion> promotions, PromotionCompatibilityMatrix compatibility,
+                                        long catalogVersion, LocalDate pricingDate) {
+        return new PromotionPlan(catalogVersion, pricingDate, promotions, compatibility);
+    }
+    
+    public long getCatalogVersion() {
+        return catalogVersion;
+    }
+    
+    public LocalDate getPricingDate() {
+        return pricingDate;
+    }
+    
+    public int size() {
+        return promotions.length;
+    }
+    
+    /**
+     * @return the dense ID of the promotion code, or -1 if it is not in the plan
+     */
+    public int idOf(String code) {
+        return compatibility.idOf(code);
+    }
+    
+    public String codeOf(int id) {
+        return promotions[id].getCode();
+    }
+    
+    public Promotion promotionOf(int id) {
+        return promotions[id];
+    }
+    
+    /**
+     * @return {@link #APPLICABLE}, {@link #NOT_YET_ACTIVE} or {@link #EXPIRED} on the plan date
+     */
+    public int statusOf(int id) {
+        return status[id];
+    }
+    
+    public PromotionCompatibilityMatrix getCompatibility() {
+        return compatibility;
+    }
+    
+    public boolean isCompatible(int a, int b) {
+        return compatibility.isCompatible(a, b);
+    }
+    
+    /**
+     * @return the first applied ID the candidate conflicts with, or -1 if it can be added
+     */
+    public int findConflict(int candidateId, long[] appliedSet) {
+        return compatibility.firstConflict(candidateId, appliedSet);
+    }
+    
+    public long discountCents(int id, long subtotalCents) {
+        if (subtotalCents < minSpendCents[id]) {
+            return 0;
+        }
+        return percentage[id]
+                ? Money.percentage(subtotalCents, basisPoints[id])
+                : Math.min(amountCents[id], subtotalCents);
+    }
+    
+    /**
+     * Sums the discounts of the applied promotions against the subtotal.
+     */
+    public long totalDiscountCents(int[] appliedIds, int appliedCount, long subtotalCents) {
+        long total = 0;
+        for (int i = 0; i < appliedCount; i++) {
+            total += discountCents(appliedIds[i], subtotalCents);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,117 @@
+package com.retailer.cart.models;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Renders the text receipt of a {@link ShoppingCart}, the same text as
+ * {@link ShoppingCart#toString()}, into reusable buffers.
+ * <p>
+ * Lines are visited straight off the cart's line store, amounts go through
+ * {@link Money#appendTo}'s fixed-point formatting, and the totals are the cart's
+ * cached figures, so once the internal builder has grown to receipt size a render
+ * allocates nothing. An instance holds its own buffer and is not thread-safe; keep
+ * one per thread.
+ */
+public final class ReceiptRenderer implements CartLineStore.LineVisitor {
+    
+    private final StringBuilder text;
+    private final Consumer<Promotion> promotionWriter = this::appendPromotion;
+    private StringBuilder target;
+    
+    public ReceiptRenderer() {
+        this(512);
+    }
+    
+    public ReceiptRenderer(int initialCapacity) {
+        this.text = new StringBuilder(initialCapacity);
+    }
+    
+    /**
+     * @return the receipt in this renderer's builder, valid until the next render
+     */
+    public CharSequence render(ShoppingCart cart) {
+        text.setLength(0);
+        return appendTo(cart, text);
+    }
+    
+    /**
+     * Appends the receipt to a caller-owned builder.
+     */
+    public StringBuilder appendTo(ShoppingCart cart, StringBuilder sb) {
+        sb.append("Shopping Cart:\n");
+        
+        target = sb;
+        try {
+            cart.forEachLine(this);
+            
+            Money.appendTo(sb.append("\nSubtotal: $"), cart.getSubtotalCents());
+            
+            if (cart.hasAppliedPromotions()) {
+                sb.append("\nApplied Promotions:");
+                cart.forEachAppliedPromotion(promotionWriter);
+                Money.appendTo(sb.append("\nTotal Discount: $"), cart.getTotalDiscountCents());
+            }
+        } finally {
+            target = null;
+        }
+        
+        return Money.appendTo(sb.append("\nFinal Price: $"), cart.getFinalPriceCents());
+    }
+    
+    /**
+     * Writes the receipt as UTF-8 at the buffer's position, e.g. straight into a
+     * direct buffer headed for a socket or mail transport.
+     * @throws BufferOverflowException if the receipt does not fit; the position is then unchanged
+     */
+    public ByteBuffer renderTo(ShoppingCart cart, ByteBuffer out) {
+        render(cart);
+        int start = out.position();
+        try {
+            encodeUtf8(text, out);
+        } catch (BufferOverflowException e) {
+            out.position(start);
+            throw e;
+        }
+        return out;
+    }
+    
+    @Override
+    public void visit(String productId, String name, long priceCents, int quantity) {
+        target.append("  ").append(name)
+              .append(" (").append(quantity).append(")")
+              .append(" - $");
+        Money.appendTo(target, Money.times(priceCents, quantity)).append('\n');
+    }
+    
+    private void appendPromotion(Promotion promotion) {
+        target.append("\n  ").append(promotion.getCode())
+              .append(" - ").append(promotion.getDescription());
+    }
+    
+    private static void encodeUtf8(CharSequence chars, ByteBuffer out) {
+        int length = chars.length();
+        for (int i = 0; i < length; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+                out.put((byte) (0xF0 | (codePoint >> 18)));
+                out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                out.put((byte) '?');
+            } else {
+                out.put((byte) (0xE0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.retailer.cart.models;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Promotion that discounts individual cart lines instead of the cart subtotal.
+ * <p>
+ * It targets products by ID and/or by category, and prices each eligible line with a
+ * {@link Rule}: a percentage off, buy-X-get-Y-free, or quantity tiers. Its cart-level
+ * discount is zero, so subtotal-based code such as the compiled plan ignores it; the
+ * cart prices it line by line through a {@link PromotionEligibilityIndex}, and weighs
+ * it the same way when choosing the best combination.
+ */
+public class ScopedPromotion extends Promotion {
+    
+    public enum Rule {
+        PERCENTAGE,
+        BUY_X_GET_Y,
+        TIERED
+    }
+    
+    private final Rule rule;
+    private final Set<String> productIds;
+    private final Set<String> categories;
+    private final long lineBasisPoints;
+    private final int buyQuantity;
+    private final int freeQuantity;
+    private final int[] tierQuantities;
+    private final long[] tierBasisPoints;
+    
+    private ScopedPromotion(String code, String description, LocalDate startDate, LocalDate endDate,
+                            boolean isCombinableWithOthers, Collection<String> productIds,
+                            Collection<String> categories, Rule rule, long lineBasisPoints,
+                            int buyQuantity, int freeQuantity, int[] tierQuantities, long[] tierBasisPoints) {
+        super(code, description, 0.0, startDate, endDate, isCombinableWithOthers);
+        if ((productIds == null || productIds.isEmpty()) && (categories == null || categories.isEmpty())) {
+            throw new IllegalArgumentException("Scoped promotion " + code + " targets no products or categories");
+        }
+        this.rule = rule;
+        this.productIds = productIds == null ? Collections.emptySet() : Set.copyOf(productIds);
+        Set<String> normalized = new HashSet<>();
+        if (categories != null) {
+            for (String category : categories) {
+                normalized.add(normalizeCategory(category));
+            }
+        }
+        this.categories = Collections.unmodifiableSet(normalized);
+        this.lineBasisPoints = lineBasisPoints;
+        this.buyQuantity = buyQuantity;
+        this.freeQuantity = freeQuantity;
+        this.tierQuantities = tierQuantities;
+        this.tierBasisPoints = tierBasisPoints;
+    }
+    
+    /**
+     * e.g. 20% off everything in Footwear
+     */
+    public static ScopedPromotion percentageOff(String code, String description, double discountPercentage,
+                                                LocalDate startDate, LocalDate endDate, boolean isCombinableWithOthers,
+                                                Collection<String> productIds, Collection<String> categories) {
+        return new ScopedPromotion(code, description, startDate, endDate, isCombinableWithOthers,
+                productIds, categories, Rule.PERCENTAGE, Money.basisPoints(discountPercentage), 0, 0, null, null);
+    }
+    
+    /**
+     * e.g. buy 2 get 1 free: every third unit of an eligible line costs nothing
+     */
+    public static ScopedPromotion buyXGetY(String code, String description, int buyQuantity, int freeQuantity,
+                                           LocalDate startDate, LocalDate endDate, boolean isCombinableWithOthers,
+                                           Collection<String> productIds, Collection<String> categories) {
+        if (buyQuantity <= 0 || freeQuantity <= 0) {
+            throw new IllegalArgumentException("Buy and free quantities must be positive for " + code);
+        }
+        return new ScopedPromotion(code, description, startDate, endDate, isCombinableWithOthers,
+                productIds, categories, Rule.BUY_X_GET_Y, 0, buyQuantity, freeQuantity, null, null);
+    }
+    
+    /**
+     * e.g. 10% off a line of 3+ units, 20% off 5+
+     * @param minQuantities ascending minimum line quantities, one per tier
+     * @param percentages the discount percentage for each tier
+     */
+    public static ScopedPromotion tiered(String code, String description, int[] minQuantities, double[] percentages,
+                                         LocalDate startDate, LocalDate endDate, boolean isCombinableWithOthers,
+                                         Collection<String> productIds, Collection<String> categories) {
+        if (minQuantities.length == 0 || minQuantities.length != percentages.length) {
+            throw new IllegalArgumentException("Tier quantities and percentages must pair up for " + code);
+        }
+        long[] basisPoints = new long[percentages.length];
+        for (int i = 0; i < percentages.length; i++) {
+            if (i > 0 && minQuantities[i] <= minQuantities[i - 1]) {
+                throw new IllegalArgumentException("Tier quantities must ascend for " + code);
+            }
+            basisPoints[i] = Money.basisPoints(percentages[i]);
+        }
+        return new ScopedPromotion(code, description, startDate, endDate, isCombinableWithOthers,
+                productIds, categories, Rule.TIERED, 0, 0, 0, minQuantities.clone(), basisPoints);
+    }
+    
+    public Rule getRule() {
+        return rule;
+    }
+    
+    public Set<String> getProductIds() {
+        return productIds;
+    }
+    
+    /**
+     * @return the targeted categories, lower-cased
+     */
+    public Set<String> getCategories() {
+        return categories;
+    }
+    
+    public boolean appliesTo(String productId, String category) {
+        return productIds.contains(productId)
+                || (category != null && categories.contains(normalizeCategory(category)));
+    }
+    
+    /**
+     * Discount on one eligible line.
+     */
+    public long lineDiscountCents(long priceCents, int quantity) {
+        switch (rule) {
+            case PERCENTAGE:
+                return Money.percentage(Money.times(priceCents, quantity), lineBasisPoints);
+            case BUY_X_GET_Y:
+                int freeUnits = quantity / (buyQuantity + freeQuantity) * freeQuantity;
+                return Money.times(priceCents, freeUnits);
+            case TIERED:
+                for (int i = tierQuantities.length - 1; i >= 0; i--) {
+                    if (quantity >= tierQuantities[i]) {
+                        return Money.percentage(Money.times(priceCents, quantity), tierBasisPoints[i]);
+                    }
+                }
+                return 0;
+            default:
+                throw new IllegalStateException("Unknown rule " + rule);
+        }
+    }
+    
+    static String normalizeCategory(String category) {
+        return category.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    @Override
+    public String toString() {
+        return "ScopedPromotion{" +
+                "code='" + getCode() + '\'' +
+                ", rule=" + rule +
+                ", productIds=" + productIds +
+                ", categories=" + categories +
+                (tierQuantities != null ? ", tiers=" + Arrays.toString(tierQuantities) : "") +
+                '}';
+    }
+}
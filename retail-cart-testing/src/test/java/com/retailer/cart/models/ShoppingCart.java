@@ -2,102 +2,460 @@ package com.retailer.cart.models;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public class ShoppingCart {
-    private List<Product> products;
+    // Cart lines keyed by product ID; insertion order is kept for rendering
+    private CartLineStore products;
     private Map<String, Promotion> appliedPromotions;
-    private List<String> errorMessages;
+    private CartErrorBuffer errors;
+    
+    // Running subtotal, kept in step with every line change
+    private long subtotalCents;
+    
+    // Discount memo, computed on first read and dropped by every line or promotion change
+    private DiscountStackingStrategy stackingStrategy = DiscountStackingStrategy.ADDITIVE;
+    private DiscountBreakdown discountBreakdown;
+    private long totalDiscountCents;
+    private boolean discountValid = true;
+    
+    // Which scoped promotions can discount each product; narrowed to the applied ones on demand
+    private PromotionEligibilityIndex eligibilityIndex;
+    private PromotionEligibilityIndex appliedEligibility;
+    private int[] appliedEligibilitySlots;
+    
+    // Optional compiled catalog; applied promotions found in it are also tracked by plan ID
+    private PromotionPlan promotionPlan;
+    private int[] appliedIds = new int[4];
+    private int appliedIdCount;
+    private long[] appliedIdSet;
+    
+    // Optional append-only record of every mutation, for persistence and replay
+    private CartEventLog eventLog;
     
     public ShoppingCart() {
-        this.products = new ArrayList<>();
-        this.appliedPromotions = new HashMap<>();
-        this.errorMessages = new ArrayList<>();
+        this(new MapCartLineStore());
     }
     
-    public void addProduct(Product product) {
-        // Check if product already exists in cart
-        for (Product p : products) {
-            if (p.getProductId().equals(product.getProductId())) {
-                p.setQuantity(p.getQuantity() + product.getQuantity());
-                return;
+    /**
+     * Creates a cart over the given line store, e.g. a {@link ColumnarCartLineStore}
+     * for carts with very many lines.
+     */
+    public ShoppingCart(CartLineStore lineStore) {
+        this.products = lineStore;
+        this.appliedPromotions = new LinkedHashMap<>();
+        this.errors = new CartErrorBuffer();
+    }
+    
+    /**
+     * Creates a cart that validates and prices promotions through a compiled plan.
+     * Promotions that are not the plan's own objects, even under a code the plan knows,
+     * still go through the per-object checks.
+     */
+    public ShoppingCart(PromotionPlan promotionPlan) {
+        this();
+        setPromotionPlan(promotionPlan);
+    }
+    
+    public PromotionPlan getPromotionPlan() {
+        return promotionPlan;
+    }
+    
+    /**
+     * Switches the cart to a newly compiled plan, e.g. after the catalog version changed.
+     */
+    public void setPromotionPlan(PromotionPlan promotionPlan) {
+        this.promotionPlan = promotionPlan;
+        appliedIdCount = 0;
+        appliedIdSet = null;
+        if (promotionPlan != null) {
+            appliedIdSet = promotionPlan.getCompatibility().newSet();
+            for (Promotion promotion : appliedPromotions.values()) {
+                int id = plannedIdOf(promotion);
+                if (id >= 0) {
+                    addAppliedId(id);
+                }
             }
         }
-        products.add(product);
+        invalidateDiscount();
+    }
+    
+    public CartEventLog getEventLog() {
+        return eventLog;
+    }
+    
+    /**
+     * Records every subsequent mutation into the given log; pass null to stop recording.
+     * Write a {@link CartEventLog#checkpoint} first if the cart is not empty.
+     */
+    public void setEventLog(CartEventLog eventLog) {
+        this.eventLog = eventLog;
+    }
+    
+    public void addProduct(Product product) {
+        if (eventLog != null) {
+            eventLog.productAdded(product);
+        }
+        String productId = product.getProductId();
+        boolean newLine = eligibilityIndex == null && appliedEligibility != null && !products.contains(productId);
+        // The store merges quantities if the product is already in the cart
+        subtotalCents += products.add(product);
+        if (newLine) {
+            // Scoped promotions match the lines' own categories; only the new line needs matching
+            appliedEligibility.addProduct(productId, products.get(productId).getCategory());
+        }
+        invalidateDiscount();
     }
     
     public void removeProduct(String productId) {
-        products.removeIf(p -> p.getProductId().equals(productId));
+        long removed = products.remove(productId);
+        if (removed >= 0) {
+            if (eventLog != null) {
+                eventLog.productRemoved(productId);
+            }
+            subtotalCents -= removed;
+            invalidateDiscount();
+        }
     }
     
     public void updateProductQuantity(String productId, int quantity) {
-        for (Product p : products) {
-            if (p.getProductId().equals(productId)) {
-                if (quantity <= 0) {
-                    removeProduct(productId);
-                } else {
-                    p.setQuantity(quantity);
-                }
-                return;
+        if (!products.contains(productId)) {
+            return;
+        }
+        if (quantity <= 0) {
+            removeProduct(productId);
+        } else {
+            if (eventLog != null) {
+                eventLog.quantityUpdated(productId, quantity);
             }
+            subtotalCents += products.setQuantity(productId, quantity);
+            invalidateDiscount();
         }
     }
     
+    public Product getProduct(String productId) {
+        return products.get(productId);
+    }
+    
+    public boolean containsProduct(String productId) {
+        return products.contains(productId);
+    }
+    
+    public int getLineCount() {
+        return products.size();
+    }
+    
+    /**
+     * Returns the cart lines in the order they were first added.
+     * The list is a copy; change quantities through the cart so the
+     * running totals stay in step.
+     */
     public List<Product> getProducts() {
-        return products;
+        return products.toList();
     }
     
+    /**
+     * Visits every line in insertion order without copying it.
+     */
+    public void forEachLine(CartLineStore.LineVisitor visitor) {
+        products.forEach(visitor);
+    }
+    
+    /**
+     * @return a read-only view of the applied promotions keyed by code; use
+     *         {@link PersistentShoppingCart#of} for a snapshot that will not change
+     */
     public Map<String, Promotion> getAppliedPromotions() {
-        return appliedPromotions;
+        return Collections.unmodifiableMap(appliedPromotions);
+    }
+    
+    /**
+     * @return whether any promotion is applied, without building a view of them
+     */
+    public boolean hasAppliedPromotions() {
+        return !appliedPromotions.isEmpty();
+    }
+    
+    /**
+     * Visits the applied promotions in application order without copying them.
+     */
+    public void forEachAppliedPromotion(Consumer<Promotion> action) {
+        for (Promotion promotion : appliedPromotions.values()) {
+            action.accept(promotion);
+        }
     }
     
+    /**
+     * @return the most recent error messages, oldest first, formatted on each call;
+     *         at most {@link CartErrorBuffer#DEFAULT_CAPACITY} are kept
+     */
     public List<String> getErrorMessages() {
-        return errorMessages;
+        return errors.getMessages();
+    }
+    
+    /**
+     * @return the structured errors behind {@link #getErrorMessages()}
+     */
+    public CartErrorBuffer getErrors() {
+        return errors;
     }
     
     public void clearErrorMessages() {
-        errorMessages.clear();
+        errors.clear();
     }
     
     public double getSubtotal() {
-        double subtotal = 0;
-        for (Product product : products) {
-            subtotal += product.getSubtotal();
-        }
-        return subtotal;
+        return Money.toMajor(subtotalCents);
     }
     
     public double getTotalDiscount() {
-        double totalDiscount = 0;
-        double subtotal = getSubtotal();
+        return Money.toMajor(getTotalDiscountCents());
+    }
+    
+    public double getFinalPrice() {
+        return Money.toMajor(getFinalPriceCents());
+    }
+    
+    public long getSubtotalCents() {
+        return subtotalCents;
+    }
+    
+    public long getTotalDiscountCents() {
+        if (!discountValid) {
+            // Additive totals over a compiled plan need no per-promotion breakdown
+            if (stackingStrategy == DiscountStackingStrategy.ADDITIVE && allAppliedPlanned()
+                    && !hasScopedPromotions()) {
+                totalDiscountCents = promotionPlan.totalDiscountCents(appliedIds, appliedIdCount, subtotalCents);
+            } else {
+                totalDiscountCents = getDiscountBreakdown().getTotalCents();
+            }
+            discountValid = true;
+        }
+        return totalDiscountCents;
+    }
+    
+    public long getFinalPriceCents() {
+        return Math.max(0, subtotalCents - getTotalDiscountCents());
+    }
+    
+    /**
+     * @return what each applied promotion contributes, cached until the lines or promotions
+     *         change. Scoped promotions discount their lines first; the stacking strategy
+     *         then combines the cart-level promotions on the amount that remains.
+     */
+    public DiscountBreakdown getDiscountBreakdown() {
+        if (discountBreakdown == null) {
+            List<Promotion> cartLevel = new ArrayList<>(appliedPromotions.size());
+            List<Promotion> scoped = new ArrayList<>();
+            for (Promotion promotion : appliedPromotions.values()) {
+                (promotion instanceof ScopedPromotion ? scoped : cartLevel).add(promotion);
+            }
+            if (scoped.isEmpty()) {
+                discountBreakdown = stackingStrategy.apply(cartLevel, subtotalCents);
+            } else {
+                long[] lineDiscounts = scopedLineDiscounts(scoped);
+                long lineTotal = 0;
+                for (long discount : lineDiscounts) {
+                    lineTotal += discount;
+                }
+                discountBreakdown = DiscountBreakdown.concat(scoped, lineDiscounts,
+                        stackingStrategy.apply(cartLevel, Math.max(0, subtotalCents - lineTotal)));
+            }
+        }
+        return discountBreakdown;
+    }
+    
+    public PromotionEligibilityIndex getEligibilityIndex() {
+        return eligibilityIndex;
+    }
+    
+    /**
+     * Sets the catalog-wide eligibility index used to price scoped promotions. Without one,
+     * scoped promotions are matched against the categories of the cart's own lines, once
+     * per line when it is added; lines from a store that keeps no categories, such as
+     * {@link ColumnarCartLineStore}, then only match by product ID.
+     */
+    public void setEligibilityIndex(PromotionEligibilityIndex eligibilityIndex) {
+        this.eligibilityIndex = eligibilityIndex;
+        invalidatePromotions();
+    }
+    
+    /**
+     * Prices the applied scoped promotions in one pass over the lines. A line's scoped
+     * discounts together never exceed the line's value; when they would, the promotions
+     * first in the index keep theirs and the later ones get what is left.
+     * @return the discount of each promotion, in the order given
+     */
+    private long[] scopedLineDiscounts(List<Promotion> scoped) {
+        if (appliedEligibility == null) {
+            PromotionEligibilityIndex index = eligibilityIndex;
+            if (index == null) {
+                index = PromotionEligibilityIndex.build(scoped, products.toList());
+            } else if (!indexesAll(index, scoped)) {
+                index = index.withPromotions(scoped);
+            }
+            int[] slots = new int[index.size()];
+            Arrays.fill(slots, -1);
+            for (int i = 0; i < scoped.size(); i++) {
+                slots[index.idOf(scoped.get(i).getCode())] = i;
+            }
+            appliedEligibility = index;
+            appliedEligibilitySlots = slots;
+        }
         
+        PromotionEligibilityIndex index = appliedEligibility;
+        int[] slots = appliedEligibilitySlots;
+        long[] discounts = new long[scoped.size()];
+        products.forEach((productId, name, priceCents, quantity) -> {
+            long remaining = Money.times(priceCents, quantity);
+            for (int id : index.eligiblePromotions(productId)) {
+                int slot = slots[id];
+                if (slot >= 0 && remaining > 0) {
+                    long discount = Math.min(remaining, index.promotionOf(id).lineDiscountCents(priceCents, quantity));
+                    discounts[slot] += discount;
+                    remaining -= discount;
+                }
+            }
+        });
+        return discounts;
+    }
+    
+    /**
+     * @return what the promotion alone would take off these lines
+     */
+    private long scopedDiscountCents(ScopedPromotion promotion, List<Product> lines) {
+        long total = 0;
+        for (Product line : lines) {
+            if (promotion.appliesTo(line.getProductId(), categoryOf(line))) {
+                total += Math.min(line.getSubtotalCents(),
+                        promotion.lineDiscountCents(line.getPriceCents(), line.getQuantity()));
+            }
+        }
+        return total;
+    }
+    
+    /**
+     * Prices other promotions against this cart without applying them, e.g. to reprice it
+     * against another catalog; nothing is validated and the cart is left unchanged.
+     * @param promotions in the order they would be applied
+     * @return what they would take off, priced as {@link #getDiscountBreakdown()} prices
+     *         the applied ones: scoped promotions off their lines, then the stacking strategy
+     */
+    public long getDiscountCentsWith(List<Promotion> promotions) {
+        return combinedDiscountCents(promotions);
+    }
+    
+    /**
+     * Walks the lines in place, as {@link #scopedLineDiscounts} does, so repricing many
+     * carts copies none of their lines.
+     */
+    private long combinedDiscountCents(List<Promotion> promotions) {
+        List<Promotion> cartLevel = new ArrayList<>(promotions.size());
+        List<ScopedPromotion> scoped = new ArrayList<>();
+        for (Promotion promotion : promotions) {
+            if (promotion instanceof ScopedPromotion) {
+                scoped.add((ScopedPromotion) promotion);
+            } else {
+                cartLevel.add(promotion);
+            }
+        }
+        long[] lineTotal = new long[1];
+        if (!scoped.isEmpty()) {
+            products.forEach((productId, name, priceCents, quantity) -> {
+                long remaining = Money.times(priceCents, quantity);
+                String category = categoryOf(productId);
+                for (ScopedPromotion promotion : scoped) {
+                    if (remaining > 0 && promotion.appliesTo(productId, category)) {
+                        long discount = Math.min(remaining, promotion.lineDiscountCents(priceCents, quantity));
+                        lineTotal[0] += discount;
+                        remaining -= discount;
+                    }
+                }
+            });
+        }
+        return lineTotal[0] + stackingStrategy.apply(cartLevel, Math.max(0, subtotalCents - lineTotal[0])).getTotalCents();
+    }
+    
+    /**
+     * @return the category scopedLineDiscounts matches the line on: the catalog's if indexed, else the line's
+     */
+    private String categoryOf(Product line) {
+        return eligibilityIndex != null ? eligibilityIndex.categoryOf(line.getProductId()) : line.getCategory();
+    }
+    
+    private String categoryOf(String productId) {
+        return eligibilityIndex != null ? eligibilityIndex.categoryOf(productId) : products.get(productId).getCategory();
+    }
+    
+    private static boolean indexesAll(PromotionEligibilityIndex index, List<Promotion> promotions) {
+        for (Promotion promotion : promotions) {
+            int id = index.idOf(promotion.getCode());
+            if (id < 0 || index.promotionOf(id) != promotion) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private boolean hasScopedPromotions() {
         for (Promotion promotion : appliedPromotions.values()) {
-            totalDiscount += promotion.calculateDiscount(subtotal);
+            if (promotion instanceof ScopedPromotion) {
+                return true;
+            }
         }
-        
-        return totalDiscount;
+        return false;
     }
     
-    public double getFinalPrice() {
-        return Math.max(0, getSubtotal() - getTotalDiscount());
+    public DiscountStackingStrategy getStackingStrategy() {
+        return stackingStrategy;
+    }
+    
+    /**
+     * Selects how this cart's promotions combine; defaults to
+     * {@link DiscountStackingStrategy#ADDITIVE}.
+     */
+    public void setStackingStrategy(DiscountStackingStrategy stackingStrategy) {
+        this.stackingStrategy = stackingStrategy;
+        invalidateDiscount();
+    }
+    
+    private void invalidateDiscount() {
+        discountBreakdown = null;
+        discountValid = false;
+    }
+    
+    private void invalidatePromotions() {
+        appliedEligibility = null;
+        appliedEligibilitySlots = null;
+        invalidateDiscount();
     }
     
     public boolean applyPromotion(Promotion promotion) {
-        LocalDate currentDate = LocalDate.now();
-        
         // Check if promotion is valid and active
         if (promotion == null) {
-            errorMessages.add("Invalid promotion code");
+            errors.record(CartError.INVALID_PROMOTION_CODE, null);
             return false;
         }
         
+        if (allAppliedPlanned()) {
+            int id = plannedIdOf(promotion);
+            if (id >= 0) {
+                return applyPlannedPromotion(promotion, id);
+            }
+        }
+        
+        LocalDate currentDate = LocalDate.now();
         if (!promotion.isActive(currentDate)) {
             if (currentDate.isBefore(promotion.getStartDate())) {
-                errorMessages.add("This promotion is not currently active");
+                errors.record(CartError.PROMOTION_NOT_ACTIVE, null);
             } else {
-                errorMessages.add("This promotion code has expired");
+                errors.record(CartError.PROMOTION_EXPIRED, null);
             }
             return false;
         }
@@ -105,49 +463,166 @@ public class ShoppingCart {
         // Check compatibility with existing promotions
         for (Promotion existingPromotion : appliedPromotions.values()) {
             if (!existingPromotion.isCompatibleWith(promotion)) {
-                errorMessages.add("This promotion cannot be combined with " + existingPromotion.getCode());
+                errors.record(CartError.PROMOTION_NOT_COMBINABLE, existingPromotion.getCode());
                 return false;
             }
         }
         
         // Apply promotion
-        appliedPromotions.put(promotion.getCode(), promotion);
+        putPromotion(promotion);
         return true;
     }
     
-    public boolean removePromotion(String promotionCode) {
-        return appliedPromotions.remove(promotionCode) != null;
+    /**
+     * Re-applies a promotion that a {@link CartEventLog} recorded as applied, without
+     * checking its dates or compatibility again, so a replayed cart is the cart that was
+     * recorded even after the promotion has expired.
+     * @return false if the code could not be resolved
+     */
+    boolean restorePromotion(Promotion promotion) {
+        if (promotion == null) {
+            errors.record(CartError.INVALID_PROMOTION_CODE, null);
+            return false;
+        }
+        putPromotion(promotion);
+        return true;
     }
     
-    public void clearPromotions() {
-        appliedPromotions.clear();
+    /**
+     * Adds an accepted promotion and logs it; only accepted promotions reach the log.
+     * A replaced plan object under the same code no longer counts as planned.
+     */
+    private void putPromotion(Promotion promotion) {
+        Promotion replaced = appliedPromotions.put(promotion.getCode(), promotion);
+        if (promotionPlan != null) {
+            int id = plannedIdOf(promotion);
+            boolean replacedPlanned = replaced != null && plannedIdOf(replaced) >= 0;
+            if (id >= 0 && !replacedPlanned) {
+                addAppliedId(id);
+            } else if (id < 0 && replacedPlanned) {
+                removeAppliedId(plannedIdOf(replaced));
+            }
+        }
+        if (eventLog != null) {
+            eventLog.promotionApplied(promotion.getCode());
+        }
+        invalidatePromotions();
     }
     
-    @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("Shopping Cart:\n");
+    /**
+     * Replaces the applied promotions with the compatible combination of candidates
+     * that gives the largest discount on this cart, instead of accepting codes greedily
+     * in the order they were entered. Each combination is priced as the cart would price
+     * it: scoped promotions off their lines first, then the cart-level ones through the
+     * stacking strategy, so under {@link DiscountStackingStrategy#SEQUENTIAL} two
+     * compounding 50% codes lose to a single 80% one.
+     * @return the promotions now applied
+     */
+    public List<Promotion> applyBestPromotions(Collection<Promotion> candidates) {
+        LocalDate pricingDate = promotionPlan != null ? promotionPlan.getPricingDate() : LocalDate.now();
+        List<Product> lines = products.toList();
+        boolean interacting = stackingStrategy != DiscountStackingStrategy.ADDITIVE;
+        for (Promotion promotion : candidates) {
+            interacting |= promotion instanceof ScopedPromotion;
+        }
+        PromotionCombinationSolver.Result best = PromotionCombinationSolver.solve(candidates,
+                promotion -> promotion instanceof ScopedPromotion
+                        ? scopedDiscountCents((ScopedPromotion) promotion, lines)
+                        : promotion.calculateDiscountCents(subtotalCents),
+                // Additive cart-level discounts are just the sum of the weights
+                interacting ? this::combinedDiscountCents : null,
+                subtotalCents, pricingDate);
         
-        for (Product product : products) {
-            sb.append("  ").append(product.getName())
-              .append(" (").append(product.getQuantity()).append(")")
-              .append(" - $").append(String.format("%.2f", product.getSubtotal()))
-              .append("\n");
+        clearPromotions();
+        for (Promotion promotion : best.getPromotions()) {
+            applyPromotion(promotion);
+        }
+        return best.getPromotions();
+    }
+    
+    private boolean applyPlannedPromotion(Promotion promotion, int id) {
+        int status = promotionPlan.statusOf(id);
+        if (status == PromotionPlan.NOT_YET_ACTIVE) {
+            errors.record(CartError.PROMOTION_NOT_ACTIVE, null);
+            return false;
+        }
+        if (status == PromotionPlan.EXPIRED) {
+            errors.record(CartError.PROMOTION_EXPIRED, null);
+            return false;
         }
         
-        sb.append("\nSubtotal: $").append(String.format("%.2f", getSubtotal()));
+        int conflict = promotionPlan.findConflict(id, appliedIdSet);
+        if (conflict >= 0) {
+            errors.record(CartError.PROMOTION_NOT_COMBINABLE, promotionPlan.codeOf(conflict));
+            return false;
+        }
         
-        if (!appliedPromotions.isEmpty()) {
-            sb.append("\nApplied Promotions:");
-            for (Promotion promotion : appliedPromotions.values()) {
-                sb.append("\n  ").append(promotion.getCode())
-                  .append(" - ").append(promotion.getDescription());
+        putPromotion(promotion);
+        return true;
+    }
+    
+    /**
+     * @return the promotion's plan ID, or -1 if the plan does not hold this very object;
+     *         a caller-built promotion that reuses a catalog code keeps its own dates and rules
+     */
+    private int plannedIdOf(Promotion promotion) {
+        int id = promotionPlan.idOf(promotion.getCode());
+        return id >= 0 && promotionPlan.promotionOf(id) == promotion ? id : -1;
+    }
+    
+    private boolean allAppliedPlanned() {
+        return promotionPlan != null && appliedIdCount == appliedPromotions.size();
+    }
+    
+    private void addAppliedId(int id) {
+        if (appliedIdCount == appliedIds.length) {
+            appliedIds = Arrays.copyOf(appliedIds, appliedIdCount * 2);
+        }
+        appliedIds[appliedIdCount++] = id;
+        PromotionCompatibilityMatrix.add(appliedIdSet, id);
+    }
+    
+    private void removeAppliedId(int id) {
+        for (int i = 0; i < appliedIdCount; i++) {
+            if (appliedIds[i] == id) {
+                appliedIds[i] = appliedIds[--appliedIdCount];
+                PromotionCompatibilityMatrix.remove(appliedIdSet, id);
+                return;
             }
-            sb.append("\nTotal Discount: $").append(String.format("%.2f", getTotalDiscount()));
         }
-        
-        sb.append("\nFinal Price: $").append(String.format("%.2f", getFinalPrice()));
-        
-        return sb.toString();
+    }
+    
+    public boolean removePromotion(String promotionCode) {
+        if (appliedPromotions.remove(promotionCode) == null) {
+            return false;
+        }
+        if (eventLog != null) {
+            eventLog.promotionRemoved(promotionCode);
+        }
+        if (promotionPlan != null) {
+            int id = promotionPlan.idOf(promotionCode);
+            if (id >= 0) {
+                removeAppliedId(id);
+            }
+        }
+        invalidatePromotions();
+        return true;
+    }
+    
+    public void clearPromotions() {
+        if (eventLog != null) {
+            eventLog.promotionsCleared();
+        }
+        appliedPromotions.clear();
+        appliedIdCount = 0;
+        if (appliedIdSet != null) {
+            Arrays.fill(appliedIdSet, 0L);
+        }
+        invalidatePromotions();
+    }
+    
+    @Override
+    public String toString() {
+        return new ReceiptRenderer().render(this).toString();
     }
 }
@@ -1,6 +1,7 @@
 package com.retailer.cart.pages;
 
 import com.retailer.cart.models.Product;
+import com.retailer.cart.models.ProductCatalog;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
@@ -64,7 +65,7 @@ public class ShoppingCartPage extends BasePage {
             int quantity = Integer.parseInt(productElement.findElement(By.cssSelector(".product-quantity"))
                     .getAttribute("value")); // Kept as getAttribute("value") for input field
             
-            products.add(new Product(productId, name, price, quantity));
+            products.add(ProductCatalog.getInstance().newProduct(productId, name, price, quantity));
         }
         
         return products;
@@ -1,6 +1,9 @@
 package com.retailer.cart.steps;
 
+import com.retailer.cart.utils.ApiCallMetrics;
 import com.retailer.cart.utils.PerformanceMonitor;
+import com.retailer.cart.utils.RollingWindow;
+import com.retailer.cart.utils.Timing;
 import io.cucumber.java.After;
 import io.cucumber.java.Before;
 import io.cucumber.java.en.Given;
@@ -11,6 +14,8 @@ import io.restassured.response.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.TimeUnit;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class PerformanceTestingSteps {
@@ -19,7 +24,7 @@ public class PerformanceTestingSteps {
     
     private PerformanceMonitor performanceMonitor;
     private Response lastResponse;
-    private long operationStartTime;
+    private long operationStartNanos;
     private String currentOperation;
     
     // Performance thresholds
@@ -31,15 +36,16 @@ public class PerformanceTestingSteps {
     public void setupPerformanceMonitoring() {
         String testName = "performance_test";
         performanceMonitor = new PerformanceMonitor(testName);
+        performanceMonitor.startSampleStreaming("performance_results.jtl");
         logger.info("Performance monitoring initialized for: {}", testName);
     }
     
     @After("@performance")
     public void tearDownPerformanceMonitoring() {
         if (performanceMonitor != null) {
+            performanceMonitor.stopSampleStreaming();
             performanceMonitor.printSummary();
             performanceMonitor.saveReportToFile();
-            performanceMonitor.exportToJTLFormat("performance_results.jtl");
         }
         logger.info("Performance monitoring completed");
     }
@@ -71,7 +77,7 @@ public class PerformanceTestingSteps {
     @When("I start monitoring the {string} operation")
     public void iStartMonitoringTheOperation(String operationName) {
         this.currentOperation = operationName;
-        this.operationStartTime = System.currentTimeMillis();
+        this.operationStartNanos = Timing.start();
         logger.info("Started monitoring operation: {}", operationName);
     }
     
@@ -79,58 +85,101 @@ public class PerformanceTestingSteps {
     public void iPerformRequestsTo(int requestCount, String httpMethod, String endpoint) {
         logger.info("Performing {} {} requests to {}", requestCount, httpMethod, endpoint);
         
+        ApiCallMetrics metrics = performanceMonitor.apiCall(endpoint, httpMethod);
+        
         for (int i = 0; i < requestCount; i++) {
-            long startTime = System.currentTimeMillis();
+            performRequest(metrics, httpMethod, endpoint, Timing.start());
             
-            try {
-                Response response;
-                switch (httpMethod.toUpperCase()) {
-                    case "GET":
-                        response = RestAssured.get(endpoint);
-                        break;
-                    case "POST":
-                        response = RestAssured.post(endpoint);
-                        break;
-                    case "PUT":
-                        response = RestAssured.put(endpoint);
-                        break;
-                    case "DELETE":
-                        response = RestAssured.delete(endpoint);
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Unsupported HTTP method: " + httpMethod);
-                }
-                
-                long responseTime = System.currentTimeMillis() - startTime;
-                performanceMonitor.recordApiCall(endpoint, httpMethod, response.getStatusCode(), responseTime);
-                
-                this.lastResponse = response;
-                
-                // Small delay between requests to avoid overwhelming the server
-                if (i < requestCount - 1) {
+            // Small delay between requests to avoid overwhelming the server
+            if (i < requestCount - 1) {
+                try {
                     Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    logger.warn("Requests interrupted after {} requests", i + 1);
+                    break;
                 }
-                
-            } catch (Exception e) {
-                long responseTime = System.currentTimeMillis() - startTime;
-                performanceMonitor.recordApiCall(endpoint, httpMethod, 0, responseTime);
-                logger.warn("Request failed: {}", e.getMessage());
             }
         }
         
         logger.info("Completed {} {} requests to {}", requestCount, httpMethod, endpoint);
     }
     
+    @When("I perform {int} {string} requests to {string} at {int} requests per second")
+    public void iPerformRequestsAtFixedRate(int requestCount, String httpMethod, String endpoint,
+                                            int requestsPerSecond) {
+        assertThat(requestsPerSecond).as("Request rate").isPositive();
+        logger.info("Performing {} {} requests to {} at {} requests per second",
+                requestCount, httpMethod, endpoint, requestsPerSecond);
+        
+        // Requests are due on a fixed schedule however long the responses take, and each is
+        // measured from its slot's intended start, so a stalled request also counts against
+        // the ones queued behind it
+        Timing.FixedRateSchedule schedule = Timing.fixedRate(
+                TimeUnit.SECONDS.toNanos(1) / requestsPerSecond, TimeUnit.NANOSECONDS);
+        ApiCallMetrics metrics = performanceMonitor.apiCall(endpoint, httpMethod);
+        
+        for (int i = 0; i < requestCount; i++) {
+            long startNanos;
+            try {
+                startNanos = schedule.awaitNextStart();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Request schedule interrupted after {} requests", i);
+                break;
+            }
+            performRequest(metrics, httpMethod, endpoint, startNanos);
+        }
+        
+        logger.info("Completed {} {} requests to {}", requestCount, httpMethod, endpoint);
+    }
+    
+    /**
+     * Sends one request and records its response time from {@code startNanos}.
+     */
+    private void performRequest(ApiCallMetrics metrics, String httpMethod, String endpoint, long startNanos) {
+        try {
+            Response response;
+            switch (httpMethod.toUpperCase()) {
+                case "GET":
+                    response = RestAssured.get(endpoint);
+                    break;
+                case "POST":
+                    response = RestAssured.post(endpoint);
+                    break;
+                case "PUT":
+                    response = RestAssured.put(endpoint);
+                    break;
+                case "DELETE":
+                    response = RestAssured.delete(endpoint);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported HTTP method: " + httpMethod);
+            }
+            
+            long responseTimeNanos = Timing.elapsedNanos(startNanos);
+            metrics.record(response.getStatusCode(), responseTimeNanos, response.asByteArray().length);
+            
+            this.lastResponse = response;
+            
+        } catch (Exception e) {
+            long responseTimeNanos = Timing.elapsedNanos(startNanos);
+            metrics.record(0, responseTimeNanos);
+            logger.warn("Request failed: {}", e.getMessage());
+        }
+    }
+    
     @When("I perform {int} concurrent {string} requests to {string}")
     public void iPerformConcurrentRequestsTo(int requestCount, String httpMethod, String endpoint) {
         logger.info("Performing {} concurrent {} requests to {}", requestCount, httpMethod, endpoint);
         
         Thread[] threads = new Thread[requestCount];
+        ApiCallMetrics metrics = performanceMonitor.apiCall(endpoint + "_concurrent", httpMethod);
         
         for (int i = 0; i < requestCount; i++) {
             final int requestIndex = i;
             threads[i] = new Thread(() -> {
-                long startTime = System.currentTimeMillis();
+                long startNanos = Timing.start();
                 
                 try {
                     Response response;
@@ -151,14 +200,14 @@ public class PerformanceTestingSteps {
                             throw new IllegalArgumentException("Unsupported HTTP method: " + httpMethod);
                     }
                     
-                    long responseTime = System.currentTimeMillis() - startTime;
-                    performanceMonitor.recordApiCall(endpoint + "_concurrent", httpMethod, response.getStatusCode(), responseTime);
+                    long responseTimeNanos = Timing.elapsedNanos(startNanos);
+                    metrics.record(response.getStatusCode(), responseTimeNanos, response.asByteArray().length);
                     
-                    logger.debug("Concurrent request {} completed in {}ms", requestIndex, responseTime);
+                    logger.debug("Concurrent request {} completed in {}ms", requestIndex, Timing.toMillis(responseTimeNanos));
                     
                 } catch (Exception e) {
-                    long responseTime = System.currentTimeMillis() - startTime;
-                    performanceMonitor.recordApiCall(endpoint + "_concurrent", httpMethod, 0, responseTime);
+                    long responseTimeNanos = Timing.elapsedNanos(startNanos);
+                    metrics.record(0, responseTimeNanos);
                     logger.warn("Concurrent request {} failed: {}", requestIndex, e.getMessage());
                 }
             });
@@ -184,10 +233,11 @@ public class PerformanceTestingSteps {
     
     @When("I stop monitoring the operation")
     public void iStopMonitoringTheOperation() {
-        if (currentOperation != null && operationStartTime > 0) {
-            long operationTime = System.currentTimeMillis() - operationStartTime;
-            performanceMonitor.recordRequest(currentOperation, operationTime, false);
-            logger.info("Stopped monitoring operation: {} (took {}ms)", currentOperation, operationTime);
+        if (currentOperation != null) {
+            long operationTimeNanos = Timing.elapsedNanos(operationStartNanos);
+            performanceMonitor.recordRequestNanos(currentOperation, operationTimeNanos, false);
+            logger.info("Stopped monitoring operation: {} (took {}ms)", currentOperation, Timing.toMillis(operationTimeNanos));
+            currentOperation = null;
         }
     }
     
@@ -239,6 +289,61 @@ public class PerformanceTestingSteps {
                    operationName, actualThroughput, minThroughput);
     }
     
+    @Then("the current throughput for {string} should be at least {double} requests per second")
+    public void theCurrentThroughputForShouldBeAtLeastRequestsPerSecond(String operationName, double minThroughput) {
+        double actualThroughput = performanceMonitor.getCurrentThroughput(operationName);
+        assertThat(actualThroughput)
+                .as("Current throughput for '%s' should be at least %s req/s but was %s req/s", 
+                    operationName, minThroughput, actualThroughput)
+                .isGreaterThanOrEqualTo(minThroughput);
+        
+        logger.info("Current throughput check passed for {}: {} req/s >= {} req/s", 
+                   operationName, actualThroughput, minThroughput);
+    }
+    
+    @Then("the throughput for {string} over the last {int} seconds should be at least {double} requests per second")
+    public void theWindowedThroughputForShouldBeAtLeastRequestsPerSecond(String operationName, int windowSeconds, 
+                                                                         double minThroughput) {
+        double actualThroughput = performanceMonitor.getWindowStats(operationName, windowSeconds).getRequestsPerSecond();
+        assertThat(actualThroughput)
+                .as("Throughput for '%s' over the last %ss should be at least %s req/s but was %s req/s", 
+                    operationName, windowSeconds, minThroughput, actualThroughput)
+                .isGreaterThanOrEqualTo(minThroughput);
+        
+        logger.info("Windowed throughput check passed for {} ({}s): {} req/s >= {} req/s", 
+                   operationName, windowSeconds, actualThroughput, minThroughput);
+    }
+    
+    @Then("the {int}th percentile response time for {string} over the last {int} seconds should be less than {double} milliseconds")
+    public void theWindowedPercentileResponseTimeForShouldBeLessThanMilliseconds(int percentile, String operationName, 
+                                                                                 int windowSeconds, double maxTime) {
+        RollingWindow.Stats window = performanceMonitor.getWindowStats(operationName, windowSeconds);
+        assertThat(window.getRequestCount())
+                .as("No requests recorded for '%s' in the last %ss", operationName, windowSeconds)
+                .isPositive();
+        
+        double actualTime = Timing.toMillis(window.getValueAtPercentile(percentile));
+        assertThat(actualTime)
+                .as("%sth percentile response time for '%s' over the last %ss should be less than %sms but was %sms", 
+                    percentile, operationName, windowSeconds, maxTime, actualTime)
+                .isLessThan(maxTime);
+        
+        logger.info("Windowed {}th percentile check passed for {} ({}s): {}ms < {}ms", 
+                   percentile, operationName, windowSeconds, actualTime, maxTime);
+    }
+    
+    @Then("the error rate for {string} over the last {int} seconds should be less than {double} percent")
+    public void theWindowedErrorRateForShouldBeLessThanPercent(String operationName, int windowSeconds, double maxErrorRate) {
+        double actualErrorRate = performanceMonitor.getWindowStats(operationName, windowSeconds).getErrorRate();
+        assertThat(actualErrorRate)
+                .as("Error rate for '%s' over the last %ss should be less than %s%% but was %s%%", 
+                    operationName, windowSeconds, maxErrorRate, actualErrorRate)
+                .isLessThan(maxErrorRate);
+        
+        logger.info("Windowed error rate check passed for {} ({}s): {}% < {}%", 
+                   operationName, windowSeconds, actualErrorRate, maxErrorRate);
+    }
+    
     @Then("all performance thresholds should be met")
     public void allPerformanceThresholdsShouldBeMet() {
         boolean thresholdsMet = performanceMonitor.checkThresholds(maxAverageResponseTime, maxErrorRate);
@@ -5,6 +5,7 @@ import com.retailer.cart.models.Promotion;
 import com.retailer.cart.models.ShoppingCart;
 import com.retailer.cart.pages.ShoppingCartPage;
 import com.retailer.cart.utils.DriverManager;
+import com.retailer.cart.utils.PromotionEngine;
 import com.retailer.cart.utils.PromotionService;
 import io.cucumber.datatable.DataTable;
 import io.cucumber.java.After;
@@ -33,8 +34,8 @@ public class ShoppingCartSteps {
     public void setup() {
         driver = DriverManager.getDriver();
         cartPage = new ShoppingCartPage(driver);
-        cart = new ShoppingCart();
         promotionService = new PromotionService();
+        cart = new ShoppingCart(new PromotionEngine(promotionService).plan());
     }
     
     @After
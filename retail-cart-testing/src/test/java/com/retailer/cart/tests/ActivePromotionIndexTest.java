@@ -0,0 +1,188 @@
+package com.retailer.cart.tests;
+
+import com.retailer.cart.models.ActivePromotionIndex;
+import com.retailer.cart.models.Promotion;
+import com.retailer.cart.models.PromotionPlan;
+import com.retailer.cart.utils.PromotionEngine;
+import com.retailer.cart.utils.PromotionRegistry;
+import com.retailer.cart.utils.PromotionService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("pricing")
+@DisplayName("Active Promotion Index Tests")
+public class ActivePromotionIndexTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ActivePromotionIndexTest.class);
+    private static final LocalDate BASE = LocalDate.of(2025, 6, 1);
+    /** Every window in the catalog starts and ends within this many days of BASE, or at MIN or MAX */
+    private static final int SPAN = 80;
+    
+    @Test
+    @DisplayName("Active sets and next changes match a day-by-day scan")
+    public void testMatchesBruteForce() {
+        List<Promotion> catalog = catalog(new Random(29));
+        ActivePromotionIndex index = ActivePromotionIndex.build(catalog);
+        
+        for (LocalDate date = BASE.minusDays(SPAN + 10); !date.isAfter(BASE.plusDays(SPAN + 10)); date = date.plusDays(1)) {
+            assertThat(index.activeOn(date)).as("active on %s", date).isEqualTo(activeOn(catalog, date));
+            assertThat(index.nextChangeAfter(date)).as("next change after %s", date)
+                    .isEqualTo(nextChangeAfter(catalog, date));
+        }
+        
+        // Nothing changes between MIN and the first dated window, or after the last one
+        assertThat(index.activeOn(LocalDate.MIN)).isEqualTo(activeOn(catalog, BASE.minusDays(SPAN + 10)));
+        assertThat(index.nextChangeAfter(LocalDate.MIN)).isEqualTo(nextChangeAfter(catalog, BASE.minusDays(SPAN + 10)));
+        assertThat(index.activeOn(LocalDate.MAX)).isEqualTo(activeOn(catalog, BASE.plusDays(SPAN + 10)));
+        assertThat(index.nextChangeAfter(LocalDate.MAX)).isNull();
+        logger.info("{} promotions indexed into {} segments", catalog.size(), index.segmentCount());
+    }
+    
+    @Test
+    @DisplayName("Segments cover the range, each with one active set, and neighbours differ")
+    public void testSegmentsBetween() {
+        List<Promotion> catalog = catalog(new Random(31));
+        ActivePromotionIndex index = ActivePromotionIndex.build(catalog);
+        Random random = new Random(37);
+        
+        for (int i = 0; i < 200; i++) {
+            LocalDate from = BASE.plusDays(random.nextInt(2 * SPAN + 20) - SPAN - 10);
+            LocalDate to = from.plusDays(random.nextInt(SPAN));
+            List<ActivePromotionIndex.Segment> segments = index.segmentsBetween(from, to);
+            assertCovers(segments, from, to);
+            for (ActivePromotionIndex.Segment segment : segments) {
+                for (LocalDate date = segment.getStartDate(); !date.isAfter(segment.getEndDate()); date = date.plusDays(1)) {
+                    assertThat(segment.getActivePromotions()).as("segment on %s", date)
+                            .isEqualTo(activeOn(catalog, date));
+                }
+            }
+        }
+        
+        List<ActivePromotionIndex.Segment> all = index.segmentsBetween(LocalDate.MIN, LocalDate.MAX);
+        assertCovers(all, LocalDate.MIN, LocalDate.MAX);
+        for (ActivePromotionIndex.Segment segment : all) {
+            assertThat(segment.getActivePromotions()).isEqualTo(activeOn(catalog, segment.getStartDate()));
+            assertThat(segment.getActivePromotions()).isEqualTo(activeOn(catalog, segment.getEndDate()));
+        }
+    }
+    
+    @Test
+    @DisplayName("A promotion that ends before it starts adds no change dates")
+    public void testInvertedWindowIsIgnored() {
+        Promotion inverted = promotion("INVERTED", BASE.plusDays(10), BASE);
+        Promotion spring = promotion("SPRING", BASE.minusDays(5), BASE.plusDays(5));
+        ActivePromotionIndex index = ActivePromotionIndex.build(List.of(inverted, spring));
+        
+        assertThat(index.nextChangeAfter(BASE.minusDays(10))).isEqualTo(BASE.minusDays(5));
+        assertThat(index.nextChangeAfter(BASE.minusDays(5))).isEqualTo(BASE.plusDays(6));
+        assertThat(index.nextChangeAfter(BASE.plusDays(6))).isNull();
+        assertThat(index.segmentCount()).isEqualTo(2);
+        assertThat(index.activeOn(BASE.plusDays(3))).containsExactly(spring);
+        assertThat(ActivePromotionIndex.build(List.of(inverted)).segmentsBetween(BASE, BASE.plusDays(20)))
+                .singleElement().satisfies(segment -> assertThat(segment.getActivePromotions()).isEmpty());
+    }
+    
+    @Test
+    @DisplayName("The service and engine answer from the published catalog's index")
+    public void testServiceAndEngineUseIndex() {
+        List<Promotion> catalog = catalog(new Random(41));
+        PromotionRegistry registry = new PromotionRegistry();
+        registry.publish(catalog, "active-index-test");
+        PromotionService service = new PromotionService(registry);
+        LocalDate from = BASE.minusDays(SPAN / 2);
+        LocalDate to = BASE.plusDays(SPAN / 2);
+        
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            assertThat(service.getActivePromotions(date)).isEqualTo(activeOn(catalog, date));
+            assertThat(service.getNextPromotionChange(date)).isEqualTo(nextChangeAfter(catalog, date));
+        }
+        
+        List<PromotionPlan> plans = new PromotionEngine(service).plansBetween(from, to);
+        assertThat(plans.get(0).getPricingDate()).isEqualTo(from);
+        for (int i = 0; i < plans.size(); i++) {
+            PromotionPlan plan = plans.get(i);
+            LocalDate end = i + 1 < plans.size() ? plans.get(i + 1).getPricingDate().minusDays(1) : to;
+            assertThat(end).isAfterOrEqualTo(plan.getPricingDate());
+            for (LocalDate date = plan.getPricingDate(); !date.isAfter(end); date = date.plusDays(1)) {
+                assertThat(applicable(plan)).as("plan of %s on %s", plan.getPricingDate(), date)
+                        .isEqualTo(activeOn(catalog, date));
+            }
+        }
+    }
+    
+    /**
+     * Random windows around BASE, some inverted, plus windows open towards MIN and MAX.
+     */
+    private static List<Promotion> catalog(Random random) {
+        List<Promotion> catalog = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            LocalDate start = BASE.plusDays(random.nextInt(SPAN) - SPAN / 2);
+            // About one window in six ends before it starts
+            LocalDate end = start.plusDays(random.nextInt(SPAN / 2) - 5);
+            catalog.add(promotion("WINDOW" + i, start, end));
+        }
+        catalog.add(promotion("SINCE_EVER", LocalDate.MIN, BASE));
+        catalog.add(promotion("FROM_NOW_ON", BASE.plusDays(1), LocalDate.MAX));
+        catalog.add(promotion("ALWAYS", LocalDate.MIN, LocalDate.MAX));
+        return catalog;
+    }
+    
+    private static Promotion promotion(String code, LocalDate start, LocalDate end) {
+        return new Promotion(code, code + " 5% Off", 5.0, start, end, true);
+    }
+    
+    private static List<Promotion> activeOn(List<Promotion> catalog, LocalDate date) {
+        List<Promotion> active = new ArrayList<>();
+        for (Promotion promotion : catalog) {
+            if (!date.isBefore(promotion.getStartDate()) && !date.isAfter(promotion.getEndDate())) {
+                active.add(promotion);
+            }
+        }
+        return active;
+    }
+    
+    /**
+     * Scans day by day; past the dated windows nothing changes again before MAX.
+     */
+    private static LocalDate nextChangeAfter(List<Promotion> catalog, LocalDate date) {
+        List<Promotion> current = activeOn(catalog, date);
+        for (LocalDate next = date.plusDays(1); !next.isAfter(BASE.plusDays(SPAN + 10)); next = next.plusDays(1)) {
+            if (!activeOn(catalog, next).equals(current)) {
+                return next;
+            }
+        }
+        return null;
+    }
+    
+    private static List<Promotion> applicable(PromotionPlan plan) {
+        List<Promotion> applicable = new ArrayList<>();
+        for (int id = 0; id < plan.size(); id++) {
+            if (plan.statusOf(id) == PromotionPlan.APPLICABLE) {
+                applicable.add(plan.promotionOf(id));
+            }
+        }
+        return applicable;
+    }
+    
+    private static void assertCovers(List<ActivePromotionIndex.Segment> segments, LocalDate from, LocalDate to) {
+        assertThat(segments).isNotEmpty();
+        assertThat(segments.get(0).getStartDate()).isEqualTo(from);
+        assertThat(segments.get(segments.size() - 1).getEndDate()).isEqualTo(to);
+        for (int i = 1; i < segments.size(); i++) {
+            ActivePromotionIndex.Segment previous = segments.get(i - 1);
+            ActivePromotionIndex.Segment segment = segments.get(i);
+            assertThat(segment.getStartDate()).isEqualTo(previous.getEndDate().plusDays(1));
+            assertThat(segment.getActivePromotions()).isNotEqualTo(previous.getActivePromotions());
+        }
+    }
+}
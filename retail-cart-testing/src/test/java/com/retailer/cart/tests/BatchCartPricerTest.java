@@ -0,0 +1,119 @@
+package com.retailer.cart.tests;
+
+import com.retailer.cart.models.DiscountStackingStrategy;
+import com.retailer.cart.models.Product;
+import com.retailer.cart.models.Promotion;
+import com.retailer.cart.models.PromotionPlan;
+import com.retailer.cart.models.ShoppingCart;
+import com.retailer.cart.utils.BatchCartPricer;
+import com.retailer.cart.utils.TestDataGenerator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("pricing")
+@DisplayName("Batch Cart Pricer Tests")
+public class BatchCartPricerTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BatchCartPricerTest.class);
+    private static final int CARTS = 5_000;
+    
+    @Test
+    @DisplayName("Batch prices match each cart's own totals")
+    public void testBatchMatchesPerCartPricing() {
+        List<Promotion> catalog = TestDataGenerator.generatePromotionCatalog(40, 0.2, 11);
+        PromotionPlan plan = PromotionPlan.compile(catalog, 1, LocalDate.now());
+        List<ShoppingCart> carts = generateCarts(plan, catalog, new Random(3));
+        
+        ForkJoinPool pool = new ForkJoinPool(4);
+        BatchCartPricer.Result result;
+        try {
+            // A small leaf size makes the pool split the work across many tasks
+            result = new BatchCartPricer(pool, 64).price(carts, plan);
+        } finally {
+            pool.shutdown();
+        }
+        
+        assertThat(result.size()).isEqualTo(CARTS);
+        for (int i = 0; i < CARTS; i++) {
+            ShoppingCart cart = carts.get(i);
+            assertThat(result.getSubtotalCents(i)).as("cart %d subtotal", i).isEqualTo(cart.getSubtotalCents());
+            assertThat(result.getDiscountCents(i)).as("cart %d discount", i).isEqualTo(cart.getTotalDiscountCents());
+            assertThat(result.getFinalPriceCents(i)).as("cart %d final", i).isEqualTo(cart.getFinalPriceCents());
+        }
+        logger.info("Priced {} carts at {} carts/s", CARTS, String.format("%.0f", result.getCartsPerSecond()));
+    }
+    
+    @Test
+    @DisplayName("Repricing drops codes that expired in the new plan")
+    public void testRepricingDropsExpiredCodes() {
+        LocalDate today = LocalDate.now();
+        Promotion summer25 = new Promotion("SUMMER25", "Summer Collection 25% Off", 25.0,
+                today.minusDays(10), today.plusDays(10), true);
+        Promotion summer10 = new Promotion("SUMMER10", "Summer Special 10% Off", 10.0,
+                today.minusDays(10), today.plusDays(2), true);
+        List<Promotion> catalog = List.of(summer25, summer10);
+        
+        ShoppingCart cart = new ShoppingCart(PromotionPlan.compile(catalog, 1, today));
+        cart.addProduct(new Product("P001", "Slim Fit Jeans", 100.00, 1));
+        cart.applyPromotion(summer25);
+        cart.applyPromotion(summer10);
+        assertThat(cart.getFinalPriceCents()).isEqualTo(6_500L);
+        
+        PromotionPlan nextWeek = PromotionPlan.compile(catalog, 2, today.plusDays(7));
+        BatchCartPricer.Result result = new BatchCartPricer().price(List.of(cart), nextWeek);
+        
+        assertThat(result.getDiscountCents(0)).isEqualTo(2_500L);
+        assertThat(result.getFinalPriceCents(0)).isEqualTo(7_500L);
+    }
+    
+    @Test
+    @DisplayName("Batch prices combine each cart's promotions with its own stacking strategy")
+    public void testBatchUsesCartStackingStrategy() {
+        List<Promotion> catalog = TestDataGenerator.generatePromotionCatalog(40, 0.2, 17);
+        PromotionPlan plan = PromotionPlan.compile(catalog, 1, LocalDate.now());
+        List<ShoppingCart> carts = generateCarts(plan, catalog, new Random(5));
+        DiscountStackingStrategy[] strategies = {DiscountStackingStrategy.ADDITIVE,
+                DiscountStackingStrategy.SEQUENTIAL, DiscountStackingStrategy.BEST_OF};
+        for (int i = 0; i < CARTS; i++) {
+            carts.get(i).setStackingStrategy(strategies[i % strategies.length]);
+        }
+        
+        BatchCartPricer.Result result = new BatchCartPricer().price(carts, plan);
+        
+        for (int i = 0; i < CARTS; i++) {
+            assertThat(result.getDiscountCents(i)).as("cart %d discount", i)
+                    .isEqualTo(carts.get(i).getTotalDiscountCents());
+        }
+    }
+    
+    private static List<ShoppingCart> generateCarts(PromotionPlan plan, List<Promotion> catalog, Random random) {
+        List<ShoppingCart> carts = new ArrayList<>(CARTS);
+        for (int i = 0; i < CARTS; i++) {
+            ShoppingCart cart = new ShoppingCart(plan);
+            int lines = 1 + random.nextInt(6);
+            for (int l = 0; l < lines; l++) {
+                int product = random.nextInt(50);
+                cart.addProduct(Product.ofCents("P" + product, "Product " + product,
+                        99 + product * 1_250L, 1 + random.nextInt(4)));
+            }
+            // Incompatible attempts are rejected by the cart, as they would be at checkout
+            int attempts = random.nextInt(5);
+            for (int a = 0; a < attempts; a++) {
+                cart.applyPromotion(catalog.get(random.nextInt(catalog.size())));
+            }
+            carts.add(cart);
+        }
+        return carts;
+    }
+}
@@ -0,0 +1,129 @@
+package com.retailer.cart.tests;
+
+import com.retailer.cart.models.CartError;
+import com.retailer.cart.models.CartErrorBuffer;
+import com.retailer.cart.models.Promotion;
+import com.retailer.cart.models.ShoppingCart;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Tag("pricing")
+@DisplayName("Cart Error Buffer Tests")
+public class CartErrorBufferTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CartErrorBufferTest.class);
+    
+    @Test
+    @DisplayName("Errors are held oldest first until the buffer fills")
+    public void testRecordsInOrder() {
+        CartErrorBuffer buffer = new CartErrorBuffer(4);
+        assertThat(buffer.isEmpty()).isTrue();
+        assertThat(buffer.latest()).isNull();
+        
+        buffer.record(CartError.INVALID_PROMOTION_CODE, null);
+        buffer.record(CartError.PROMOTION_NOT_COMBINABLE, "SUMMER10");
+        buffer.record(CartError.PROMOTION_EXPIRED, null);
+        
+        assertThat(buffer.size()).isEqualTo(3);
+        assertThat(buffer.capacity()).isEqualTo(4);
+        assertThat(buffer.errorAt(0)).isEqualTo(CartError.INVALID_PROMOTION_CODE);
+        assertThat(buffer.argumentAt(1)).isEqualTo("SUMMER10");
+        assertThat(buffer.latest()).isEqualTo(CartError.PROMOTION_EXPIRED);
+        assertThat(buffer.getMessages()).containsExactly(
+                "Invalid promotion code",
+                "This promotion cannot be combined with SUMMER10",
+                "This promotion code has expired");
+        assertThat(buffer.getRecordedCount()).isEqualTo(3);
+        assertThat(buffer.getDroppedCount()).isZero();
+    }
+    
+    @Test
+    @DisplayName("Once full, the oldest errors are overwritten and counted as dropped")
+    public void testWraparound() {
+        CartErrorBuffer buffer = new CartErrorBuffer(4);
+        for (int i = 0; i < 11; i++) {
+            buffer.record(CartError.PROMOTION_NOT_COMBINABLE, "CODE" + i);
+        }
+        
+        assertThat(buffer.size()).isEqualTo(4);
+        assertThat(buffer.getRecordedCount()).isEqualTo(11);
+        assertThat(buffer.getDroppedCount()).isEqualTo(7);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.argumentAt(i)).isEqualTo("CODE" + (7 + i));
+        }
+        assertThat(buffer.getMessages()).containsExactly(
+                "This promotion cannot be combined with CODE7",
+                "This promotion cannot be combined with CODE8",
+                "This promotion cannot be combined with CODE9",
+                "This promotion cannot be combined with CODE10");
+        
+        buffer.record(CartError.TOO_MANY_PROMOTION_ATTEMPTS, null);
+        assertThat(buffer.argumentAt(0)).isEqualTo("CODE8");
+        assertThat(buffer.latest()).isEqualTo(CartError.TOO_MANY_PROMOTION_ATTEMPTS);
+    }
+    
+    @Test
+    @DisplayName("Indexes outside the held errors are rejected")
+    public void testIndexBounds() {
+        CartErrorBuffer buffer = new CartErrorBuffer(2);
+        assertThatThrownBy(() -> buffer.errorAt(0)).isInstanceOf(IndexOutOfBoundsException.class);
+        
+        buffer.record(CartError.PROMOTION_NOT_ACTIVE, null);
+        assertThat(buffer.errorAt(0)).isEqualTo(CartError.PROMOTION_NOT_ACTIVE);
+        assertThatThrownBy(() -> buffer.errorAt(1)).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> buffer.argumentAt(-1)).isInstanceOf(IndexOutOfBoundsException.class);
+        
+        buffer.record(CartError.PROMOTION_EXPIRED, null);
+        buffer.record(CartError.INVALID_PROMOTION_CODE, null);
+        assertThatThrownBy(() -> buffer.argumentAt(2)).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> new CartErrorBuffer(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    @Test
+    @DisplayName("Clearing empties the buffer and resets the counts")
+    public void testClear() {
+        CartErrorBuffer buffer = new CartErrorBuffer(3);
+        for (int i = 0; i < 5; i++) {
+            buffer.record(CartError.PROMOTION_NOT_COMBINABLE, "CODE" + i);
+        }
+        buffer.clear();
+        
+        assertThat(buffer.isEmpty()).isTrue();
+        assertThat(buffer.getMessages()).isEmpty();
+        assertThat(buffer.getRecordedCount()).isZero();
+        assertThat(buffer.getDroppedCount()).isZero();
+        
+        buffer.record(CartError.PROMOTION_EXPIRED, null);
+        assertThat(buffer.getMessages()).containsExactly("This promotion code has expired");
+    }
+    
+    @Test
+    @DisplayName("A cart keeps only the latest errors from a storm of failed attempts")
+    public void testCartCapsErrorMessages() {
+        ShoppingCart cart = new ShoppingCart();
+        Promotion expired = new Promotion("EXPIRED", "Expired 10% Off",
+                10.0, LocalDate.now().minusDays(10), LocalDate.now().minusDays(1), true);
+        int attempts = CartErrorBuffer.DEFAULT_CAPACITY + 5;
+        for (int i = 0; i < attempts - 1; i++) {
+            cart.applyPromotion(null);
+        }
+        cart.applyPromotion(expired);
+        
+        assertThat(cart.getErrorMessages()).hasSize(CartErrorBuffer.DEFAULT_CAPACITY)
+                .endsWith("This promotion code has expired");
+        assertThat(cart.getErrors().getRecordedCount()).isEqualTo(attempts);
+        assertThat(cart.getErrors().getDroppedCount()).isEqualTo(5);
+        logger.info("Kept {} of {} cart errors", cart.getErrorMessages().size(), attempts);
+        
+        cart.clearErrorMessages();
+        assertThat(cart.getErrorMessages()).isEmpty();
+    }
+}
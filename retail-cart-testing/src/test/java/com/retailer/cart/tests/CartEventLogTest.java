@@ -0,0 +1,297 @@
+package com.retailer.cart.tests;
+
+import com.retailer.cart.models.CartEventLog;
+import com.retailer.cart.models.Product;
+import com.retailer.cart.models.Promotion;
+import com.retailer.cart.models.ScopedPromotion;
+import com.retailer.cart.models.ShoppingCart;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("pricing")
+@DisplayName("Cart Event Log Tests")
+public class CartEventLogTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CartEventLogTest.class);
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final Map<String, Promotion> CATALOG = Stream.of(
+            new Promotion("SUMMER25", "Summer Collection 25% Off", 25.0, TODAY.minusDays(1), TODAY.plusDays(1), true),
+            new Promotion("SUMMER10", "Summer Special 10% Off", 10.0, TODAY.minusDays(1), TODAY.plusDays(1), true),
+            new Promotion("FLASH50", "Flash Sale 50% Off", 50.0, TODAY.minusDays(1), TODAY.plusDays(1), false),
+            new Promotion("SPRING15", "Spring Sale 15% Off", 15.0, TODAY.minusDays(60), TODAY.minusDays(30), true))
+            .collect(Collectors.toMap(Promotion::getCode, Function.identity()));
+    
+    @Test
+    @DisplayName("A cart written out, read back and replayed matches the original")
+    public void testRoundTrip() throws IOException {
+        ShoppingCart cart = new ShoppingCart();
+        CartEventLog log = new CartEventLog(16);
+        cart.setEventLog(log);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        
+        cart.addProduct(new Product("P001", "Slim Fit Jeans", 79.99, 3));
+        cart.addProduct(new Product("P002", "Running Shoes", 129.50, 1));
+        cart.applyPromotion(CATALOG.get("SUMMER25"));
+        // Rejected attempts are not logged: one expired, one not combinable
+        assertThat(cart.applyPromotion(CATALOG.get("SPRING15"))).isFalse();
+        assertThat(cart.applyPromotion(CATALOG.get("FLASH50"))).isFalse();
+        int flushed = log.writeTo(out, 0);
+        
+        mutateAfterFirstFlush(cart);
+        int checkpoint = log.checkpoint(cart);
+        mutateAfterCheckpoint(cart);
+        // Appending the tail only, as a periodic flush would
+        flushed = log.writeTo(out, flushed);
+        assertThat(flushed).isEqualTo(log.size());
+        
+        CartEventLog loaded = CartEventLog.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        
+        assertThat(loaded.size()).isEqualTo(log.size());
+        assertThat(loaded.getEventCount()).isEqualTo(log.getEventCount());
+        assertThat(loaded.getLastCheckpoint()).isEqualTo(checkpoint);
+        ShoppingCart replayed = loaded.replay(new ShoppingCart(), CATALOG::get);
+        assertSameState(replayed, cart);
+        logger.info("{} events in {} bytes replayed to:\n{}", loaded.getEventCount(), loaded.size(), replayed);
+    }
+    
+    @Test
+    @DisplayName("Replaying from the start gives the same cart as replaying from the checkpoint")
+    public void testReplayFromStartMatchesCheckpoint() {
+        ShoppingCart cart = new ShoppingCart();
+        CartEventLog log = new CartEventLog();
+        cart.setEventLog(log);
+        cart.addProduct(new Product("P001", "Slim Fit Jeans", 79.99, 3));
+        cart.applyPromotion(CATALOG.get("SUMMER25"));
+        mutateAfterFirstFlush(cart);
+        int checkpoint = log.checkpoint(cart);
+        mutateAfterCheckpoint(cart);
+        
+        ShoppingCart fromStart = new ShoppingCart();
+        int end = log.replayInto(fromStart, 0, CATALOG::get);
+        ShoppingCart fromCheckpoint = log.replay(new ShoppingCart(), CATALOG::get);
+        
+        assertThat(end).isEqualTo(log.size());
+        assertThat(checkpoint).isGreaterThan(0);
+        assertSameState(fromStart, cart);
+        assertSameState(fromCheckpoint, cart);
+        // Rejected attempts never reached the log, so replay has nothing to reject
+        assertThat(cart.getErrorMessages()).isNotEmpty();
+        assertThat(fromStart.getErrorMessages()).isEmpty();
+    }
+    
+    @Test
+    @DisplayName("A replica kept up to date with the log's tail matches the original")
+    public void testIncrementalReplay() {
+        ShoppingCart cart = new ShoppingCart();
+        CartEventLog log = new CartEventLog();
+        cart.setEventLog(log);
+        ShoppingCart replica = new ShoppingCart();
+        
+        cart.addProduct(new Product("P001", "Slim Fit Jeans", 79.99, 3));
+        int offset = log.replayInto(replica, 0, CATALOG::get);
+        cart.applyPromotion(CATALOG.get("SUMMER25"));
+        mutateAfterFirstFlush(cart);
+        offset = log.replayInto(replica, offset, CATALOG::get);
+        assertSameState(replica, cart);
+        
+        mutateAfterCheckpoint(cart);
+        log.replayInto(replica, offset, CATALOG::get);
+        assertSameState(replica, cart);
+    }
+    
+    @Test
+    @DisplayName("Codes missing from the replay catalog are rejected by the cart")
+    public void testReplayAgainstNewCatalog() {
+        ShoppingCart cart = new ShoppingCart();
+        CartEventLog log = new CartEventLog();
+        cart.setEventLog(log);
+        cart.addProduct(new Product("P001", "Slim Fit Jeans", 100.00, 1));
+        cart.applyPromotion(CATALOG.get("SUMMER25"));
+        cart.applyPromotion(CATALOG.get("SUMMER10"));
+        
+        ShoppingCart replayed = log.replay(new ShoppingCart(),
+                code -> code.equals("SUMMER25") ? null : CATALOG.get(code));
+        
+        assertThat(replayed.getAppliedPromotions()).containsOnlyKeys("SUMMER10");
+        assertThat(replayed.getErrorMessages()).hasSize(1);
+        assertThat(replayed.getFinalPriceCents()).isEqualTo(9_000L);
+    }
+    
+    @Test
+    @DisplayName("Promotions that have expired since they were logged are restored as applied")
+    public void testReplayRestoresExpiredPromotions() {
+        ShoppingCart cart = new ShoppingCart();
+        CartEventLog log = new CartEventLog();
+        cart.setEventLog(log);
+        cart.addProduct(new Product("P001", "Slim Fit Jeans", 100.00, 1));
+        cart.applyPromotion(CATALOG.get("SUMMER25"));
+        log.checkpoint(cart);
+        cart.applyPromotion(CATALOG.get("SUMMER10"));
+        // The same codes as a later catalog would hold them, after both ended
+        Function<String, Promotion> later = code -> new Promotion(code, code, CATALOG.get(code).getDiscountPercentage(),
+                TODAY.minusDays(30), TODAY.minusDays(1), true);
+        
+        ShoppingCart restored = log.replay(new ShoppingCart(), later);
+        ShoppingCart fromStart = new ShoppingCart();
+        log.replayInto(fromStart, 0, later);
+        ShoppingCart revalidated = log.replay(new ShoppingCart(), later, CartEventLog.ReplayMode.REVALIDATE);
+        
+        assertSameState(restored, cart);
+        assertSameState(fromStart, cart);
+        assertThat(restored.getErrorMessages()).isEmpty();
+        assertThat(revalidated.getAppliedPromotions()).isEmpty();
+        assertThat(revalidated.getErrorMessages()).containsOnly("This promotion code has expired");
+    }
+    
+    @Test
+    @DisplayName("A code rejected as not yet active stays rejected when replayed after its start")
+    public void testRejectedAttemptsAreNotReplayed() {
+        ShoppingCart cart = new ShoppingCart();
+        CartEventLog log = new CartEventLog();
+        cart.setEventLog(log);
+        cart.addProduct(new Product("P001", "Slim Fit Jeans", 100.00, 1));
+        Promotion upcoming = new Promotion("AUTUMN20", "Autumn Sale 20% Off", 20.0,
+                TODAY.plusDays(1), TODAY.plusDays(30), true);
+        assertThat(cart.applyPromotion(upcoming)).isFalse();
+        
+        // By replay time the promotion has started
+        Promotion started = new Promotion("AUTUMN20", "Autumn Sale 20% Off", 20.0,
+                TODAY.minusDays(1), TODAY.plusDays(30), true);
+        ShoppingCart replayed = log.replay(new ShoppingCart(), code -> started);
+        
+        assertThat(log.getEventCount()).isEqualTo(1);
+        assertThat(replayed.getAppliedPromotions()).isEmpty();
+        assertThat(replayed.getFinalPriceCents()).isEqualTo(10_000L);
+    }
+    
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(longs = {0, 1, -1, 63, -64, 64, -65, 8_191, -8_192, 8_192, Integer.MAX_VALUE, Integer.MIN_VALUE,
+            Long.MAX_VALUE, Long.MIN_VALUE})
+    @DisplayName("Signed values survive zig-zag varint encoding")
+    public void testSignedValuesRoundTrip(long value) throws IOException {
+        int quantity = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+        CartEventLog log = new CartEventLog();
+        log.productAdded(Product.ofCents("P001", "Price", value, 1));
+        log.productAdded(Product.ofCents("P002", "Quantity", 1, quantity));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        log.writeTo(out, 0);
+        
+        ShoppingCart replayed = CartEventLog.readFrom(new ByteArrayInputStream(out.toByteArray()))
+                .replay(new ShoppingCart(), CATALOG::get);
+        
+        assertThat(replayed.getProduct("P001").getPriceCents()).isEqualTo(value);
+        assertThat(replayed.getProduct("P002").getQuantity()).isEqualTo(quantity);
+    }
+    
+    @Test
+    @DisplayName("Line categories survive replay, so category-scoped discounts are kept")
+    public void testReplayKeepsCategoryScopedDiscounts() throws IOException {
+        ScopedPromotion footwear20 = ScopedPromotion.percentageOff("SHOES20", "20% off footwear", 20.0,
+                TODAY.minusDays(1), TODAY.plusDays(1), true, List.of(), List.of("Footwear"));
+        Function<String, Promotion> catalog = code -> code.equals("SHOES20") ? footwear20 : CATALOG.get(code);
+        ShoppingCart cart = new ShoppingCart();
+        CartEventLog log = new CartEventLog();
+        cart.setEventLog(log);
+        
+        cart.addProduct(product("P002", "Running Shoes", 100.00, 1, "Footwear"));
+        cart.addProduct(product("P001", "Slim Fit Jeans", 79.99, 1, "Clothing"));
+        cart.applyPromotion(footwear20);
+        log.checkpoint(cart);
+        cart.addProduct(product("P005", "Trail Boots", 50.00, 1, "Footwear"));
+        cart.addProduct(new Product("P004", "Cotton Socks", 4.99, 2));
+        assertThat(cart.getTotalDiscountCents()).isEqualTo(3_000);
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        log.writeTo(out, 0);
+        CartEventLog loaded = CartEventLog.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        ShoppingCart fromCheckpoint = loaded.replay(new ShoppingCart(), catalog);
+        ShoppingCart fromStart = new ShoppingCart();
+        loaded.replayInto(fromStart, 0, catalog);
+        
+        for (ShoppingCart replayed : List.of(fromCheckpoint, fromStart)) {
+            assertSameState(replayed, cart);
+            assertThat(replayed.getProduct("P002").getCategory()).isEqualTo("Footwear");
+            assertThat(replayed.getProduct("P005").getCategory()).isEqualTo("Footwear");
+            assertThat(replayed.getProduct("P004").getCategory()).isNull();
+        }
+    }
+    
+    @Test
+    @DisplayName("Small signed values take one byte, so a quantity change stays compact")
+    public void testZigZagKeepsSmallValuesShort() {
+        // Type, id length, "P001", then the zig-zagged quantity
+        assertThat(quantityUpdateSize(63)).isEqualTo(7);
+        assertThat(quantityUpdateSize(-64)).isEqualTo(7);
+        assertThat(quantityUpdateSize(64)).isEqualTo(8);
+        assertThat(quantityUpdateSize(-65)).isEqualTo(8);
+        assertThat(quantityUpdateSize(Integer.MIN_VALUE)).isEqualTo(11);
+    }
+    
+    private static int quantityUpdateSize(int quantity) {
+        CartEventLog log = new CartEventLog();
+        log.quantityUpdated("P001", quantity);
+        return log.size();
+    }
+    
+    /**
+     * Quantity decreases and a returned unit logged as a negative add, which zig-zag keeps short.
+     */
+    private static void mutateAfterFirstFlush(ShoppingCart cart) {
+        cart.updateProductQuantity("P001", 5);
+        cart.updateProductQuantity("P001", 2);
+        cart.addProduct(new Product("P001", "Slim Fit Jeans", 79.99, -1));
+        cart.addProduct(new Product("P003", "Leather Belt", 24.00, 2));
+        cart.applyPromotion(CATALOG.get("SUMMER10"));
+    }
+    
+    private static void mutateAfterCheckpoint(ShoppingCart cart) {
+        cart.removeProduct("P002");
+        cart.updateProductQuantity("P003", 0);
+        cart.addProduct(new Product("P004", "Cotton Socks", 4.99, 12));
+        cart.removePromotion("SUMMER25");
+        assertThat(cart.applyPromotion(CATALOG.get("FLASH50"))).isFalse();
+        cart.clearPromotions();
+        assertThat(cart.applyPromotion(CATALOG.get("SPRING15"))).isFalse();
+        cart.applyPromotion(CATALOG.get("FLASH50"));
+    }
+    
+    private static Product product(String productId, String name, double price, int quantity, String category) {
+        Product product = new Product(productId, name, price, quantity);
+        product.setCategory(category);
+        return product;
+    }
+    
+    private static void assertSameState(ShoppingCart actual, ShoppingCart expected) {
+        assertThat(linesOf(actual)).isEqualTo(linesOf(expected));
+        assertThat(new ArrayList<>(actual.getAppliedPromotions().keySet()))
+                .isEqualTo(new ArrayList<>(expected.getAppliedPromotions().keySet()));
+        assertThat(actual.getSubtotalCents()).isEqualTo(expected.getSubtotalCents());
+        assertThat(actual.getTotalDiscountCents()).isEqualTo(expected.getTotalDiscountCents());
+        assertThat(actual.getFinalPriceCents()).isEqualTo(expected.getFinalPriceCents());
+    }
+    
+    private static List<String> linesOf(ShoppingCart cart) {
+        List<String> lines = new ArrayList<>();
+        cart.forEachLine((productId, name, priceCents, quantity) ->
+                lines.add(productId + "|" + name + "|" + priceCents + "|" + quantity));
+        return lines;
+    }
+}
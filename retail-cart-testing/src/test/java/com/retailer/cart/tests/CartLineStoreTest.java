@@ -0,0 +1,96 @@
+package com.retailer.cart.tests;
+
+import com.retailer.cart.models.CartLineStore;
+import com.retailer.cart.models.ColumnarCartLineStore;
+import com.retailer.cart.models.MapCartLineStore;
+import com.retailer.cart.models.Product;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("pricing")
+@DisplayName("Cart Line Store Tests")
+public class CartLineStoreTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CartLineStoreTest.class);
+    private static final int OPERATIONS = 20_000;
+    private static final int PRODUCTS = 80;
+    
+    @Test
+    @DisplayName("Columnar and map stores agree through random adds, merges, updates and removals")
+    public void testColumnarMatchesMapStore() {
+        Random random = new Random(23);
+        CartLineStore columnar = new ColumnarCartLineStore(4);
+        CartLineStore map = new MapCartLineStore();
+        
+        for (int i = 0; i < OPERATIONS; i++) {
+            String productId = productId(random.nextInt(PRODUCTS));
+            int operation = random.nextInt(10);
+            if (operation < 4) {
+                // A new line, or a merge into the existing one at its existing price
+                long price = 100 + random.nextInt(10_000);
+                int quantity = 1 + random.nextInt(5);
+                assertThat(columnar.add(line(productId, price, quantity)))
+                        .as("add %s", productId).isEqualTo(map.add(line(productId, price, quantity)));
+            } else if (operation < 6) {
+                if (map.contains(productId)) {
+                    int quantity = random.nextInt(10);
+                    assertThat(columnar.setQuantity(productId, quantity))
+                            .as("setQuantity %s", productId).isEqualTo(map.setQuantity(productId, quantity));
+                }
+            } else {
+                assertThat(columnar.remove(productId)).as("remove %s", productId).isEqualTo(map.remove(productId));
+            }
+            assertSameLines(columnar, map);
+        }
+        
+        // Remove all but a few lines, well past the compaction threshold, then re-add them
+        for (int p = 0; p < PRODUCTS; p++) {
+            assertThat(columnar.add(line(productId(p), 250, 2))).isEqualTo(map.add(line(productId(p), 250, 2)));
+        }
+        for (int p = 0; p < PRODUCTS - 5; p++) {
+            assertThat(columnar.remove(productId(p))).isEqualTo(map.remove(productId(p)));
+        }
+        assertSameLines(columnar, map);
+        for (int p = PRODUCTS - 6; p >= 0; p--) {
+            assertThat(columnar.add(line(productId(p), 300, 1))).isEqualTo(map.add(line(productId(p), 300, 1)));
+        }
+        assertSameLines(columnar, map);
+        logger.info("{} random operations left {} lines in both stores", OPERATIONS, map.size());
+    }
+    
+    private static void assertSameLines(CartLineStore columnar, CartLineStore map) {
+        assertThat(columnar.size()).isEqualTo(map.size());
+        assertThat(linesOf(columnar)).isEqualTo(linesOf(map));
+        long subtotal = 0;
+        for (Product product : map.toList()) {
+            subtotal += product.getSubtotalCents();
+        }
+        assertThat(((ColumnarCartLineStore) columnar).subtotalCents()).isEqualTo(subtotal);
+    }
+    
+    private static List<String> linesOf(CartLineStore store) {
+        List<String> lines = new ArrayList<>();
+        store.forEach((productId, name, priceCents, quantity) ->
+                lines.add(productId + "|" + name + "|" + priceCents + "|" + quantity));
+        return lines;
+    }
+    
+    private static Product line(String productId, long priceCents, int quantity) {
+        // The product dictionary is process-wide and keeps the first name it sees, so every
+        // line of a product carries the same name
+        return Product.ofCents(productId, "Line store product " + productId, priceCents, quantity);
+    }
+    
+    private static String productId(int index) {
+        return "LINE-STORE-" + index;
+    }
+}
@@ -0,0 +1,178 @@
+package com.retailer.cart.tests;
+
+import com.retailer.cart.models.CartError;
+import com.retailer.cart.models.CartErrorBuffer;
+import com.retailer.cart.models.ConcurrentShoppingCart;
+import com.retailer.cart.models.Money;
+import com.retailer.cart.models.Product;
+import com.retailer.cart.models.Promotion;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("concurrency")
+@DisplayName("Concurrent Shopping Cart Tests")
+public class ConcurrentShoppingCartTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrentShoppingCartTest.class);
+    private static final int THREADS = 64;
+    private static final int OPERATIONS_PER_THREAD = 5_000;
+    private static final String[] PRODUCT_IDS = {"P001", "P002", "P003", "P004"};
+    private static final double[] PRICES = {59.99, 89.99, 24.99, 12.50};
+    
+    @Test
+    @DisplayName("No quantity is lost when 64 threads add the same products")
+    public void testConcurrentAddsLoseNoUpdates() throws Exception {
+        ConcurrentShoppingCart cart = new ConcurrentShoppingCart();
+        
+        long elapsedNanos = runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                int p = (thread + i) % PRODUCT_IDS.length;
+                cart.addProduct(new Product(PRODUCT_IDS[p], "Product " + p, PRICES[p], 1));
+            }
+        });
+        
+        long expectedPerProduct = (long) THREADS * OPERATIONS_PER_THREAD / PRODUCT_IDS.length;
+        long expectedSubtotal = 0;
+        for (int p = 0; p < PRODUCT_IDS.length; p++) {
+            assertThat(cart.getQuantity(PRODUCT_IDS[p])).isEqualTo(expectedPerProduct);
+            expectedSubtotal += Money.ofMajor(PRICES[p]) * expectedPerProduct;
+        }
+        assertThat(cart.getTotals().getSubtotalCents()).isEqualTo(expectedSubtotal);
+        logger.info("{} concurrent adds in {} ms", THREADS * OPERATIONS_PER_THREAD,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+    
+    @Test
+    @DisplayName("Subtotal matches the lines after racing adds, updates and removes")
+    public void testSubtotalStaysConsistentWithLines() throws Exception {
+        ConcurrentShoppingCart cart = new ConcurrentShoppingCart();
+        
+        runConcurrently(thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                int p = random.nextInt(PRODUCT_IDS.length);
+                switch (random.nextInt(3)) {
+                    case 0:
+                        cart.addProduct(new Product(PRODUCT_IDS[p], "Product " + p, PRICES[p], 1 + random.nextInt(3)));
+                        break;
+                    case 1:
+                        cart.updateProductQuantity(PRODUCT_IDS[p], random.nextInt(5));
+                        break;
+                    default:
+                        cart.removeProduct(PRODUCT_IDS[p]);
+                        break;
+                }
+            }
+        });
+        
+        long lineSubtotal = 0;
+        for (Product product : cart.getProducts()) {
+            lineSubtotal += product.getSubtotalCents();
+        }
+        assertThat(cart.getTotals().getSubtotalCents()).isEqualTo(lineSubtotal);
+    }
+    
+    @Test
+    @DisplayName("Racing promotions never leave an incompatible pair applied")
+    public void testConcurrentPromotionsStayCompatible() throws Exception {
+        LocalDate start = LocalDate.now().minusDays(1);
+        LocalDate end = LocalDate.now().plusDays(1);
+        Promotion[] promotions = {
+                new Promotion("SUMMER25", "Summer Collection 25% Off", 25.0, start, end, true),
+                new Promotion("SUMMER10", "Summer Special 10% Off", 10.0, start, end, true),
+                new Promotion("SALE30", "Special Sale 30% Off", 30.0, start, end, false)
+        };
+        
+        for (int round = 0; round < 200; round++) {
+            ConcurrentShoppingCart cart = new ConcurrentShoppingCart();
+            cart.addProduct(new Product("P001", "Slim Fit Jeans", 100.00, 1));
+            
+            runConcurrently(thread -> cart.applyPromotion(promotions[thread % promotions.length]));
+            
+            List<Promotion> applied = new ArrayList<>(cart.getTotals().getAppliedPromotions().values());
+            assertThat(applied).isNotEmpty();
+            for (Promotion a : applied) {
+                for (Promotion b : applied) {
+                    if (a != b) {
+                        assertThat(a.isCompatibleWith(b)).as("%s with %s", a.getCode(), b.getCode()).isTrue();
+                    }
+                }
+            }
+            ConcurrentShoppingCart.Totals totals = cart.getTotals();
+            assertThat(totals.getFinalPriceCents())
+                    .isEqualTo(totals.getSubtotalCents() - totals.getDiscountCents());
+        }
+    }
+    
+    @Test
+    @DisplayName("Rejected promotions from many threads keep only the latest errors")
+    public void testConcurrentErrorsStayBounded() throws Exception {
+        ConcurrentShoppingCart cart = new ConcurrentShoppingCart();
+        Promotion expired = new Promotion("EXPIRED", "Expired 10% Off", 10.0,
+                LocalDate.now().minusDays(10), LocalDate.now().minusDays(1), true);
+        
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                cart.applyPromotion(i % 2 == 0 ? null : expired);
+                if (i % 1_000 == 0) {
+                    assertThat(cart.getErrorMessages()).hasSizeLessThanOrEqualTo(CartErrorBuffer.DEFAULT_CAPACITY);
+                }
+            }
+        });
+        
+        assertThat(cart.getErrors().getRecordedCount()).isEqualTo((long) THREADS * OPERATIONS_PER_THREAD);
+        assertThat(cart.getErrorMessages()).hasSize(CartErrorBuffer.DEFAULT_CAPACITY)
+                .containsOnly("Invalid promotion code", "This promotion code has expired");
+        
+        cart.clearErrorMessages();
+        assertThat(cart.getErrorMessages()).isEmpty();
+        assertThat(cart.getErrors().latest()).isNull();
+        cart.applyPromotion(null);
+        assertThat(cart.getErrors().latest()).isEqualTo(CartError.INVALID_PROMOTION_CODE);
+        assertThat(cart.getErrorMessages()).containsExactly("Invalid promotion code");
+    }
+    
+    private long runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>(THREADS);
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            long startNanos = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            return System.nanoTime() - startNanos;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @FunctionalInterface
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}
@@ -1,6 +1,8 @@
 package com.retailer.cart.tests;
 
 import com.retailer.cart.utils.ConfigReader;
+import com.retailer.cart.utils.LatencyHistogram;
+import com.retailer.cart.utils.Timing;
 import com.retailer.cart.utils.exceptions.TestDataException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,6 +17,7 @@ import org.slf4j.LoggerFactory;
 import java.sql.*;
 import java.util.*;
 import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
@@ -250,18 +253,19 @@ public class DatabaseTest {
     public void testDatabasePerformance() {
         logger.info("Testing database performance");
         
-        // Test query performance
-        long startTime = System.currentTimeMillis();
+        // Test query performance; in-memory queries take microseconds, so time each one in nanoseconds
+        LatencyHistogram queryTimes = new LatencyHistogram(TimeUnit.SECONDS.toNanos(10));
         
         for (int i = 0; i < 100; i++) {
+            long startNanos = Timing.start();
             getCartFromDatabase(testCartId);
+            queryTimes.record(Timing.elapsedNanos(startNanos));
         }
         
-        long endTime = System.currentTimeMillis();
-        long totalTime = endTime - startTime;
-        double avgTime = totalTime / 100.0;
+        double avgTime = Timing.toMillis((long) queryTimes.getMean());
         
-        logger.info("Average query time: {}ms", avgTime);
+        logger.info("Average query time: {}ms (p99 {}ms)", avgTime,
+                Timing.toMillis(queryTimes.getValueAtPercentile(99.0)));
         
         // Performance should be reasonable (less than 100ms per query on average)
         assertThat(avgTime).isLessThan(100.0);
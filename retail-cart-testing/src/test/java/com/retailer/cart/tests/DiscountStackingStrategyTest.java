@@ -0,0 +1,176 @@
+package com.retailer.cart.tests;
+
+import com.retailer.cart.models.DiscountBreakdown;
+import com.retailer.cart.models.DiscountStackingStrategy;
+import com.retailer.cart.models.Money;
+import com.retailer.cart.models.Product;
+import com.retailer.cart.models.Promotion;
+import com.retailer.cart.models.ShoppingCart;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("pricing")
+@DisplayName("Discount Stacking Strategy Tests")
+public class DiscountStackingStrategyTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DiscountStackingStrategyTest.class);
+    private static final LocalDate START = LocalDate.now().minusDays(1);
+    private static final LocalDate END = LocalDate.now().plusDays(1);
+    private static final long SUBTOTAL = Money.ofMajor(200.00);
+    
+    /**
+     * SUMMER25, SUMMER10 and a fixed 15.00 off, stacked in that order on a 200.00 subtotal.
+     */
+    static Stream<Arguments> strategies() {
+        return Stream.of(
+                Arguments.of("ADDITIVE", DiscountStackingStrategy.ADDITIVE,
+                        new long[]{5_000, 2_000, 1_500}),
+                // 25% of 200.00, 10% of the 150.00 left, then 15.00 of the 135.00 left
+                Arguments.of("SEQUENTIAL", DiscountStackingStrategy.SEQUENTIAL,
+                        new long[]{5_000, 1_500, 1_500}),
+                Arguments.of("BEST_OF", DiscountStackingStrategy.BEST_OF,
+                        new long[]{5_000, 0, 0}),
+                // 85.00 over a 60.00 cap: the excess comes back from the last promotions first
+                Arguments.of("ADDITIVE capped at 30 percent",
+                        DiscountStackingStrategy.capped(DiscountStackingStrategy.ADDITIVE, 30.0),
+                        new long[]{5_000, 1_000, 0}),
+                Arguments.of("SEQUENTIAL capped at 50 percent",
+                        DiscountStackingStrategy.capped(DiscountStackingStrategy.SEQUENTIAL, 50.0),
+                        new long[]{5_000, 1_500, 1_500}));
+    }
+    
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("strategies")
+    @DisplayName("Each strategy splits the discount as documented")
+    public void testStrategy(String name, DiscountStackingStrategy strategy, long[] expectedCents) {
+        DiscountBreakdown breakdown = strategy.apply(promotions(), SUBTOTAL);
+        
+        long expectedTotal = 0;
+        for (int i = 0; i < expectedCents.length; i++) {
+            assertThat(breakdown.getDiscountCents(i)).as("%s promotion %d", name, i).isEqualTo(expectedCents[i]);
+            expectedTotal += expectedCents[i];
+        }
+        assertThat(breakdown.getTotalCents()).as(name).isEqualTo(expectedTotal);
+        assertThat(breakdown.getPromotions()).extracting(Promotion::getCode)
+                .containsExactly("SUMMER25", "SUMMER10", "FIXED15");
+        logger.info("{}: {}", name, breakdown);
+    }
+    
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("strategies")
+    @DisplayName("The cart prices with the strategy it is given")
+    public void testCartUsesStrategy(String name, DiscountStackingStrategy strategy, long[] expectedCents) {
+        ShoppingCart cart = cartWithPromotions();
+        cart.setStackingStrategy(strategy);
+        
+        long expectedTotal = 0;
+        for (long cents : expectedCents) {
+            expectedTotal += cents;
+        }
+        assertThat(cart.getTotalDiscountCents()).as(name).isEqualTo(expectedTotal);
+        assertThat(cart.getFinalPriceCents()).as(name).isEqualTo(SUBTOTAL - expectedTotal);
+    }
+    
+    @Test
+    @DisplayName("Sequential stacking still judges minimum spend on the undiscounted subtotal")
+    public void testSequentialMinimumSpend() {
+        Promotion half = new Promotion("HALF", "Half Off", 50.0, START, END, true);
+        Promotion spend150 = new Promotion("SPEND150", Promotion.DiscountType.FIXED_AMOUNT, 20.0,
+                START, END, 150.0, true);
+        
+        DiscountBreakdown breakdown = DiscountStackingStrategy.SEQUENTIAL.apply(List.of(half, spend150), SUBTOTAL);
+        
+        // Only 100.00 is left after HALF, but the 200.00 subtotal qualifies for SPEND150
+        assertThat(breakdown.getDiscountCents("SPEND150")).isEqualTo(Money.ofMajor(20.00));
+        assertThat(breakdown.getTotalCents()).isEqualTo(Money.ofMajor(120.00));
+    }
+    
+    @Test
+    @DisplayName("The best combination is chosen by what the cart's strategy makes of it")
+    public void testBestPromotionsUnderSequentialStacking() {
+        Promotion halfA = new Promotion("HALF_A", "Half Off", 50.0, START, END, true);
+        Promotion halfB = new Promotion("HALF_B", "Half Off Again", 50.0, START, END, true);
+        Promotion sale80 = new Promotion("SALE80", "Sale 80% Off", 80.0, START, END, false);
+        ShoppingCart cart = new ShoppingCart();
+        cart.addProduct(new Product("P001", "Slim Fit Jeans", 100.00, 2));
+        cart.setStackingStrategy(DiscountStackingStrategy.SEQUENTIAL);
+        
+        List<Promotion> applied = cart.applyBestPromotions(List.of(halfA, halfB, sale80));
+        
+        // The two halves compound to 75%, so the single 80% wins
+        assertThat(applied).extracting(Promotion::getCode).containsExactly("SALE80");
+        assertThat(cart.getTotalDiscountCents()).isEqualTo(Money.ofMajor(160.00));
+        
+        cart.setStackingStrategy(DiscountStackingStrategy.ADDITIVE);
+        assertThat(cart.applyBestPromotions(List.of(halfA, halfB, sale80))).extracting(Promotion::getCode)
+                .containsExactly("HALF_A", "HALF_B");
+    }
+    
+    static Stream<Arguments> mutations() {
+        return Stream.of(
+                Arguments.of("add a product", (Consumer<ShoppingCart>) cart ->
+                        cart.addProduct(new Product("P002", "Running Shoes", 100.00, 1))),
+                Arguments.of("add to an existing line", (Consumer<ShoppingCart>) cart ->
+                        cart.addProduct(new Product("P001", "Slim Fit Jeans", 100.00, 1))),
+                Arguments.of("update a quantity", (Consumer<ShoppingCart>) cart ->
+                        cart.updateProductQuantity("P001", 1)),
+                Arguments.of("remove a product", (Consumer<ShoppingCart>) cart ->
+                        cart.removeProduct("P001")),
+                Arguments.of("apply a promotion", (Consumer<ShoppingCart>) cart ->
+                        cart.applyPromotion(new Promotion("EXTRA5", "Extra 5% Off", 5.0, START, END, true))),
+                Arguments.of("remove a promotion", (Consumer<ShoppingCart>) cart ->
+                        cart.removePromotion("SUMMER10")),
+                Arguments.of("clear promotions", (Consumer<ShoppingCart>) ShoppingCart::clearPromotions),
+                Arguments.of("change the strategy", (Consumer<ShoppingCart>) cart ->
+                        cart.setStackingStrategy(DiscountStackingStrategy.BEST_OF)));
+    }
+    
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("mutations")
+    @DisplayName("Every cart mutation drops the memoized breakdown")
+    public void testMutationInvalidatesBreakdown(String mutation, Consumer<ShoppingCart> mutate) {
+        ShoppingCart cart = cartWithPromotions();
+        DiscountBreakdown before = cart.getDiscountBreakdown();
+        assertThat(cart.getDiscountBreakdown()).isSameAs(before);
+        long discountBefore = cart.getTotalDiscountCents();
+        
+        mutate.accept(cart);
+        
+        DiscountBreakdown after = cart.getDiscountBreakdown();
+        assertThat(after).as(mutation).isNotSameAs(before);
+        assertThat(cart.getTotalDiscountCents()).as(mutation)
+                .isEqualTo(after.getTotalCents())
+                .isNotEqualTo(discountBefore);
+        assertThat(cart.getFinalPriceCents()).as(mutation)
+                .isEqualTo(Math.max(0, cart.getSubtotalCents() - after.getTotalCents()));
+    }
+    
+    private static List<Promotion> promotions() {
+        return List.of(
+                new Promotion("SUMMER25", "Summer Collection 25% Off", 25.0, START, END, true),
+                new Promotion("SUMMER10", "Summer Special 10% Off", 10.0, START, END, true),
+                new Promotion("FIXED15", "15.00 Off", 15.0, false, START, END, true));
+    }
+    
+    private static ShoppingCart cartWithPromotions() {
+        ShoppingCart cart = new ShoppingCart();
+        cart.addProduct(new Product("P001", "Slim Fit Jeans", 100.00, 2));
+        for (Promotion promotion : promotions()) {
+            assertThat(cart.applyPromotion(promotion)).isTrue();
+        }
+        return cart;
+    }
+}
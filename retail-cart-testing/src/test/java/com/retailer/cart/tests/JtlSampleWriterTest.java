@@ -0,0 +1,192 @@
+package com.retailer.cart.tests;
+
+import com.retailer.cart.utils.JtlSampleWriter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("performance")
+@DisplayName("JTL Sample Writer Tests")
+public class JtlSampleWriterTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(JtlSampleWriterTest.class);
+    private static final long TIME_STAMP = 1_700_000_000_000L;
+    
+    @TempDir
+    Path tempDir;
+    
+    @Test
+    @DisplayName("Rows follow the header in JMeter's column order")
+    public void testRowFormat() throws Exception {
+        Path path = tempDir.resolve("format.jtl");
+        String thread = Thread.currentThread().getName();
+        try (JtlSampleWriter writer = new JtlSampleWriter(path)) {
+            assertThat(writer.write(TIME_STAMP, 12_400_000, "Add to cart", 200, true,
+                    "https://shop.example.com/cart", 512)).isTrue();
+            writer.write(TIME_STAMP + 1, 7_600_000, "Checkout", 500, false,
+                    "https://shop.example.com/checkout", 0);
+            writer.write(TIME_STAMP + 2, 30_000_000, "Apply promotion", 0, false, null, 0);
+        }
+        
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(0)).isEqualTo(JtlSampleWriter.HEADER);
+        // Elapsed is rounded to whole milliseconds; this thread is the only one recording
+        assertThat(lines.get(1)).isEqualTo(TIME_STAMP + ",12,Add to cart,200,OK," + thread
+                + ",text,true,,512,0,1,1,https://shop.example.com/cart,0,0,0");
+        assertThat(lines.get(2)).isEqualTo((TIME_STAMP + 1) + ",8,Checkout,500,Error," + thread
+                + ",text,false,Response code 500,0,0,1,1,https://shop.example.com/checkout,0,0,0");
+        assertThat(lines.get(3)).isEqualTo((TIME_STAMP + 2) + ",30,Apply promotion,"
+                + "Non HTTP response code,Non HTTP response message," + thread
+                + ",text,false,Response code 0,0,0,1,1,,0,0,0");
+        for (String line : lines) {
+            assertThat(line.split(",", -1)).as(line).hasSize(17);
+        }
+    }
+    
+    @Test
+    @DisplayName("Fields with commas or quotes are quoted the CSV way")
+    public void testCsvQuoting() throws Exception {
+        Path path = tempDir.resolve("quoting.jtl");
+        try (JtlSampleWriter writer = new JtlSampleWriter(path)) {
+            writer.write(TIME_STAMP, 1_000_000, "Search, sorted", 200, true,
+                    "https://shop.example.com/search?q=\"jeans\"", 0);
+        }
+        
+        String row = Files.readAllLines(path, StandardCharsets.UTF_8).get(1);
+        assertThat(row).startsWith(TIME_STAMP + ",1,\"Search, sorted\",200,OK,")
+                .endsWith(",\"https://shop.example.com/search?q=\"\"jeans\"\"\",0,0,0");
+    }
+    
+    @Test
+    @DisplayName("Thread counts include only recording threads that are still running")
+    public void testThreadCountsFollowLiveRecorders() throws Exception {
+        Path path = tempDir.resolve("threads.jtl");
+        int threads = 4;
+        int samples = 1_000;
+        try (JtlSampleWriter writer = new JtlSampleWriter(path)) {
+            List<Thread> recorders = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread recorder = new Thread(() -> {
+                    for (int i = 0; i < samples; i++) {
+                        writer.write(TIME_STAMP + i, 1_000_000, "Add to cart", 200, true, null, 0);
+                    }
+                }, "recorder-" + t);
+                recorders.add(recorder);
+                recorder.start();
+            }
+            for (Thread recorder : recorders) {
+                recorder.join();
+            }
+            writer.write(TIME_STAMP, 1_000_000, "Checkout", 200, true, null, 0);
+        }
+        
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        assertThat(lines).hasSize(threads * samples + 2);
+        for (String line : lines.subList(1, lines.size())) {
+            int recording = Integer.parseInt(line.split(",", -1)[11]);
+            assertThat(recording).as(line).isBetween(1, threads + 1);
+        }
+        // The recorders have ended by the time the last sample is written
+        assertThat(lines.get(lines.size() - 1)).contains(",Checkout,").contains(",0,1,1,,");
+    }
+    
+    @Test
+    @DisplayName("Every refused sample is counted as dropped and every accepted one is written")
+    public void testDroppedSamplesAreCounted() throws Exception {
+        Path path = tempDir.resolve("dropped.jtl");
+        int samples = 20_000;
+        int accepted = 0;
+        JtlSampleWriter writer = new JtlSampleWriter(path, 1);
+        try {
+            for (int i = 0; i < samples; i++) {
+                if (writer.write(TIME_STAMP + i, 1_000_000, "Add to cart", 200, true, null, 0)) {
+                    accepted++;
+                }
+            }
+        } finally {
+            writer.close();
+        }
+        
+        long rows = Files.readAllLines(path, StandardCharsets.UTF_8).size() - 1;
+        logger.info("{} of {} samples written through a one-sample buffer, {} dropped", rows, samples,
+                writer.getDroppedSamples());
+        assertThat(rows).isEqualTo(accepted);
+        assertThat(writer.getDroppedSamples()).isEqualTo(samples - accepted).isPositive();
+    }
+    
+    @Test
+    @DisplayName("Close writes everything buffered, and later samples are refused")
+    public void testCloseFlushesQueuedSamples() throws Exception {
+        Path path = tempDir.resolve("flush.jtl");
+        JtlSampleWriter writer = new JtlSampleWriter(path);
+        for (int i = 0; i < 3; i++) {
+            writer.write(TIME_STAMP + i, 1_000_000, "Add to cart", 200, true, null, 0);
+        }
+        writer.close();
+        
+        assertThat(Files.readAllLines(path, StandardCharsets.UTF_8)).hasSize(4);
+        assertThat(writer.write(TIME_STAMP, 1_000_000, "Add to cart", 200, true, null, 0)).isFalse();
+        writer.close();
+        assertThat(Files.readAllLines(path, StandardCharsets.UTF_8)).hasSize(4);
+        assertThat(writer.getDroppedSamples()).isZero();
+    }
+    
+    @Test
+    @DisplayName("A sample accepted while the writer closes is still written")
+    public void testWritesRacingCloseAreNotLost() throws Exception {
+        Path path = tempDir.resolve("race.jtl");
+        JtlSampleWriter writer = new JtlSampleWriter(path);
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch started = new CountDownLatch(threads);
+        AtomicBoolean stop = new AtomicBoolean();
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    started.countDown();
+                    long accepted = 0;
+                    for (long i = 0; !stop.get(); i++) {
+                        if (writer.write(TIME_STAMP + i, 1_000_000, "Add to cart", 200, true, null, 0)) {
+                            accepted++;
+                        }
+                    }
+                    return accepted;
+                }));
+            }
+            started.await();
+            TimeUnit.MILLISECONDS.sleep(20);
+            writer.close();
+            stop.set(true);
+            long accepted = 0;
+            for (Future<Long> future : futures) {
+                accepted += future.get();
+            }
+            
+            long rows = Files.readAllLines(path, StandardCharsets.UTF_8).size() - 1;
+            logger.info("{} samples accepted around close, {} written, {} dropped", accepted, rows,
+                    writer.getDroppedSamples());
+            assertThat(rows).isEqualTo(accepted);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
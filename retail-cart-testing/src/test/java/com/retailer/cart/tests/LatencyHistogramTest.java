@@ -0,0 +1,153 @@
+package com.retailer.cart.tests;
+
+import com.retailer.cart.utils.LatencyHistogram;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@Tag("performance")
+@DisplayName("Latency Histogram Tests")
+public class LatencyHistogramTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LatencyHistogramTest.class);
+    private static final long HIGHEST_TRACKABLE = 3_600_000;
+    private static final double[] PERCENTILES = {0.0, 1.0, 50.0, 90.0, 95.0, 99.0, 99.9, 100.0};
+    
+    @Test
+    @DisplayName("Percentiles match a sorted sample to within bucket precision")
+    public void testPercentilesMatchSortedSamples() {
+        LatencyHistogram histogram = new LatencyHistogram(HIGHEST_TRACKABLE);
+        Random random = new Random(42);
+        long[] samples = new long[200_000];
+        for (int i = 0; i < samples.length; i++) {
+            // Log-normal around 40ms with a long tail, like real response times
+            samples[i] = Math.min(HIGHEST_TRACKABLE, (long) Math.exp(3.7 + random.nextGaussian()));
+            histogram.record(samples[i]);
+        }
+        Arrays.sort(samples);
+    
+        for (double percentile : PERCENTILES) {
+            int index = Math.max(0, (int) Math.ceil(percentile / 100.0 * samples.length) - 1);
+            long exact = samples[index];
+            long approximate = histogram.getValueAtPercentile(percentile);
+            logger.info("p{}: exact {}ms, histogram {}ms", percentile, exact, approximate);
+            assertThat((double) approximate).isCloseTo(exact, within(exact / 128.0 + 1e-9));
+        }
+        assertThat(histogram.getMin()).isEqualTo(samples[0]);
+        assertThat(histogram.getMax()).isEqualTo(samples[samples.length - 1]);
+        assertThat(histogram.getCount()).isEqualTo(samples.length);
+    }
+    
+    @Test
+    @DisplayName("Merging histograms loses no counts")
+    public void testMergeIsLossless() {
+        LatencyHistogram combined = new LatencyHistogram(HIGHEST_TRACKABLE);
+        LatencyHistogram first = new LatencyHistogram(HIGHEST_TRACKABLE);
+        LatencyHistogram second = new LatencyHistogram(HIGHEST_TRACKABLE);
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            long value = random.nextInt(5_000);
+            combined.record(value);
+            (i % 3 == 0 ? first : second).record(value);
+        }
+    
+        LatencyHistogram merged = first.copy();
+        merged.add(second);
+    
+        assertThat(merged.getCount()).isEqualTo(combined.getCount());
+        assertThat(merged.getMean()).isEqualTo(combined.getMean());
+        for (double percentile : PERCENTILES) {
+            assertThat(merged.getValueAtPercentile(percentile))
+                    .isEqualTo(combined.getValueAtPercentile(percentile));
+        }
+    }
+    
+    @Test
+    @DisplayName("Concurrent recording counts every sample")
+    public void testConcurrentRecordingCountsEverySample() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram(HIGHEST_TRACKABLE);
+        int threads = 16;
+        int samplesPerThread = 100_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < samplesPerThread; i++) {
+                        histogram.record(i % 1_000);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    
+        assertThat(histogram.getCount()).isEqualTo((long) threads * samplesPerThread);
+        assertThat(histogram.getValueAtPercentile(50.0)).isCloseTo(499L, within(4L));
+        assertThat(histogram.getMax()).isEqualTo(999L);
+    }
+    
+    @Test
+    @DisplayName("Contended recording into one bucket keeps every count for percentiles and merges")
+    public void testContendedBucketKeepsEveryCount() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram(60_000_000_000L);
+        int threads = 16;
+        int samplesPerThread = 100_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    // Every thread on the same bucket, with one slow sample each
+                    for (int i = 0; i < samplesPerThread - 1; i++) {
+                        histogram.record(12_000_000L);
+                    }
+                    histogram.record(40_000_000L);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        
+        long expected = (long) threads * samplesPerThread;
+        long[] bucketTotal = new long[1];
+        histogram.forEachBucket((low, high, count) -> bucketTotal[0] += count);
+        assertThat(bucketTotal[0]).isEqualTo(expected);
+        assertThat((double) histogram.getValueAtPercentile(99.0))
+                .isCloseTo(12_000_000.0, within(12_000_000 * 0.008));
+        assertThat((double) histogram.getValueAtPercentile(100.0))
+                .isCloseTo(40_000_000.0, within(40_000_000 * 0.008));
+        
+        LatencyHistogram merged = new LatencyHistogram(60_000_000_000L);
+        merged.add(histogram);
+        merged.add(histogram.copy());
+        long[] mergedTotal = new long[1];
+        merged.forEachBucket((low, high, count) -> mergedTotal[0] += count);
+        assertThat(mergedTotal[0]).isEqualTo(2 * expected);
+        assertThat(merged.getValueAtPercentile(99.0)).isEqualTo(histogram.getValueAtPercentile(99.0));
+    }
+}
@@ -0,0 +1,76 @@
+package com.retailer.cart.tests;
+
+import com.retailer.cart.models.Money;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("pricing")
+@DisplayName("Money Tests")
+public class MoneyTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MoneyTest.class);
+    
+    @ParameterizedTest(name = "{0} -> {1} cents")
+    @CsvSource({
+            "19.99, 1999",
+            "0.125, 13",
+            "0.124, 12",
+            "0.0, 0",
+            "-5.25, -525",
+            "-0.125, -13",
+            "-0.124, -12"
+    })
+    @DisplayName("Major-unit amounts convert to cents rounding half-up, symmetrically for negative amounts")
+    public void testOfMajor(double amount, long expectedCents) {
+        assertThat(Money.ofMajor(amount)).isEqualTo(expectedCents);
+    }
+    
+    @ParameterizedTest(name = "{1} basis points of {0} cents -> {2}")
+    @CsvSource({
+            "10000, 1250, 1250",
+            "1999, 1000, 200",
+            "5, 1000, 1",
+            "4, 1000, 0",
+            "-5, 1000, -1",
+            "-4, 1000, 0",
+            "1999, 0, 0"
+    })
+    @DisplayName("Percentages round half-up to the cent, symmetrically for negative amounts")
+    public void testPercentage(long cents, long basisPoints, long expectedCents) {
+        assertThat(Money.percentage(cents, basisPoints)).isEqualTo(expectedCents);
+    }
+    
+    @Test
+    @DisplayName("Percentages convert to basis points")
+    public void testBasisPoints() {
+        assertThat(Money.basisPoints(12.5)).isEqualTo(1250);
+        assertThat(Money.basisPoints(0.5)).isEqualTo(50);
+        assertThat(Money.basisPoints(-12.5)).isEqualTo(-1250);
+    }
+    
+    @ParameterizedTest(name = "{0} cents -> {1}")
+    @CsvSource({
+            "0, 0.00",
+            "5, 0.05",
+            "1999, 19.99",
+            "123405, 1234.05",
+            "-5, -0.05",
+            "-123405, -1234.05",
+            "9223372036854775807, 92233720368547758.07",
+            "-9223372036854775808, -92233720368547758.08"
+    })
+    @DisplayName("Amounts format with two fraction digits, including negative and extreme ones")
+    public void testFormat(long cents, String expected) {
+        assertThat(Money.format(cents)).isEqualTo(expected);
+        StringBuilder sb = new StringBuilder("Total: ");
+        assertThat(Money.appendTo(sb, cents)).hasToString("Total: " + expected);
+        logger.debug("{} cents formatted as {}", cents, expected);
+    }
+}
@@ -0,0 +1,117 @@
+package com.retailer.cart.tests;
+
+import com.retailer.cart.models.DiscountStackingStrategy;
+import com.retailer.cart.models.PersistentShoppingCart;
+import com.retailer.cart.models.Product;
+import com.retailer.cart.models.Promotion;
+import com.retailer.cart.models.ShoppingCart;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Tag("pricing")
+@DisplayName("Persistent Shopping Cart Tests")
+public class PersistentShoppingCartTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PersistentShoppingCartTest.class);
+    private static final LocalDate START = LocalDate.now().minusDays(1);
+    private static final LocalDate END = LocalDate.now().plusDays(1);
+    
+    @Test
+    @DisplayName("Undo walks back through every change while the history is short")
+    public void testUndoRestoresEarlierVersions() {
+        PersistentShoppingCart empty = PersistentShoppingCart.empty();
+        PersistentShoppingCart jeans = empty.withProduct(new Product("P001", "Slim Fit Jeans", 80.00, 2));
+        PersistentShoppingCart shoes = jeans.withProduct(new Product("P002", "Running Shoes", 120.00, 1));
+        PersistentShoppingCart discounted = shoes.withPromotion(
+                new Promotion("SUMMER10", "Summer Special 10% Off", 10.0, START, END, true));
+        PersistentShoppingCart fewer = discounted.withQuantity("P001", 1);
+        
+        assertThat(fewer.getFinalPriceCents()).isEqualTo(18_000L);
+        assertThat(fewer.undo()).isSameAs(discounted);
+        assertThat(fewer.undo().undo()).isSameAs(shoes);
+        assertThat(fewer.history()).containsExactly(empty, jeans, shoes, discounted, fewer);
+        assertThat(empty.undo()).isSameAs(empty);
+        assertThat(shoes.getSubtotalCents()).isEqualTo(28_000L);
+    }
+    
+    @Test
+    @DisplayName("A long-lived cart keeps between one and two history limits of versions")
+    public void testHistoryIsBounded() {
+        int limit = 16;
+        PersistentShoppingCart cart = PersistentShoppingCart.empty().withHistoryLimit(limit);
+        
+        int changes = 10_000;
+        for (int i = 1; i <= changes; i++) {
+            cart = cart.withQuantity("P001", i % 5).withProduct(new Product("P00" + (i % 7), "Item", 1.00, 1));
+            int retained = cart.history().size();
+            assertThat(retained).isGreaterThanOrEqualTo(Math.min(limit, cart.getVersion() + 1));
+            assertThat(retained).isLessThanOrEqualTo(2 * limit);
+        }
+        
+        // The oldest retained version starts the chain, and the version numbers are unbroken
+        List<PersistentShoppingCart> history = cart.history();
+        assertThat(history.get(0).undo()).isSameAs(history.get(0));
+        for (int i = 1; i < history.size(); i++) {
+            assertThat(history.get(i).getVersion()).isEqualTo(history.get(i - 1).getVersion() + 1);
+            assertThat(history.get(i).undo()).isSameAs(history.get(i - 1));
+        }
+        assertThat(cart.getVersion()).isGreaterThanOrEqualTo(changes);
+        logger.info("Version {} retains {} versions", cart.getVersion(), history.size());
+    }
+    
+    @Test
+    @DisplayName("Trimmed versions keep their contents and diff like the originals")
+    public void testTrimmedVersionsKeepContents() {
+        PersistentShoppingCart cart = PersistentShoppingCart.empty();
+        for (int i = 0; i < 10; i++) {
+            cart = cart.withProduct(new Product("P00" + i, "Item " + i, 10.00 + i, 1));
+        }
+        PersistentShoppingCart rejected = cart.withPromotion(
+                new Promotion("OLD10", "Expired 10% Off", 10.0, START.minusDays(30), START.minusDays(10), true));
+        
+        PersistentShoppingCart trimmed = rejected.withHistoryLimit(3);
+        
+        assertThat(trimmed.history()).hasSize(3);
+        assertThat(trimmed.getVersion()).isEqualTo(rejected.getVersion());
+        assertThat(trimmed.getErrorMessage()).isEqualTo("This promotion code has expired");
+        assertThat(trimmed.getSubtotalCents()).isEqualTo(rejected.getSubtotalCents());
+        assertThat(trimmed.undo().undo().getLineCount()).isEqualTo(9);
+        assertThat(trimmed.undo().undo().undo()).isSameAs(trimmed.undo().undo());
+        assertThat(trimmed.undo().undo().diff(trimmed).getAddedLines())
+                .extracting(PersistentShoppingCart.Line::getProductId).containsExactly("P009");
+        assertThat(trimmed.diff(rejected).isEmpty()).isTrue();
+    }
+    
+    @Test
+    @DisplayName("The history limit must be positive")
+    public void testHistoryLimitMustBePositive() {
+        assertThatThrownBy(() -> PersistentShoppingCart.empty().withHistoryLimit(0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(PersistentShoppingCart.empty().getHistoryLimit())
+                .isEqualTo(PersistentShoppingCart.DEFAULT_HISTORY_LIMIT);
+    }
+    
+    @Test
+    @DisplayName("A cart is captured at its own total, and only if it stacks additively")
+    public void testCaptureKeepsTheCartsTotal() {
+        ShoppingCart cart = new ShoppingCart();
+        cart.addProduct(new Product("P001", "Slim Fit Jeans", 80.00, 2));
+        cart.applyPromotion(new Promotion("SUMMER25", "Summer Collection 25% Off", 25.0, START, END, true));
+        cart.applyPromotion(new Promotion("SUMMER10", "Summer Special 10% Off", 10.0, START, END, true));
+        
+        assertThat(PersistentShoppingCart.of(cart).getTotalDiscountCents()).isEqualTo(cart.getTotalDiscountCents());
+        
+        cart.setStackingStrategy(DiscountStackingStrategy.SEQUENTIAL);
+        assertThatThrownBy(() -> PersistentShoppingCart.of(cart))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,179 @@
+package com.retailer.cart.tests;
+
+import com.retailer.cart.models.PersistentTreeMap;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("pricing")
+@DisplayName("Persistent Tree Map Tests")
+public class PersistentTreeMapTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PersistentTreeMapTest.class);
+    private static final int OPERATIONS = 20_000;
+    private static final int KEYS = 300;
+    
+    @Test
+    @DisplayName("Random puts and removes agree with a TreeMap, and old versions stay intact")
+    public void testMatchesTreeMapModel() {
+        Random random = new Random(17);
+        PersistentTreeMap<Integer, String> map = PersistentTreeMap.empty();
+        TreeMap<Integer, String> model = new TreeMap<>();
+        List<PersistentTreeMap<Integer, String>> versions = new ArrayList<>();
+        List<TreeMap<Integer, String>> models = new ArrayList<>();
+        
+        for (int i = 0; i < OPERATIONS; i++) {
+            int key = random.nextInt(KEYS);
+            if (random.nextInt(3) == 0) {
+                map = map.minus(key);
+                model.remove(key);
+            } else {
+                String value = "v" + i;
+                map = map.plus(key, value);
+                model.put(key, value);
+            }
+            assertThat(map.size()).isEqualTo(model.size());
+            assertThat(map.get(key)).isEqualTo(model.get(key));
+            if (i % 500 == 0) {
+                versions.add(map);
+                models.add(new TreeMap<>(model));
+            }
+        }
+        
+        assertSameEntries(map, model);
+        // Every update copied its path, so earlier versions still hold what they held then
+        for (int v = 0; v < versions.size(); v++) {
+            assertSameEntries(versions.get(v), models.get(v));
+        }
+        logger.info("{} operations over {} keys checked against {} retained versions",
+                OPERATIONS, KEYS, versions.size());
+    }
+    
+    @Test
+    @DisplayName("Diff reports exactly the keys whose bindings differ")
+    public void testDiffMatchesModel() {
+        Random random = new Random(29);
+        PersistentTreeMap<Integer, String> map = PersistentTreeMap.empty();
+        TreeMap<Integer, String> model = new TreeMap<>();
+        PersistentTreeMap<Integer, String> before = map;
+        TreeMap<Integer, String> beforeModel = new TreeMap<>();
+        
+        for (int round = 0; round < 400; round++) {
+            // A few edits for neighbouring versions, a few hundred for distant ones
+            int edits = round % 10 == 0 ? 1 + random.nextInt(200) : 1 + random.nextInt(4);
+            for (int e = 0; e < edits; e++) {
+                int key = random.nextInt(KEYS);
+                if (random.nextInt(3) == 0) {
+                    map = map.minus(key);
+                    model.remove(key);
+                } else {
+                    String value = "r" + round + "e" + e;
+                    map = map.plus(key, value);
+                    model.put(key, value);
+                }
+            }
+            
+            assertThat(diffOf(before, map)).as("round %d", round).isEqualTo(expectedDiff(beforeModel, model));
+            assertThat(diffOf(map, before)).as("round %d reversed", round)
+                    .isEqualTo(expectedDiff(model, beforeModel));
+            assertThat(diffOf(map, map)).isEmpty();
+            before = map;
+            beforeModel = new TreeMap<>(model);
+        }
+    }
+    
+    @Test
+    @DisplayName("The same entries give the same tree whatever the order of updates")
+    public void testShapeIsIndependentOfUpdateOrder() {
+        Random random = new Random(5);
+        List<Integer> keys = new ArrayList<>();
+        for (int key = 0; key < KEYS; key++) {
+            keys.add(key);
+        }
+        List<String> values = new ArrayList<>();
+        for (int key = 0; key < KEYS; key++) {
+            values.add("v" + key);
+        }
+        
+        PersistentTreeMap<Integer, String> ascending = PersistentTreeMap.empty();
+        for (int key : keys) {
+            ascending = ascending.plus(key, values.get(key));
+        }
+        // Insert in a shuffled order with extra keys that are removed again
+        Collections.shuffle(keys, random);
+        PersistentTreeMap<Integer, String> shuffled = PersistentTreeMap.empty();
+        for (int key : keys) {
+            shuffled = shuffled.plus(key + KEYS, "extra").plus(key, values.get(key));
+        }
+        for (int key : keys) {
+            shuffled = shuffled.minus(key + KEYS);
+        }
+        
+        assertThat(diffOf(ascending, shuffled)).isEmpty();
+        assertThat(shuffled.size()).isEqualTo(ascending.size());
+    }
+    
+    @Test
+    @DisplayName("Updates that change nothing return the same map")
+    public void testNoOpUpdatesReturnSameMap() {
+        String value = "v";
+        PersistentTreeMap<Integer, String> map = PersistentTreeMap.<Integer, String>empty()
+                .plus(1, value).plus(2, value);
+        
+        assertThat(map.plus(1, value)).isSameAs(map);
+        assertThat(map.minus(3)).isSameAs(map);
+        assertThat(map.minus(1).minus(2).isEmpty()).isTrue();
+    }
+    
+    private static void assertSameEntries(PersistentTreeMap<Integer, String> map, TreeMap<Integer, String> model) {
+        List<Integer> keys = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        map.forEach((key, value) -> {
+            keys.add(key);
+            values.add(value);
+        });
+        assertThat(keys).isEqualTo(new ArrayList<>(model.keySet()));
+        assertThat(values).isEqualTo(new ArrayList<>(model.values()));
+        assertThat(map.values()).isEqualTo(values);
+        assertThat(map.size()).isEqualTo(model.size());
+        for (int key = 0; key < KEYS; key++) {
+            assertThat(map.containsKey(key)).isEqualTo(model.containsKey(key));
+        }
+    }
+    
+    private static Set<String> diffOf(PersistentTreeMap<Integer, String> before,
+                                      PersistentTreeMap<Integer, String> after) {
+        Set<String> changes = new HashSet<>();
+        before.diff(after, (key, was, now) -> assertThat(changes.add(key + ":" + was + "->" + now)).isTrue());
+        return changes;
+    }
+    
+    private static Set<String> expectedDiff(Map<Integer, String> before, Map<Integer, String> after) {
+        Set<Integer> keys = new TreeSet<>(before.keySet());
+        keys.addAll(after.keySet());
+        Set<String> changes = new HashSet<>();
+        for (int key : keys) {
+            String was = before.get(key);
+            String now = after.get(key);
+            if (!Objects.equals(was, now)) {
+                changes.add(key + ":" + was + "->" + now);
+            }
+        }
+        return changes;
+    }
+}
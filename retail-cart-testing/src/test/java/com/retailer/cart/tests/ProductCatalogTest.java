@@ -0,0 +1,62 @@
+package com.retailer.cart.tests;
+
+import com.retailer.cart.models.Product;
+import com.retailer.cart.models.ProductCatalog;
+import com.retailer.cart.utils.TestDataGenerator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("pricing")
+@DisplayName("Product Catalog Tests")
+public class ProductCatalogTest {
+    
+    // The catalog is process-wide, so each test interns product IDs of its own
+    private final ProductCatalog catalog = ProductCatalog.getInstance();
+    
+    @Test
+    @DisplayName("A line without a category shares the descriptor interned with one")
+    public void testUnknownCategoryKeepsDescriptor() {
+        Product fromData = catalog.newProduct("CATALOG-T1", "Slim Fit Jeans", 59.99, "Clothing", 1);
+        Product fromPage = catalog.newProduct("CATALOG-T1", "Slim Fit Jeans", 59.99, 2);
+        Product fromDataAgain = catalog.newProduct("CATALOG-T1", "Slim Fit Jeans", 59.99, "Clothing", 1);
+        
+        assertThat(fromPage.getDescriptor()).isSameAs(fromData.getDescriptor());
+        assertThat(fromDataAgain.getDescriptor()).isSameAs(fromData.getDescriptor());
+        assertThat(fromPage.getCategory()).isEqualTo("Clothing");
+    }
+    
+    @Test
+    @DisplayName("A price change without a category keeps the known category")
+    public void testPriceChangeKeepsKnownCategory() {
+        Product before = catalog.newProduct("CATALOG-T2", "Running Shoes", 120.00, "Footwear", 1);
+        Product after = catalog.newProduct("CATALOG-T2", "Running Shoes", 99.00, 1);
+        
+        assertThat(after.getDescriptor()).isNotSameAs(before.getDescriptor());
+        assertThat(after.getCategory()).isEqualTo("Footwear");
+        assertThat(before.getPriceCents()).isEqualTo(12_000);
+        assertThat(after.getPriceCents()).isEqualTo(9_900);
+    }
+    
+    @Test
+    @DisplayName("A different known category replaces the descriptor")
+    public void testCategoryChangeReplacesDescriptor() {
+        Product before = catalog.newProduct("CATALOG-T3", "Wool Socks", 12.50, "Clothing", 1);
+        Product after = catalog.newProduct("CATALOG-T3", "Wool Socks", 12.50, "Accessories", 1);
+        
+        assertThat(after.getDescriptor()).isNotSameAs(before.getDescriptor());
+        assertThat(catalog.get("CATALOG-T3").getCategory()).isEqualTo("Accessories");
+    }
+    
+    @Test
+    @DisplayName("Generated products do not intern their random categories")
+    public void testGeneratedProductsStayOutOfCatalog() {
+        for (int i = 0; i < 100; i++) {
+            Product generated = TestDataGenerator.generateRandomProduct();
+            assertThat(catalog.get(generated.getProductId())).isNotSameAs(generated.getDescriptor());
+            assertThat(generated.getCategory()).isNotNull();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.retailer.cart.tests;
+
+import com.retailer.cart.models.Promotion;
+import com.retailer.cart.models.PromotionCodeFilter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("security")
+@DisplayName("Promotion Code Filter Tests")
+public class PromotionCodeFilterTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PromotionCodeFilterTest.class);
+    private static final LocalDate TODAY = LocalDate.now();
+    
+    @ParameterizedTest(name = "{0} codes")
+    @ValueSource(ints = {1, 10, 64, 1_000, 20_000})
+    @DisplayName("Every known code passes the filter")
+    public void testNoFalseNegatives(int codeCount) {
+        Set<String> codes = randomCodes(codeCount, new Random(codeCount));
+        PromotionCodeFilter filter = PromotionCodeFilter.build(promotions(codes));
+        
+        for (String code : codes) {
+            assertThat(filter.mightContain(code)).as(code).isTrue();
+        }
+        assertThat(Integer.bitCount(filter.bitCount())).isEqualTo(1);
+        assertThat(filter.bitCount()).isGreaterThanOrEqualTo(Math.max(1024, codeCount * 16));
+    }
+    
+    @Test
+    @DisplayName("Sequential codes with similar hashes are all found")
+    public void testSequentialCodesAreFound() {
+        // Sequential codes share most of their characters and much of their string hash
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            codes.add("SAVE" + i);
+        }
+        PromotionCodeFilter filter = PromotionCodeFilter.build(promotions(codes));
+        
+        for (String code : codes) {
+            assertThat(filter.mightContain(code)).as(code).isTrue();
+        }
+    }
+    
+    @Test
+    @DisplayName("Unknown codes are almost always turned away")
+    public void testFalsePositiveRate() {
+        Random random = new Random(99);
+        Set<String> codes = randomCodes(10_000, random);
+        PromotionCodeFilter filter = PromotionCodeFilter.build(promotions(codes));
+        
+        int guesses = 200_000;
+        int falsePositives = 0;
+        for (int i = 0; i < guesses; i++) {
+            String guess = randomCode(random);
+            if (!codes.contains(guess) && filter.mightContain(guess)) {
+                falsePositives++;
+            }
+        }
+        
+        double rate = (double) falsePositives / guesses;
+        logger.info("{} false positives in {} guesses ({}%)", falsePositives, guesses,
+                String.format("%.4f", rate * 100));
+        assertThat(rate).isLessThan(0.001);
+    }
+    
+    @Test
+    @DisplayName("Null codes, null promotions and an empty catalog are handled")
+    public void testEdgeCases() {
+        List<Promotion> withNull = new ArrayList<>(promotions(List.of("SUMMER25")));
+        withNull.add(null);
+        PromotionCodeFilter filter = PromotionCodeFilter.build(withNull);
+        
+        assertThat(filter.mightContain("SUMMER25")).isTrue();
+        assertThat(filter.mightContain(null)).isFalse();
+        assertThat(PromotionCodeFilter.build(List.of()).mightContain("SUMMER25")).isFalse();
+    }
+    
+    private static List<Promotion> promotions(Iterable<String> codes) {
+        List<Promotion> promotions = new ArrayList<>();
+        for (String code : codes) {
+            promotions.add(new Promotion(code, code, 10.0, TODAY, TODAY.plusDays(30), true));
+        }
+        return promotions;
+    }
+    
+    private static Set<String> randomCodes(int count, Random random) {
+        Set<String> codes = new HashSet<>();
+        while (codes.size() < count) {
+            codes.add(randomCode(random));
+        }
+        return codes;
+    }
+    
+    private static String randomCode(Random random) {
+        StringBuilder code = new StringBuilder(8);
+        for (int i = 0; i < 8; i++) {
+            code.append((char) ('A' + random.nextInt(26)));
+        }
+        return code.toString();
+    }
+}
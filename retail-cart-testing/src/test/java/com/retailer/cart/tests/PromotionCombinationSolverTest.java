@@ -0,0 +1,155 @@
+package com.retailer.cart.tests;
+
+import com.retailer.cart.models.Money;
+import com.retailer.cart.models.Product;
+import com.retailer.cart.models.Promotion;
+import com.retailer.cart.models.PromotionCombinationSolver;
+import com.retailer.cart.models.ShoppingCart;
+import com.retailer.cart.utils.TestDataGenerator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("pricing")
+@DisplayName("Best Promotion Combination Tests")
+public class PromotionCombinationSolverTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PromotionCombinationSolverTest.class);
+    private static final LocalDate TODAY = LocalDate.now();
+    
+    @ParameterizedTest(name = "Matches exhaustive search with {0} candidates")
+    @ValueSource(ints = {1, 4, 8, 12, 14})
+    @DisplayName("Solver finds the same maximum as exhaustive search")
+    public void testSolverMatchesExhaustiveSearch(int candidateCount) {
+        long subtotalCents = Money.ofMajor(480.00);
+        
+        for (long seed = 0; seed < 20; seed++) {
+            List<Promotion> promotions = TestDataGenerator.generatePromotionCatalog(candidateCount, 0.4, seed);
+            
+            long expected = exhaustiveBestDiscount(promotions, subtotalCents);
+            PromotionCombinationSolver.Result result =
+                    PromotionCombinationSolver.solve(promotions, subtotalCents, TODAY);
+            
+            assertThat(result.getDiscountCents()).as("seed %d", seed).isEqualTo(expected);
+            assertPairwiseCompatible(result.getPromotions());
+        }
+    }
+    
+    @ParameterizedTest(name = "Matches exhaustive search with {0} fixed-amount candidates")
+    @ValueSource(ints = {4, 8, 12, 14})
+    @DisplayName("Solver proves the maximum when no combination uses up the subtotal")
+    public void testSolverMatchesExhaustiveSearchUnsaturated(int candidateCount) {
+        long subtotalCents = Money.ofMajor(5000.00);
+        
+        for (long seed = 0; seed < 20; seed++) {
+            for (double incompatibilityRate : new double[] {0.05, 0.15, 0.5}) {
+                List<Promotion> promotions = TestDataGenerator.generatePromotionCatalog(candidateCount,
+                        incompatibilityRate, seed, true);
+                
+                PromotionCombinationSolver.Result result =
+                        PromotionCombinationSolver.solve(promotions, subtotalCents, TODAY);
+                
+                assertThat(result.getDiscountCents()).as("seed %d rate %s", seed, incompatibilityRate)
+                        .isEqualTo(exhaustiveBestDiscount(promotions, subtotalCents))
+                        .isLessThan(subtotalCents);
+                assertPairwiseCompatible(result.getPromotions());
+            }
+        }
+    }
+    
+    @Test
+    @DisplayName("Incompatible first code no longer blocks a better combination")
+    public void testBetterCombinationWinsOverEntryOrder() {
+        LocalDate start = TODAY.minusDays(1);
+        LocalDate end = TODAY.plusDays(1);
+        Promotion sale30 = new Promotion("SALE30", "Special Sale 30% Off", 30.0, start, end, false);
+        Promotion summer25 = new Promotion("SUMMER25", "Summer Collection 25% Off", 25.0, start, end, true);
+        Promotion summer10 = new Promotion("SUMMER10", "Summer Special 10% Off", 10.0, start, end, true);
+        
+        ShoppingCart cart = new ShoppingCart();
+        cart.addProduct(new Product("P001", "Slim Fit Jeans", 100.00, 1));
+        
+        List<Promotion> applied = cart.applyBestPromotions(List.of(sale30, summer25, summer10));
+        
+        assertThat(applied).extracting(Promotion::getCode).containsExactly("SUMMER25", "SUMMER10");
+        assertThat(cart.getTotalDiscountCents()).isEqualTo(Money.ofMajor(35.00));
+        logger.info("Best combination applied: {}", cart.getAppliedPromotions().keySet());
+    }
+    
+    @Test
+    @DisplayName("Sixty-four candidates are solved to a compatible set no worse than a greedy pick")
+    public void testSixtyFourCandidates() {
+        List<Promotion> promotions = TestDataGenerator.generatePromotionCatalog(64, 0.3, 7);
+        long subtotalCents = Money.ofMajor(1250.00);
+        
+        PromotionCombinationSolver.Result result = PromotionCombinationSolver.solve(promotions, subtotalCents, TODAY);
+        
+        // Too many for exhaustive search, so compare with a greedy pick by discount, which is
+        // always a compatible set: the solver must do at least as well
+        List<Promotion> byDiscount = new ArrayList<>();
+        for (Promotion promotion : promotions) {
+            if (promotion.isActive(TODAY)) {
+                byDiscount.add(promotion);
+            }
+        }
+        byDiscount.sort(Comparator.comparingLong(
+                (Promotion promotion) -> promotion.calculateDiscountCents(subtotalCents)).reversed());
+        List<Promotion> greedy = new ArrayList<>();
+        long greedyDiscount = 0;
+        for (Promotion promotion : byDiscount) {
+            if (greedy.stream().allMatch(chosen -> chosen.isCompatibleWith(promotion))) {
+                greedy.add(promotion);
+                greedyDiscount += promotion.calculateDiscountCents(subtotalCents);
+            }
+        }
+        assertPairwiseCompatible(result.getPromotions());
+        assertThat(result.getDiscountCents()).isGreaterThanOrEqualTo(greedyDiscount);
+        assertThat(PromotionCombinationSolver.solve(promotions, subtotalCents, TODAY).getDiscountCents())
+                .isEqualTo(result.getDiscountCents());
+        logger.info("Solved 64 candidates, discount {}", Money.format(result.getDiscountCents()));
+    }
+    
+    private long exhaustiveBestDiscount(List<Promotion> promotions, long subtotalCents) {
+        int n = promotions.size();
+        long best = 0;
+        for (int mask = 1; mask < (1 << n); mask++) {
+            long discount = 0;
+            boolean compatible = true;
+            for (int i = 0; i < n && compatible; i++) {
+                if ((mask >> i & 1) == 0) {
+                    continue;
+                }
+                discount += promotions.get(i).calculateDiscountCents(subtotalCents);
+                for (int j = i + 1; j < n; j++) {
+                    if ((mask >> j & 1) == 1 && !promotions.get(i).isCompatibleWith(promotions.get(j))) {
+                        compatible = false;
+                        break;
+                    }
+                }
+            }
+            if (compatible) {
+                best = Math.max(best, Math.min(discount, subtotalCents));
+            }
+        }
+        return best;
+    }
+    
+    private void assertPairwiseCompatible(List<Promotion> promotions) {
+        for (int i = 0; i < promotions.size(); i++) {
+            for (int j = i + 1; j < promotions.size(); j++) {
+                assertThat(promotions.get(i).isCompatibleWith(promotions.get(j))).isTrue();
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.retailer.cart.tests;
+
+import com.retailer.cart.models.Money;
+import com.retailer.cart.models.Product;
+import com.retailer.cart.models.Promotion;
+import com.retailer.cart.models.PromotionPlan;
+import com.retailer.cart.models.ShoppingCart;
+import com.retailer.cart.utils.TestDataGenerator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("pricing")
+@DisplayName("Promotion Plan Tests")
+public class PromotionPlanTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PromotionPlanTest.class);
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final Promotion SUMMER25 = new Promotion("SUMMER25", "Summer Collection 25% Off", 25.0,
+            TODAY.minusDays(10), TODAY.plusDays(10), true);
+    private static final Promotion SUMMER10 = new Promotion("SUMMER10", "Summer Special 10% Off", 10.0,
+            TODAY.minusDays(10), TODAY.plusDays(10), true);
+    private static final List<Promotion> CATALOG = List.of(SUMMER25, SUMMER10);
+    
+    @Test
+    @DisplayName("A plan-backed cart accepts and rejects the same codes as a plain cart")
+    public void testPlanMatchesPerObjectChecks() {
+        List<Promotion> catalog = TestDataGenerator.generatePromotionCatalog(30, 0.3, 5);
+        PromotionPlan plan = PromotionPlan.compile(catalog, 1, TODAY);
+        Random random = new Random(13);
+        
+        for (int c = 0; c < 200; c++) {
+            ShoppingCart planned = new ShoppingCart(plan);
+            ShoppingCart plain = new ShoppingCart();
+            planned.addProduct(new Product("P001", "Slim Fit Jeans", 50.00 + c, 1 + c % 3));
+            plain.addProduct(new Product("P001", "Slim Fit Jeans", 50.00 + c, 1 + c % 3));
+            for (int a = 0; a < 4; a++) {
+                Promotion promotion = catalog.get(random.nextInt(catalog.size()));
+                assertThat(planned.applyPromotion(promotion)).as("cart %d %s", c, promotion.getCode())
+                        .isEqualTo(plain.applyPromotion(promotion));
+            }
+            assertThat(planned.getTotalDiscountCents()).as("cart %d", c).isEqualTo(plain.getTotalDiscountCents());
+            // With several conflicts the two paths may name a different one, so only count them
+            assertThat(planned.getErrorMessages()).hasSize(plain.getErrorMessages().size());
+        }
+    }
+    
+    @Test
+    @DisplayName("A caller-built expired promotion under a catalog code is rejected")
+    public void testForeignExpiredPromotionIsRejected() {
+        ShoppingCart cart = new ShoppingCart(PromotionPlan.compile(CATALOG, 1, TODAY));
+        cart.addProduct(new Product("P001", "Slim Fit Jeans", 100.00, 1));
+        Promotion expired = new Promotion("SUMMER25", "Summer Collection 25% Off", 25.0,
+                TODAY.minusDays(60), TODAY.minusDays(30), true);
+        
+        assertThat(cart.applyPromotion(expired)).isFalse();
+        assertThat(cart.getErrorMessages()).containsExactly("This promotion code has expired");
+        assertThat(cart.getAppliedPromotions()).isEmpty();
+        assertThat(cart.applyPromotion(SUMMER25)).isTrue();
+    }
+    
+    @Test
+    @DisplayName("A caller-built promotion is priced and combined by its own rules")
+    public void testForeignPromotionKeepsItsOwnRules() {
+        ShoppingCart cart = new ShoppingCart(PromotionPlan.compile(CATALOG, 1, TODAY));
+        cart.addProduct(new Product("P001", "Slim Fit Jeans", 100.00, 1));
+        // Same code as the catalog's combinable 10%, but 40% off and not combinable
+        Promotion exclusive = new Promotion("SUMMER10", "Summer Special 40% Off", 40.0,
+                TODAY.minusDays(1), TODAY.plusDays(1), false);
+        
+        assertThat(cart.applyPromotion(SUMMER25)).isTrue();
+        assertThat(cart.applyPromotion(exclusive)).isFalse();
+        assertThat(cart.getErrorMessages()).hasSize(1);
+        
+        cart.removePromotion("SUMMER25");
+        assertThat(cart.applyPromotion(exclusive)).isTrue();
+        assertThat(cart.getTotalDiscountCents()).isEqualTo(Money.ofMajor(40.00));
+        // Once a foreign promotion is applied, the catalog's own objects are checked against it too
+        assertThat(cart.applyPromotion(SUMMER25)).isFalse();
+        logger.info("Foreign promotion applied: {}", cart.getDiscountBreakdown());
+    }
+    
+    @Test
+    @DisplayName("A caller-built promotion replacing the plan's own object is priced as applied")
+    public void testForeignPromotionReplacesPlannedObject() {
+        ShoppingCart planned = new ShoppingCart(PromotionPlan.compile(CATALOG, 1, TODAY));
+        ShoppingCart plain = new ShoppingCart();
+        planned.addProduct(new Product("P001", "Slim Fit Jeans", 100.00, 1));
+        plain.addProduct(new Product("P001", "Slim Fit Jeans", 100.00, 1));
+        Promotion richer = new Promotion("SUMMER10", "Summer Special 40% Off", 40.0,
+                TODAY.minusDays(1), TODAY.plusDays(1), true);
+        
+        assertThat(planned.applyPromotion(SUMMER10)).isTrue();
+        assertThat(planned.applyPromotion(richer)).isTrue();
+        assertThat(plain.applyPromotion(SUMMER10)).isTrue();
+        assertThat(plain.applyPromotion(richer)).isTrue();
+        
+        assertThat(planned.getTotalDiscountCents()).isEqualTo(Money.ofMajor(40.00))
+                .isEqualTo(plain.getTotalDiscountCents())
+                .isEqualTo(planned.getDiscountBreakdown().getTotalCents());
+        
+        // Putting the plan's own object back returns the cart to the plan path
+        assertThat(planned.applyPromotion(SUMMER10)).isTrue();
+        assertThat(planned.getTotalDiscountCents()).isEqualTo(Money.ofMajor(10.00));
+    }
+}
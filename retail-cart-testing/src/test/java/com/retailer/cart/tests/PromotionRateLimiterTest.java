@@ -0,0 +1,154 @@
+package com.retailer.cart.tests;
+
+import com.retailer.cart.utils.PromotionRateLimiter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Tag("security")
+@DisplayName("Promotion Rate Limiter Tests")
+public class PromotionRateLimiterTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PromotionRateLimiterTest.class);
+    /** A clock that does not start at zero, as {@link System#nanoTime()} does not */
+    private static final long ORIGIN = 7_000_000_000L;
+    private static final String CLIENT = "client-1";
+    
+    @Test
+    @DisplayName("A fresh bucket allows exactly the burst, then refuses")
+    public void testBurstBound() {
+        PromotionRateLimiter limiter = new PromotionRateLimiter(1024, 5, 1, ORIGIN);
+        
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire(CLIENT, ORIGIN)).as("attempt %d", i).isTrue();
+        }
+        assertThat(limiter.tryAcquire(CLIENT, ORIGIN)).isFalse();
+        assertThat(limiter.availableTokens(CLIENT)).isZero();
+    }
+    
+    @Test
+    @DisplayName("Tokens come back at the refill rate, to the millisecond")
+    public void testRefillMath() {
+        PromotionRateLimiter limiter = new PromotionRateLimiter(1024, 5, 2, ORIGIN);
+        drain(limiter, ORIGIN);
+        
+        // Two per second is one token every 500ms
+        assertThat(limiter.tryAcquire(CLIENT, at(499))).isFalse();
+        assertThat(limiter.tryAcquire(CLIENT, at(500))).isTrue();
+        assertThat(limiter.tryAcquire(CLIENT, at(500))).isFalse();
+        assertThat(limiter.tryAcquire(CLIENT, at(1_750))).isTrue();
+        assertThat(limiter.tryAcquire(CLIENT, at(1_750))).isTrue();
+        assertThat(limiter.tryAcquire(CLIENT, at(1_750))).isFalse();
+    }
+    
+    @Test
+    @DisplayName("Fractions of a token carry over between attempts")
+    public void testFractionalRefillCarriesOver() {
+        PromotionRateLimiter limiter = new PromotionRateLimiter(1024, 5, 3, ORIGIN);
+        drain(limiter, ORIGIN);
+        
+        // 334ms at three per second is 1.002 tokens; the 0.002 left joins the next 333ms
+        assertThat(limiter.tryAcquire(CLIENT, at(333))).isFalse();
+        assertThat(limiter.tryAcquire(CLIENT, at(334))).isTrue();
+        assertThat(limiter.tryAcquire(CLIENT, at(667))).isTrue();
+        assertThat(limiter.tryAcquire(CLIENT, at(999))).isFalse();
+        assertThat(limiter.tryAcquire(CLIENT, at(1_000))).isTrue();
+    }
+    
+    @Test
+    @DisplayName("A long idle period refills only up to the burst")
+    public void testRefillIsCappedAtBurst() {
+        PromotionRateLimiter limiter = new PromotionRateLimiter(1024, 5, 1, ORIGIN);
+        drain(limiter, ORIGIN);
+        
+        long anHourLater = at(TimeUnit.HOURS.toMillis(1));
+        assertThat(drain(limiter, anHourLater)).isEqualTo(5);
+    }
+    
+    @Test
+    @DisplayName("An attempt stamped before the bucket's last use mints no tokens")
+    public void testLateCallerMintsNoTokens() {
+        PromotionRateLimiter limiter = new PromotionRateLimiter(1024, 5, 1, ORIGIN);
+        drain(limiter, at(10_000));
+        
+        // A thread that read the clock earlier, or a clock reading before the origin
+        assertThat(limiter.tryAcquire(CLIENT, at(2_000))).isFalse();
+        assertThat(limiter.tryAcquire(CLIENT, ORIGIN - TimeUnit.SECONDS.toNanos(5))).isFalse();
+        assertThat(limiter.tryAcquire(CLIENT, at(10_999))).isFalse();
+        assertThat(limiter.tryAcquire(CLIENT, at(11_000))).isTrue();
+    }
+    
+    @Test
+    @DisplayName("Concurrent attempts on one key never exceed the burst")
+    public void testConcurrentBurstBound() throws Exception {
+        int burst = 50;
+        PromotionRateLimiter limiter = new PromotionRateLimiter(1024, burst, 1, ORIGIN);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int granted = 0;
+                    for (int i = 0; i < 10_000; i++) {
+                        // Everyone within the same millisecond, so no refill can hide an excess
+                        if (limiter.tryAcquire(CLIENT, ORIGIN + i % 1_000)) {
+                            granted++;
+                        }
+                    }
+                    return granted;
+                }));
+            }
+            start.countDown();
+            int granted = 0;
+            for (Future<Integer> future : futures) {
+                granted += future.get();
+            }
+            assertThat(granted).isEqualTo(burst);
+            logger.info("{} threads contending on one bucket were granted {} attempts", threads, granted);
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    @Test
+    @DisplayName("Stripes round up to a power of two and the burst is range-checked")
+    public void testConstructorBounds() {
+        assertThat(new PromotionRateLimiter(1000, 5, 1).stripes()).isEqualTo(1024);
+        assertThat(new PromotionRateLimiter(1024, 5, 1).stripes()).isEqualTo(1024);
+        assertThat(new PromotionRateLimiter(1, 5, 1).stripes()).isEqualTo(2);
+        assertThatThrownBy(() -> new PromotionRateLimiter(16, 0, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new PromotionRateLimiter(16, 4_195, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(new PromotionRateLimiter(16, 4_194, 1).availableTokens(CLIENT)).isEqualTo(4_194);
+    }
+    
+    /**
+     * @return how many attempts the bucket granted before refusing
+     */
+    private static int drain(PromotionRateLimiter limiter, long nowNanos) {
+        int granted = 0;
+        while (limiter.tryAcquire(CLIENT, nowNanos)) {
+            granted++;
+        }
+        return granted;
+    }
+    
+    private static long at(long millis) {
+        return ORIGIN + TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
@@ -0,0 +1,159 @@
+package com.retailer.cart.tests;
+
+import com.retailer.cart.models.Promotion;
+import com.retailer.cart.utils.PromotionRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("pricing")
+@DisplayName("Promotion Registry Tests")
+public class PromotionRegistryTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PromotionRegistryTest.class);
+    
+    private static final String JSON = "{\n"
+            + "  \"promotions\": [\n"
+            + "    {\"code\": \"SUMMER10\", \"discountType\": \"PERCENTAGE\", \"discountValue\": 10.0,\n"
+            + "     \"startDate\": \"2025-06-01\", \"endDate\": \"2025-08-31\", \"minSpend\": 0.0,\n"
+            + "     \"combinable\": true, \"description\": \"Summer discount\",\n"
+            + "     \"incompatibleWith\": [\"SALE30\"]},\n"
+            + "    {\"code\": \"FIVEOFF\", \"discountType\": \"FIXED_AMOUNT\", \"discountValue\": 5.0,\n"
+            + "     \"minSpend\": 25.0, \"combinable\": false}\n"
+            + "  ]\n"
+            + "}\n";
+    
+    private static final String CSV = "promoCode,description,discountPercentage,isCombinable,startDate,endDate\n"
+            + "SALE30,Special Sale 30% Off,30,false,2025-01-01,\n"
+            + "WELCOME5,Welcome 5% Off,5,true,,2025-12-31\n";
+    
+    // Each test publishes into a registry of its own, never into getInstance()
+    private final PromotionRegistry registry = new PromotionRegistry();
+    
+    @TempDir
+    Path tempDir;
+    
+    @Test
+    @DisplayName("JSON entries map every field, and missing dates never expire")
+    public void testReloadJson() throws Exception {
+        Path file = write("promotions.json", JSON);
+        PromotionRegistry.Snapshot snapshot = registry.reload(file);
+        
+        assertThat(snapshot.getVersion()).isEqualTo(1);
+        assertThat(snapshot.getSource()).isEqualTo(file.toString());
+        assertThat(snapshot.getPromotions()).extracting(Promotion::getCode).containsExactly("SUMMER10", "FIVEOFF");
+        
+        Promotion summer = snapshot.getPromotion("SUMMER10");
+        assertThat(summer.getDiscountType()).isEqualTo(Promotion.DiscountType.PERCENTAGE);
+        assertThat(summer.getDiscountPercentage()).isEqualTo(10.0);
+        assertThat(summer.getStartDate()).isEqualTo(LocalDate.of(2025, 6, 1));
+        assertThat(summer.getEndDate()).isEqualTo(LocalDate.of(2025, 8, 31));
+        assertThat(summer.getDescription()).isEqualTo("Summer discount");
+        assertThat(summer.isCombinableWithOthers()).isTrue();
+        assertThat(summer.getIncompatiblePromotions()).containsExactly("SALE30");
+        
+        Promotion fiveOff = snapshot.getPromotion("FIVEOFF");
+        assertThat(fiveOff.getDiscountType()).isEqualTo(Promotion.DiscountType.FIXED_AMOUNT);
+        assertThat(fiveOff.getDiscountAmount()).isEqualTo(5.0);
+        assertThat(fiveOff.getMinSpendCents()).isEqualTo(2_500);
+        assertThat(fiveOff.isCombinableWithOthers()).isFalse();
+        assertThat(fiveOff.getStartDate()).isEqualTo(LocalDate.MIN);
+        assertThat(fiveOff.getEndDate()).isEqualTo(LocalDate.MAX);
+    }
+    
+    @Test
+    @DisplayName("CSV rows use the promotions.csv column names, and empty dates never expire")
+    public void testReloadCsv() throws Exception {
+        PromotionRegistry.Snapshot snapshot = registry.reload(write("promotions.csv", CSV));
+        
+        Promotion sale = snapshot.getPromotion("SALE30");
+        assertThat(sale.getDiscountType()).isEqualTo(Promotion.DiscountType.PERCENTAGE);
+        assertThat(sale.getDiscountPercentage()).isEqualTo(30.0);
+        assertThat(sale.getDescription()).isEqualTo("Special Sale 30% Off");
+        assertThat(sale.isCombinableWithOthers()).isFalse();
+        assertThat(sale.getStartDate()).isEqualTo(LocalDate.of(2025, 1, 1));
+        assertThat(sale.getEndDate()).isEqualTo(LocalDate.MAX);
+        
+        Promotion welcome = snapshot.getPromotion("WELCOME5");
+        assertThat(welcome.isCombinableWithOthers()).isTrue();
+        assertThat(welcome.getStartDate()).isEqualTo(LocalDate.MIN);
+        assertThat(welcome.getEndDate()).isEqualTo(LocalDate.of(2025, 12, 31));
+        assertThat(welcome.isActive(LocalDate.of(1970, 1, 1))).isTrue();
+    }
+    
+    @Test
+    @DisplayName("The bundled CSV resource loads without dates")
+    public void testReloadFromResource() {
+        PromotionRegistry.Snapshot snapshot = registry.reloadFromResource("testdata/promotions.csv");
+        
+        assertThat(snapshot.getPromotions()).hasSize(8);
+        assertThat(snapshot.getPromotions()).allSatisfy(promotion -> {
+            assertThat(promotion.getStartDate()).isEqualTo(LocalDate.MIN);
+            assertThat(promotion.getEndDate()).isEqualTo(LocalDate.MAX);
+        });
+    }
+    
+    @Test
+    @DisplayName("Reloading only when the file changed keeps the current snapshot otherwise")
+    public void testReloadIfModified() throws Exception {
+        Path file = write("promotions.json", JSON);
+        PromotionRegistry.Snapshot first = registry.reloadIfModified(file);
+        assertThat(first.getVersion()).isEqualTo(1);
+        assertThat(registry.reloadIfModified(file)).isSameAs(first);
+        
+        // Move the clock on explicitly; a rewrite within the file system's timestamp resolution looks unchanged
+        Files.writeString(file, JSON.replace("SUMMER10", "SUMMER15"), StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(first.getSourceModified().toMillis() + 60_000));
+        PromotionRegistry.Snapshot second = registry.reloadIfModified(file);
+        
+        assertThat(second.getVersion()).isEqualTo(2);
+        assertThat(second.getPromotions()).extracting(Promotion::getCode).containsExactly("SUMMER15", "FIVEOFF");
+        assertThat(registry.reloadIfModified(file)).isSameAs(second);
+        
+        // A different file with the same contents is a new source
+        Path copy = write("copy.json", JSON);
+        assertThat(registry.reloadIfModified(copy).getVersion()).isEqualTo(3);
+    }
+    
+    @Test
+    @DisplayName("A snapshot taken before a publish keeps its own promotions and index")
+    public void testSnapshotIsolation() throws Exception {
+        PromotionRegistry.Snapshot before = registry.reload(write("promotions.json", JSON));
+        LocalDate date = LocalDate.of(2025, 7, 1);
+        assertThat(before.getActiveIndex().activeOn(date)).extracting(Promotion::getCode)
+                .containsExactly("SUMMER10", "FIVEOFF");
+        
+        Promotion winter = new Promotion("WINTER15", "Winter 15% Off", 15.0,
+                LocalDate.of(2025, 12, 1), LocalDate.of(2026, 2, 28), true);
+        PromotionRegistry.Snapshot after = registry.publish(List.of(winter), "winter");
+        
+        assertThat(registry.snapshot()).isSameAs(after);
+        assertThat(after.getVersion()).isEqualTo(before.getVersion() + 1);
+        assertThat(after.getPromotion("SUMMER10")).isNull();
+        assertThat(after.getActiveIndex().activeOn(date)).isEmpty();
+        assertThat(before.getPromotions()).extracting(Promotion::getCode).containsExactly("SUMMER10", "FIVEOFF");
+        assertThat(before.getPromotion("WINTER15")).isNull();
+        assertThat(before.getActiveIndex().activeOn(date)).hasSize(2);
+        assertThat(before.getCompatibilityMatrix()).isNotSameAs(after.getCompatibilityMatrix());
+        logger.info("Snapshot {} still held {} promotions after version {} was published",
+                before.getVersion(), before.getPromotions().size(), after.getVersion());
+    }
+    
+    private Path write(String name, String contents) throws Exception {
+        Path file = tempDir.resolve(name);
+        Files.writeString(file, contents, StandardCharsets.UTF_8);
+        return file;
+    }
+}
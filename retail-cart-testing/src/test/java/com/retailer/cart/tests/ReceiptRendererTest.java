@@ -0,0 +1,86 @@
+package com.retailer.cart.tests;
+
+import com.retailer.cart.models.Product;
+import com.retailer.cart.models.Promotion;
+import com.retailer.cart.models.ReceiptRenderer;
+import com.retailer.cart.models.ShoppingCart;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("pricing")
+@DisplayName("Receipt Renderer Tests")
+public class ReceiptRendererTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReceiptRendererTest.class);
+    private static final LocalDate START = LocalDate.now().minusDays(1);
+    private static final LocalDate END = LocalDate.now().plusDays(1);
+    
+    /**
+     * The receipt as ShoppingCart.toString() printed it before rendering moved to ReceiptRenderer.
+     */
+    private static final String RECEIPT_WITH_PROMOTIONS = "Shopping Cart:\n"
+            + "  Slim Fit Jeans (2) - $119.98\n"
+            + "  Running Shoes (1) - $120.00\n"
+            + "\nSubtotal: $239.98"
+            + "\nApplied Promotions:"
+            + "\n  SUMMER10 - Summer Sale 10% Off"
+            + "\n  FIVEOFF - $5 Off Your Order"
+            + "\nTotal Discount: $29.00"
+            + "\nFinal Price: $210.98";
+    
+    @Test
+    @DisplayName("A cart with lines, promotions and a discount prints the established receipt")
+    public void testReceiptWithPromotions() {
+        ShoppingCart cart = new ShoppingCart();
+        cart.addProduct(new Product("P001", "Slim Fit Jeans", 59.99, 2));
+        cart.addProduct(new Product("P002", "Running Shoes", 120.00, 1));
+        cart.applyPromotion(new Promotion("SUMMER10", "Summer Sale 10% Off", 10.0, START, END, true));
+        cart.applyPromotion(new Promotion("FIVEOFF", "$5 Off Your Order", 5.00, false, START, END, true));
+        
+        assertThat(cart.toString()).isEqualTo(RECEIPT_WITH_PROMOTIONS);
+        ReceiptRenderer renderer = new ReceiptRenderer();
+        assertThat(renderer.render(cart).toString()).isEqualTo(RECEIPT_WITH_PROMOTIONS);
+        // A second render into the reused builder starts afresh
+        assertThat(renderer.render(cart).toString()).isEqualTo(RECEIPT_WITH_PROMOTIONS);
+    }
+    
+    @Test
+    @DisplayName("A cart without promotions omits the promotion section")
+    public void testReceiptWithoutPromotions() {
+        ShoppingCart cart = new ShoppingCart();
+        cart.addProduct(new Product("P003", "Cotton T-Shirt", 19.99, 3));
+        
+        assertThat(cart.toString()).isEqualTo("Shopping Cart:\n"
+                + "  Cotton T-Shirt (3) - $59.97\n"
+                + "\nSubtotal: $59.97"
+                + "\nFinal Price: $59.97");
+    }
+    
+    @Test
+    @DisplayName("The receipt encoded into a byte buffer is the UTF-8 of the text receipt")
+    public void testRenderToByteBuffer() {
+        ShoppingCart cart = new ShoppingCart();
+        cart.addProduct(new Product("P004", "Café Crème Mug – 350 ml 🍵", 12.50, 2));
+        cart.applyPromotion(new Promotion("SUMMER10", "Summer Sale 10% Off", 10.0, START, END, true));
+        
+        ByteBuffer out = ByteBuffer.allocate(512);
+        out.put((byte) '>');
+        new ReceiptRenderer().renderTo(cart, out);
+        
+        byte[] expected = cart.toString().getBytes(StandardCharsets.UTF_8);
+        out.flip().get();
+        byte[] actual = new byte[out.remaining()];
+        out.get(actual);
+        logger.info("Encoded a {}-character receipt into {} bytes", cart.toString().length(), actual.length);
+        assertThat(actual).isEqualTo(expected);
+    }
+}
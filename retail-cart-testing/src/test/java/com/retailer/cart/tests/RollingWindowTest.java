@@ -0,0 +1,144 @@
+package com.retailer.cart.tests;
+
+import com.retailer.cart.utils.RollingWindow;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@Tag("performance")
+@DisplayName("Rolling Window Tests")
+public class RollingWindowTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RollingWindowTest.class);
+    /** A clock that does not start at zero, as {@link System#nanoTime()} does not */
+    private static final long ORIGIN = 5_000_000_123L;
+    private static final long SLOT = 1_000_000_000L;
+    private static final int MAX_WINDOW_SLOTS = 3;
+    private static final long HIGHEST_TRACKABLE = 60_000_000_000L;
+    
+    @Test
+    @DisplayName("A window holds its whole slots plus the one in progress")
+    public void testWindowCountsItsSlots() {
+        RollingWindow window = newWindow();
+        // Tick t gets t + 1 samples, recorded halfway through the slot
+        for (int tick = 0; tick <= 5; tick++) {
+            for (int i = 0; i <= tick; i++) {
+                window.record(at(tick, SLOT / 2), 1_000_000, false);
+            }
+        }
+        
+        long now = at(5, SLOT * 3 / 4);
+        assertThat(window.stats(now, 3).getRequestCount()).isEqualTo(3 + 4 + 5 + 6);
+        assertThat(window.stats(now, 1).getRequestCount()).isEqualTo(5 + 6);
+        // Longer windows are clamped to what the ring keeps, and zero to one slot
+        assertThat(window.stats(now, 10).getRequestCount()).isEqualTo(3 + 4 + 5 + 6);
+        assertThat(window.stats(now, 0).getRequestCount()).isEqualTo(5 + 6);
+    }
+    
+    @Test
+    @DisplayName("The last nanosecond of a slot belongs to it and the next one starts a new slot")
+    public void testSlotBoundaries() {
+        RollingWindow window = newWindow();
+        window.record(at(0, SLOT - 1), 1_000_000, false);
+        window.record(at(1, 0), 2_000_000, true);
+        window.record(at(1, 1), 2_000_000, false);
+        
+        assertThat(window.stats(at(0, SLOT - 1), 3).getRequestCount()).isEqualTo(1);
+        RollingWindow.Stats current = window.stats(at(1, 0), 3);
+        assertThat(current.getRequestCount()).isEqualTo(3);
+        assertThat(current.getErrorCount()).isEqualTo(1);
+        // At tick 4 tick 1 is the oldest slot in the window, and at tick 5 it has dropped out
+        assertThat(window.stats(at(4, 0), 3).getRequestCount()).isEqualTo(2);
+        assertThat(window.stats(at(5, 0), 3).getRequestCount()).isZero();
+    }
+    
+    @Test
+    @DisplayName("A slot left over from a previous lap of the ring is not counted")
+    public void testStaleSlotIsSkipped() {
+        RollingWindow window = newWindow();
+        window.record(at(2, 0), 1_000_000, true);
+        
+        // Tick 6 maps to the same ring index as tick 2, but nothing has been recorded in it
+        RollingWindow.Stats stats = window.stats(at(6, SLOT / 2), 3);
+        
+        assertThat(stats.getRequestCount()).isZero();
+        assertThat(stats.getErrorCount()).isZero();
+        assertThat(stats.getErrorRate()).isZero();
+        assertThat(stats.getValueAtPercentile(99.0)).isZero();
+    }
+    
+    @Test
+    @DisplayName("A late sample for a slot the ring has reused is dropped")
+    public void testLateSampleIsRejected() {
+        RollingWindow window = newWindow();
+        window.record(at(6, 0), 1_000_000, false);
+        
+        // A thread that stalled since tick 2, whose ring slot now belongs to tick 6
+        window.record(at(2, SLOT / 2), 9_000_000, true);
+        // A late sample whose slot has not been reused still lands in it
+        window.record(at(5, SLOT / 2), 3_000_000, false);
+        
+        RollingWindow.Stats stats = window.stats(at(6, SLOT / 2), 3);
+        assertThat(stats.getRequestCount()).isEqualTo(2);
+        assertThat(stats.getErrorCount()).isZero();
+        assertThat(stats.getValueAtPercentile(100.0)).isLessThan(9_000_000);
+    }
+    
+    @Test
+    @DisplayName("Covered time grows with the run until the window is full")
+    public void testCoveredNanos() {
+        RollingWindow window = newWindow();
+        
+        // Before the origin, and at it, nothing is covered yet
+        assertThat(window.stats(ORIGIN - SLOT, 3).getCoveredNanos()).isZero();
+        assertThat(window.stats(ORIGIN, 3).getCoveredNanos()).isZero();
+        assertThat(window.stats(ORIGIN, 3).getRequestsPerSecond()).isZero();
+        assertThat(window.stats(at(0, SLOT / 4), 3).getCoveredNanos()).isEqualTo(SLOT / 4);
+        assertThat(window.stats(at(2, SLOT / 2), 3).getCoveredNanos()).isEqualTo(2 * SLOT + SLOT / 2);
+        assertThat(window.stats(at(3, 0), 3).getCoveredNanos()).isEqualTo(3 * SLOT);
+        // From then on a window covers its whole slots plus the part of the current one
+        assertThat(window.stats(at(7, SLOT / 4), 3).getCoveredNanos()).isEqualTo(3 * SLOT + SLOT / 4);
+        assertThat(window.stats(at(7, SLOT / 4), 1).getCoveredNanos()).isEqualTo(SLOT + SLOT / 4);
+    }
+    
+    @Test
+    @DisplayName("Rate, error rate and percentiles come from the merged slots")
+    public void testMergedStatistics() {
+        RollingWindow window = newWindow();
+        for (int tick = 10; tick <= 12; tick++) {
+            for (int i = 1; i <= 100; i++) {
+                // 1ms to 100ms in each slot, with every tenth request failing
+                window.record(at(tick, i * (SLOT / 200)), i * 1_000_000L, i % 10 == 0);
+            }
+        }
+        
+        RollingWindow.Stats stats = window.stats(at(12, SLOT / 2), 3);
+        
+        assertThat(stats.getRequestCount()).isEqualTo(300);
+        assertThat(stats.getErrorCount()).isEqualTo(30);
+        assertThat(stats.getErrorRate()).isCloseTo(10.0, within(1e-9));
+        // Tick 9 is inside the window but empty: 300 requests over 3.5 seconds
+        assertThat(stats.getCoveredNanos()).isEqualTo(3 * SLOT + SLOT / 2);
+        assertThat(stats.getRequestsPerSecond()).isCloseTo(300 / 3.5, within(1e-9));
+        assertThat((double) stats.getValueAtPercentile(50.0)).isCloseTo(50_000_000.0, within(50_000_000 * 0.03));
+        assertThat((double) stats.getValueAtPercentile(99.0)).isCloseTo(99_000_000.0, within(99_000_000 * 0.03));
+        logger.info("p50 {}ns, p99 {}ns, {} req/s", stats.getValueAtPercentile(50.0),
+                stats.getValueAtPercentile(99.0), String.format("%.1f", stats.getRequestsPerSecond()));
+    }
+    
+    private static RollingWindow newWindow() {
+        return new RollingWindow(ORIGIN, SLOT, MAX_WINDOW_SLOTS, HIGHEST_TRACKABLE);
+    }
+    
+    /**
+     * @return the clock reading {@code offsetNanos} into slot {@code tick}
+     */
+    private static long at(long tick, long offsetNanos) {
+        return ORIGIN + tick * SLOT + offsetNanos;
+    }
+}
@@ -0,0 +1,217 @@
+package com.retailer.cart.tests;
+
+import com.retailer.cart.models.ConcurrentShoppingCart;
+import com.retailer.cart.models.Money;
+import com.retailer.cart.models.PersistentShoppingCart;
+import com.retailer.cart.models.Product;
+import com.retailer.cart.models.Promotion;
+import com.retailer.cart.models.PromotionPlan;
+import com.retailer.cart.models.ScopedPromotion;
+import com.retailer.cart.models.ShoppingCart;
+import com.retailer.cart.utils.BatchCartPricer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Tag("pricing")
+@DisplayName("Scoped Promotion Tests")
+public class ScopedPromotionTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ScopedPromotionTest.class);
+    private static final LocalDate START = LocalDate.now().minusDays(1);
+    private static final LocalDate END = LocalDate.now().plusDays(1);
+    
+    @Test
+    @DisplayName("Scoped discounts on one line never exceed the line's value")
+    public void testLineDiscountsAreCappedAtLineValue() {
+        ShoppingCart cart = new ShoppingCart();
+        cart.addProduct(new Product("P001", "Slim Fit Jeans", 100.00, 1));
+        cart.applyPromotion(percentageOff("JEANS70A", 70.0, List.of("P001"), List.of()));
+        cart.applyPromotion(percentageOff("JEANS70B", 70.0, List.of("P001"), List.of()));
+        cart.applyPromotion(new Promotion("SAVE10", "Save 10%", 10.0, START, END, true));
+        
+        assertThat(cart.getDiscountBreakdown().getDiscountCents("JEANS70A")).isEqualTo(Money.ofMajor(70.00));
+        assertThat(cart.getDiscountBreakdown().getDiscountCents("JEANS70B")).isEqualTo(Money.ofMajor(30.00));
+        assertThat(cart.getDiscountBreakdown().getDiscountCents("SAVE10")).isEqualTo(0L);
+        assertThat(cart.getTotalDiscountCents()).isEqualTo(Money.ofMajor(100.00));
+        assertThat(cart.getFinalPriceCents()).isEqualTo(0L);
+        logger.info("Capped receipt:\n{}", cart);
+    }
+    
+    @Test
+    @DisplayName("Percentage off a category discounts only the lines in it")
+    public void testPercentageOffCategory() {
+        ShoppingCart cart = new ShoppingCart();
+        cart.addProduct(product("P001", "Slim Fit Jeans", 80.00, 2, "Clothing"));
+        cart.addProduct(product("P002", "Running Shoes", 120.00, 1, "Footwear"));
+        cart.addProduct(product("P003", "Leather Belt", 25.00, 1, "clothing "));
+        
+        cart.applyPromotion(percentageOff("CLOTHING20", 20.0, List.of(), List.of("Clothing")));
+        
+        // 20% of 160.00 + 25.00; categories match ignoring case and padding
+        assertThat(cart.getTotalDiscountCents()).isEqualTo(Money.ofMajor(37.00));
+        assertThat(cart.getFinalPriceCents()).isEqualTo(Money.ofMajor(268.00));
+    }
+    
+    @Test
+    @DisplayName("A line added after the promotion is matched by its category")
+    public void testLineAddedAfterPromotionIsMatched() {
+        ShoppingCart cart = new ShoppingCart();
+        cart.addProduct(product("P002", "Running Shoes", 120.00, 1, "Footwear"));
+        cart.applyPromotion(percentageOff("CLOTHING20", 20.0, List.of(), List.of("Clothing")));
+        assertThat(cart.getTotalDiscountCents()).isEqualTo(0L);
+        
+        cart.addProduct(product("P001", "Slim Fit Jeans", 80.00, 1, "Clothing"));
+        
+        assertThat(cart.getTotalDiscountCents()).isEqualTo(Money.ofMajor(16.00));
+    }
+    
+    @Test
+    @DisplayName("Lines added and re-added after pricing match by ID and by their own category")
+    public void testLinesAddedAfterPricingAreMatched() {
+        ShoppingCart cart = new ShoppingCart();
+        cart.addProduct(product("P001", "Slim Fit Jeans", 80.00, 1, "Clothing"));
+        cart.applyPromotion(percentageOff("SHOES10", 10.0, List.of("P003"), List.of("Footwear")));
+        assertThat(cart.getTotalDiscountCents()).isEqualTo(0L);
+        
+        cart.addProduct(product("P002", "Running Shoes", 120.00, 1, "Footwear"));
+        cart.addProduct(product("P003", "Leather Belt", 30.00, 1, "Accessories"));
+        assertThat(cart.getTotalDiscountCents()).isEqualTo(Money.ofMajor(15.00));
+        
+        // Back under another category, the line is matched again
+        cart.removeProduct("P002");
+        cart.addProduct(product("P002", "Running Shoes", 120.00, 1, "Clothing"));
+        assertThat(cart.getTotalDiscountCents()).isEqualTo(Money.ofMajor(3.00));
+    }
+    
+    @Test
+    @DisplayName("Buy two get one free makes every third unit free")
+    public void testBuyXGetY() {
+        ShoppingCart cart = new ShoppingCart();
+        cart.addProduct(product("P004", "Cotton Socks", 5.00, 7, "Accessories"));
+        cart.addProduct(product("P001", "Slim Fit Jeans", 80.00, 2, "Clothing"));
+        
+        cart.applyPromotion(ScopedPromotion.buyXGetY("SOCKS3FOR2", "Buy 2 socks get 1 free", 2, 1,
+                START, END, true, List.of("P004"), List.of()));
+        
+        // Seven units hold two complete groups of three; jeans are not targeted
+        assertThat(cart.getTotalDiscountCents()).isEqualTo(Money.ofMajor(10.00));
+        
+        cart.updateProductQuantity("P004", 9);
+        assertThat(cart.getTotalDiscountCents()).isEqualTo(Money.ofMajor(15.00));
+    }
+    
+    @Test
+    @DisplayName("Tiered discount uses the highest tier the line quantity reaches")
+    public void testTiered() {
+        ShoppingCart cart = new ShoppingCart();
+        cart.addProduct(product("P005", "Basic Tee", 10.00, 2, "Clothing"));
+        cart.applyPromotion(ScopedPromotion.tiered("TEES", "10% off 3+, 20% off 5+", new int[]{3, 5},
+                new double[]{10.0, 20.0}, START, END, true, List.of(), List.of("Clothing")));
+        
+        assertThat(cart.getTotalDiscountCents()).isEqualTo(0L);
+        
+        cart.updateProductQuantity("P005", 3);
+        assertThat(cart.getTotalDiscountCents()).isEqualTo(Money.ofMajor(3.00));
+        
+        cart.updateProductQuantity("P005", 6);
+        assertThat(cart.getTotalDiscountCents()).isEqualTo(Money.ofMajor(12.00));
+    }
+    
+    @Test
+    @DisplayName("Best combination weighs scoped promotions by their line discounts")
+    public void testBestPromotionsKeepScopedPromotion() {
+        ShoppingCart cart = new ShoppingCart();
+        cart.addProduct(new Product("P001", "Slim Fit Jeans", 100.00, 1));
+        ScopedPromotion jeansHalfOff = percentageOff("JEANS50", 50.0, List.of("P001"), List.of());
+        Promotion save10 = new Promotion("SAVE10", "Save 10%", 10.0, START, END, true);
+        cart.applyPromotion(jeansHalfOff);
+        assertThat(cart.getFinalPriceCents()).isEqualTo(Money.ofMajor(50.00));
+        
+        List<Promotion> applied = cart.applyBestPromotions(List.of(jeansHalfOff, save10));
+        
+        // SAVE10 takes 10% of what the scoped promotion leaves
+        assertThat(applied).extracting(Promotion::getCode).containsExactly("JEANS50", "SAVE10");
+        assertThat(cart.getFinalPriceCents()).isEqualTo(Money.ofMajor(45.00));
+    }
+    
+    @Test
+    @DisplayName("Best combination prefers a larger scoped discount over an incompatible cart discount")
+    public void testBestPromotionsPreferLargerScopedDiscount() {
+        ShoppingCart cart = new ShoppingCart();
+        cart.addProduct(product("P001", "Slim Fit Jeans", 100.00, 1, "Clothing"));
+        cart.addProduct(product("P002", "Running Shoes", 120.00, 1, "Footwear"));
+        ScopedPromotion clothingHalfOff = percentageOff("CLOTHING50", 50.0, List.of(), List.of("Clothing"));
+        Promotion sale20 = new Promotion("SALE20", "Sale 20% Off", 20.0, START, END, false);
+        
+        List<Promotion> applied = cart.applyBestPromotions(List.of(sale20, clothingHalfOff));
+        
+        // 50.00 off the jeans beats 44.00 off the cart, and SALE20 combines with nothing
+        assertThat(applied).extracting(Promotion::getCode).containsExactly("CLOTHING50");
+        assertThat(cart.getFinalPriceCents()).isEqualTo(Money.ofMajor(170.00));
+    }
+    
+    @Test
+    @DisplayName("Batch repricing takes scoped discounts off each cart's lines")
+    public void testBatchPricesScopedPromotions() {
+        ScopedPromotion clothingHalfOff = percentageOff("CLOTHING50", 50.0, List.of(), List.of("Clothing"));
+        Promotion save10 = new Promotion("SAVE10", "Save 10%", 10.0, START, END, true);
+        PromotionPlan plan = PromotionPlan.compile(List.of(clothingHalfOff, save10), 1, LocalDate.now());
+        ShoppingCart cart = new ShoppingCart();
+        cart.addProduct(product("P001", "Slim Fit Jeans", 100.00, 1, "Clothing"));
+        cart.addProduct(product("P002", "Running Shoes", 120.00, 1, "Footwear"));
+        cart.applyPromotion(clothingHalfOff);
+        cart.applyPromotion(save10);
+        
+        BatchCartPricer.Result result = new BatchCartPricer().price(List.of(cart), plan);
+        
+        // 50.00 off the jeans, then 10% of the remaining 170.00
+        assertThat(result.getDiscountCents(0)).isEqualTo(Money.ofMajor(67.00));
+        assertThat(result.getDiscountCents(0)).isEqualTo(cart.getTotalDiscountCents());
+    }
+    
+    @Test
+    @DisplayName("Carts that keep no line categories refuse scoped promotions")
+    public void testCartsWithoutLineCategoriesRefuseScopedPromotions() {
+        ScopedPromotion clothingHalfOff = percentageOff("CLOTHING50", 50.0, List.of(), List.of("Clothing"));
+        ShoppingCart cart = new ShoppingCart();
+        cart.addProduct(product("P001", "Slim Fit Jeans", 100.00, 1, "Clothing"));
+        cart.applyPromotion(clothingHalfOff);
+        
+        assertThatThrownBy(() -> PersistentShoppingCart.of(cart))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("CLOTHING50");
+        
+        PersistentShoppingCart snapshot = PersistentShoppingCart.empty()
+                .withProduct(product("P001", "Slim Fit Jeans", 100.00, 1, "Clothing"))
+                .withPromotion(clothingHalfOff);
+        assertThat(snapshot.getErrorMessage()).isEqualTo("This promotion cannot be applied to a saved cart");
+        assertThat(snapshot.getAppliedPromotions()).isEmpty();
+        
+        ConcurrentShoppingCart shared = new ConcurrentShoppingCart();
+        shared.addProduct(product("P001", "Slim Fit Jeans", 100.00, 1, "Clothing"));
+        assertThat(shared.applyPromotion(clothingHalfOff)).isFalse();
+        assertThat(shared.getErrorMessages()).containsExactly("This promotion cannot be applied to a shared cart");
+        assertThat(shared.getTotals().getDiscountCents()).isZero();
+    }
+    
+    private static Product product(String productId, String name, double price, int quantity, String category) {
+        Product product = new Product(productId, name, price, quantity);
+        product.setCategory(category);
+        return product;
+    }
+    
+    private static ScopedPromotion percentageOff(String code, double percentage,
+                                                 List<String> productIds, List<String> categories) {
+        return ScopedPromotion.percentageOff(code, percentage + "% off", percentage, START, END, true,
+                productIds, categories);
+    }
+}
@@ -0,0 +1,73 @@
+package com.retailer.cart.utils;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Handle to one endpoint and HTTP method in a {@link PerformanceMonitor}, recording
+ * each call under {@code "METHOD endpoint"} and again under
+ * {@code "METHOD endpoint [status]"}.
+ * <p>
+ * The per-status operations are looked up once per status code and cached in a
+ * table indexed by the code, so after the first response with a given status the
+ * record path builds no strings. A call is streamed as a single JTL sample, labelled
+ * with the operation name; the per-status entries are not streamed.
+ */
+public class ApiCallMetrics {
+    
+    private static final int STATUS_CODES = 600;
+    
+    private final PerformanceMonitor monitor;
+    private final String endpoint;
+    private final String operationName;
+    private final OperationMetrics operation;
+    private final AtomicReferenceArray<OperationMetrics> byStatus = new AtomicReferenceArray<>(STATUS_CODES);
+    
+    ApiCallMetrics(PerformanceMonitor monitor, String endpoint, String operationName) {
+        this.monitor = monitor;
+        this.endpoint = endpoint;
+        this.operationName = operationName;
+        this.operation = monitor.operation(operationName);
+    }
+    
+    /**
+     * @param statusCode the HTTP status code, or 0 if the call failed without a response
+     * @param responseTimeNanos the response time in nanoseconds, as measured with {@link Timing}
+     */
+    public void record(int statusCode, long responseTimeNanos) {
+        record(statusCode, responseTimeNanos, 0);
+    }
+    
+    /**
+     * @param statusCode the HTTP status code, or 0 if the call failed without a response
+     * @param responseTimeNanos the response time in nanoseconds, as measured with {@link Timing}
+     * @param responseBytes the response size for the JTL stream, or 0 if unknown
+     */
+    public void record(int statusCode, long responseTimeNanos, long responseBytes) {
+        boolean isError = statusCode >= 400;
+        long nowNanos = operation.recordStatistics(responseTimeNanos, isError);
+        forStatus(statusCode).recordStatistics(responseTimeNanos, false);
+        
+        JtlSampleWriter sampleWriter = monitor.getSampleWriter();
+        if (sampleWriter != null) {
+            sampleWriter.write(monitor.epochMillisAt(nowNanos - responseTimeNanos), responseTimeNanos,
+                    operationName, statusCode, !isError, endpoint, responseBytes);
+        }
+    }
+    
+    public OperationMetrics getOperation() {
+        return operation;
+    }
+    
+    private OperationMetrics forStatus(int statusCode) {
+        if (statusCode < 0 || statusCode >= STATUS_CODES) {
+            return monitor.operation(operationName + " [" + statusCode + "]");
+        }
+        OperationMetrics metrics = byStatus.get(statusCode);
+        if (metrics == null) {
+            // monitor.operation is idempotent, so racing threads store the same handle
+            metrics = monitor.operation(operationName + " [" + statusCode + "]");
+            byStatus.set(statusCode, metrics);
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,199 @@
+package com.retailer.cart.utils;
+
+import com.retailer.cart.models.DiscountStackingStrategy;
+import com.retailer.cart.models.Promotion;
+import com.retailer.cart.models.PromotionCompatibilityMatrix;
+import com.retailer.cart.models.PromotionPlan;
+import com.retailer.cart.models.ScopedPromotion;
+import com.retailer.cart.models.ShoppingCart;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Reprices many carts against one compiled promotion plan in parallel.
+ * <p>
+ * Results are written into preallocated columns indexed by cart position. Each
+ * fork/join leaf reuses one small set of scratch buffers for all of its carts and walks
+ * their promotions with {@link ShoppingCart#forEachAppliedPromotion}, so the per-cart
+ * work builds no buffers or views of its own. Each cart keeps the codes it has applied
+ * that are still in the plan and active on its date, accepted in the cart's order and
+ * skipping any that the new compatibility rules reject, and prices them as the cart
+ * would: {@link ScopedPromotion}s against its lines, then its own
+ * {@link DiscountStackingStrategy}. Only additive carts without kept scoped promotions
+ * take the allocation-free plan sum. Carts must not be modified during a run.
+ */
+public class BatchCartPricer {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BatchCartPricer.class);
+    private static final int DEFAULT_LEAF_SIZE = 512;
+    
+    private final ForkJoinPool pool;
+    private final int leafSize;
+    
+    public BatchCartPricer() {
+        this(ForkJoinPool.commonPool(), DEFAULT_LEAF_SIZE);
+    }
+    
+    public BatchCartPricer(ForkJoinPool pool, int leafSize) {
+        this.pool = pool;
+        this.leafSize = Math.max(1, leafSize);
+    }
+    
+    public Result price(List<ShoppingCart> carts, PromotionPlan plan) {
+        Result result = new Result(carts.size());
+        long start = System.nanoTime();
+        pool.invoke(new PricingTask(carts, plan, result, 0, carts.size()));
+        result.elapsedNanos = System.nanoTime() - start;
+        
+        logger.info("Priced {} carts against catalog version {} in {}ms ({} carts/s)",
+                   carts.size(), plan.getCatalogVersion(), result.elapsedNanos / 1_000_000,
+                   String.format("%.0f", result.getCartsPerSecond()));
+        return result;
+    }
+    
+    private class PricingTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final List<ShoppingCart> carts;
+        private final PromotionPlan plan;
+        private final Result result;
+        private final int from;
+        private final int to;
+        
+        PricingTask(List<ShoppingCart> carts, PromotionPlan plan, Result result, int from, int to) {
+            this.carts = carts;
+            this.plan = plan;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from <= leafSize) {
+                priceRange();
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new PricingTask(carts, plan, result, from, mid),
+                      new PricingTask(carts, plan, result, mid, to));
+        }
+        
+        private void priceRange() {
+            AppliedIds applied = new AppliedIds(plan);
+            
+            for (int i = from; i < to; i++) {
+                ShoppingCart cart = carts.get(i);
+                applied.clear();
+                cart.forEachAppliedPromotion(applied);
+                
+                long subtotal = cart.getSubtotalCents();
+                long discount = cart.getStackingStrategy() == DiscountStackingStrategy.ADDITIVE && !applied.scoped
+                        ? plan.totalDiscountCents(applied.ids, applied.count, subtotal)
+                        : cart.getDiscountCentsWith(applied.promotions());
+                result.subtotalCents[i] = subtotal;
+                result.discountCents[i] = discount;
+                result.finalPriceCents[i] = Math.max(0, subtotal - discount);
+            }
+        }
+    }
+    
+    /**
+     * Scratch for one leaf: collects the plan IDs a cart's promotions keep under the plan.
+     */
+    private static final class AppliedIds implements Consumer<Promotion> {
+        private final PromotionPlan plan;
+        private final PromotionCompatibilityMatrix matrix;
+        private final long[] appliedSet;
+        private final List<Promotion> promotions = new ArrayList<>();
+        private int[] ids = new int[8];
+        private int count;
+        private boolean scoped;
+        
+        AppliedIds(PromotionPlan plan) {
+            this.plan = plan;
+            this.matrix = plan.getCompatibility();
+            this.appliedSet = matrix.newSet();
+        }
+        
+        void clear() {
+            Arrays.fill(appliedSet, 0L);
+            count = 0;
+            scoped = false;
+        }
+        
+        @Override
+        public void accept(Promotion promotion) {
+            int id = plan.idOf(promotion.getCode());
+            if (id < 0 || plan.statusOf(id) != PromotionPlan.APPLICABLE
+                    || matrix.firstConflict(id, appliedSet) >= 0) {
+                return;
+            }
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+            ids[count++] = id;
+            PromotionCompatibilityMatrix.add(appliedSet, id);
+            scoped |= plan.promotionOf(id) instanceof ScopedPromotion;
+        }
+        
+        /**
+         * @return the kept promotions in the cart's order, for carts the plan sum cannot price;
+         *         the list is reused for the next cart
+         */
+        List<Promotion> promotions() {
+            promotions.clear();
+            for (int i = 0; i < count; i++) {
+                promotions.add(plan.promotionOf(ids[i]));
+            }
+            return promotions;
+        }
+    }
+    
+    /**
+     * Columnar batch output; index {@code i} belongs to the {@code i}-th input cart.
+     */
+    public static final class Result {
+        private final long[] subtotalCents;
+        private final long[] discountCents;
+        private final long[] finalPriceCents;
+        private long elapsedNanos;
+        
+        private Result(int size) {
+            this.subtotalCents = new long[size];
+            this.discountCents = new long[size];
+            this.finalPriceCents = new long[size];
+        }
+        
+        public int size() {
+            return finalPriceCents.length;
+        }
+        
+        public long getSubtotalCents(int index) {
+            return subtotalCents[index];
+        }
+        
+        public long getDiscountCents(int index) {
+            return discountCents[index];
+        }
+        
+        public long getFinalPriceCents(int index) {
+            return finalPriceCents[index];
+        }
+        
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+        
+        public double getCartsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : size() * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+}
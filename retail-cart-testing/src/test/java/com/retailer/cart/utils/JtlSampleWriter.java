@@ -0,0 +1,383 @@
+package com.retailer.cart.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Streams one JTL row per sample to a CSV file as samples are recorded.
+ * <p>
+ * The columns are those that the result collectors in {@code cart-performance.jmx}
+ * save, in JMeter's order, so the file can be concatenated with, or loaded beside,
+ * JMeter's own results. Each recording thread puts a small sample on a bounded buffer
+ * of its own, so recording takes no lock and threads never contend with each other;
+ * a background thread polls the buffers, formats the rows and writes them through a
+ * buffer. Memory therefore stays flat however long the run is. If the disk falls
+ * behind and a thread's buffer fills, its samples are dropped and counted rather than
+ * stalling the thread that is being measured. If writing fails, the samples still
+ * buffered and any recorded afterwards are dropped and counted too, and
+ * {@link #close()} still closes the file.
+ * <p>
+ * The grpThreads and allThreads columns hold the number of live threads that have
+ * recorded samples, counted by the background thread as it writes.
+ */
+public class JtlSampleWriter implements Closeable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(JtlSampleWriter.class);
+    
+    public static final String HEADER = "timeStamp,elapsed,label,responseCode,responseMessage,threadName,"
+            + "dataType,success,failureMessage,bytes,sentBytes,grpThreads,allThreads,URL,Latency,IdleTime,Connect";
+    
+    private static final int DEFAULT_CAPACITY = 8_192;
+    private static final int BUFFER_CHARS = 64 * 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long IDLE_FLUSH_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    
+    private final Path path;
+    private final Writer out;
+    private final int capacity;
+    private final ThreadLocal<SampleBuffer> threadBuffers = ThreadLocal.withInitial(this::register);
+    /** Buffers of threads that have not been seen by the writer thread yet */
+    private final Queue<SampleBuffer> registered = new ConcurrentLinkedQueue<>();
+    private final LongAdder droppedSamples = new LongAdder();
+    private final Thread drainer;
+    /** Set by {@link #close()} */
+    private volatile boolean closed;
+    /** Set by the writer thread when it stops early, after an I/O error or an interrupt */
+    private volatile boolean failed;
+    private long writtenSamples;
+    
+    public JtlSampleWriter(Path path) throws IOException {
+        this(path, DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * @param path the JTL file to create, replacing any existing one
+     * @param capacity samples each recording thread may have waiting for the writer thread
+     *                 before its new ones are dropped; rounded up to a power of two
+     */
+    public JtlSampleWriter(Path path, int capacity) throws IOException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.path = path;
+        this.out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.UTF_8),
+                BUFFER_CHARS);
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        out.write(HEADER);
+        out.write('\n');
+        this.drainer = new Thread(this::drain, "jtl-writer-" + path.getFileName());
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+    
+    /**
+     * Buffers one sample for writing.
+     * @param timeStamp when the sample started, in epoch milliseconds
+     * @param elapsedNanos the response time in nanoseconds; JTL stores whole milliseconds
+     * @param label the operation name
+     * @param responseCode the HTTP status code, or 0 if no response was received
+     * @param success whether the sample passed
+     * @param url the requested URL, or null if not an HTTP sample
+     * @param bytes the response size, or 0 if unknown
+     * @return false if the sample was refused because the writer is closed, has failed or is behind
+     */
+    public boolean write(long timeStamp, long elapsedNanos, String label, int responseCode,
+                         boolean success, String url, long bytes) {
+        if (closed) {
+            return false;
+        }
+        if (failed) {
+            droppedSamples.increment();
+            return false;
+        }
+        SampleBuffer buffer = threadBuffers.get();
+        Sample sample = new Sample(timeStamp, elapsedNanos, label, responseCode, success, url, bytes,
+                buffer.threadName);
+        int slot = buffer.offer(sample);
+        if (slot < 0) {
+            droppedSamples.increment();
+            return false;
+        }
+        // The writer thread may have made its last pass between the check above and the
+        // offer; if it did, it will never take this sample, so take it back unless it already has
+        if ((closed || failed) && buffer.takeBack(slot, sample)) {
+            droppedSamples.increment();
+            return false;
+        }
+        return true;
+    }
+    
+    public long getDroppedSamples() {
+        return droppedSamples.sum();
+    }
+    
+    public Path getPath() {
+        return path;
+    }
+    
+    /**
+     * Stops accepting samples, writes everything already buffered and closes the file,
+     * also after the writer thread has failed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while waiting for JTL writer to finish: {}", path);
+        }
+        try {
+            out.close();
+        } finally {
+            if (getDroppedSamples() > 0) {
+                logger.warn("JTL writer dropped {} samples: {}", getDroppedSamples(), path);
+            }
+            logger.info("Streamed {} samples to JTL file: {}", writtenSamples, path);
+        }
+    }
+    
+    private SampleBuffer register() {
+        SampleBuffer buffer = new SampleBuffer(Thread.currentThread(), capacity);
+        registered.add(buffer);
+        return buffer;
+    }
+    
+    private void drain() {
+        List<SampleBuffer> buffers = new ArrayList<>();
+        StringBuilder row = new StringBuilder(256);
+        long idleSince = System.nanoTime();
+        boolean unflushed = false;
+        try {
+            while (true) {
+                // A sample offered before close() was called is in its buffer by the time
+                // this pass sees closed, so the pass after it is the last one needed
+                boolean last = closed;
+                int threads = collectBuffers(buffers);
+                long written = 0;
+                for (SampleBuffer buffer : buffers) {
+                    long drained = buffer.drainTo(out, row, threads);
+                    writtenSamples += drained;
+                    written += drained;
+                }
+                if (last) {
+                    break;
+                }
+                if (written > 0) {
+                    unflushed = true;
+                    idleSince = System.nanoTime();
+                } else if (unflushed && System.nanoTime() - idleSince >= IDLE_FLUSH_NANOS) {
+                    // Idle: make what has been written so far visible to readers of the file
+                    out.flush();
+                    unflushed = false;
+                }
+                if (written == 0) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    if (Thread.interrupted()) {
+                        stopEarly(buffers);
+                        return;
+                    }
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            logger.error("Failed to write JTL samples to {}", path, e);
+            stopEarly(buffers);
+        }
+    }
+    
+    /**
+     * Picks up buffers of threads that started recording and drops those of threads that
+     * have ended once they are empty.
+     * @return the number of live threads that have recorded samples
+     */
+    private int collectBuffers(List<SampleBuffer> buffers) {
+        for (SampleBuffer buffer; (buffer = registered.poll()) != null; ) {
+            buffers.add(buffer);
+        }
+        int live = 0;
+        for (Iterator<SampleBuffer> it = buffers.iterator(); it.hasNext(); ) {
+            SampleBuffer buffer = it.next();
+            if (buffer.owner.isAlive()) {
+                live++;
+            } else if (buffer.isEmpty()) {
+                // The owner can add nothing more, and everything it added has been taken
+                it.remove();
+            }
+        }
+        return live;
+    }
+    
+    /**
+     * Counts everything still buffered as dropped. Writers that buffer a sample after this
+     * see {@link #failed} and take it back themselves.
+     */
+    private void stopEarly(List<SampleBuffer> buffers) {
+        failed = true;
+        collectBuffers(buffers);
+        for (SampleBuffer buffer : buffers) {
+            droppedSamples.add(buffer.discard());
+        }
+    }
+    
+    /**
+     * Samples recorded by one thread, waiting for the writer thread. Only the owner adds
+     * and only the writer thread takes, so the ring needs no lock; either side may claim
+     * a slot's sample, which is how a sample offered too late is taken back.
+     */
+    private static final class SampleBuffer {
+        private final Thread owner;
+        private final String threadName;
+        private final AtomicReferenceArray<Sample> slots;
+        private final int mask;
+        /** Next slot the writer thread takes; written only by it */
+        private volatile long head;
+        /** Next slot the owner fills; written only by it */
+        private volatile long tail;
+        
+        private SampleBuffer(Thread owner, int capacity) {
+            this.owner = owner;
+            this.threadName = owner.getName();
+            this.slots = new AtomicReferenceArray<>(capacity);
+            this.mask = capacity - 1;
+        }
+        
+        /**
+         * @return the slot the sample went into, or -1 if the buffer is full
+         */
+        private int offer(Sample sample) {
+            long t = tail;
+            if (t - head == slots.length()) {
+                return -1;
+            }
+            int slot = (int) t & mask;
+            slots.lazySet(slot, sample);
+            tail = t + 1;
+            return slot;
+        }
+        
+        /**
+         * @return true if the sample had not been taken yet and never will be
+         */
+        private boolean takeBack(int slot, Sample sample) {
+            return slots.compareAndSet(slot, sample, null);
+        }
+        
+        private boolean isEmpty() {
+            return head == tail;
+        }
+        
+        private long drainTo(Writer out, StringBuilder row, int threads) throws IOException {
+            long h = head;
+            long t = tail;
+            long written = 0;
+            for (; h < t; h++) {
+                int slot = (int) h & mask;
+                Sample sample = slots.getAndSet(slot, null);
+                if (sample != null) {
+                    row.setLength(0);
+                    sample.appendTo(row, threads);
+                    try {
+                        out.append(row);
+                    } catch (IOException e) {
+                        // Leave it buffered, so it is counted with the rest as dropped
+                        slots.set(slot, sample);
+                        throw e;
+                    }
+                    written++;
+                }
+                // Free the slot as soon as it is done so the owner can reuse it
+                head = h + 1;
+            }
+            return written;
+        }
+        
+        private long discard() {
+            long h = head;
+            long t = tail;
+            long discarded = 0;
+            for (; h < t; h++) {
+                if (slots.getAndSet((int) h & mask, null) != null) {
+                    discarded++;
+                }
+            }
+            head = t;
+            return discarded;
+        }
+    }
+    
+    private static final class Sample {
+        private final long timeStamp;
+        private final long elapsedNanos;
+        private final String label;
+        private final int responseCode;
+        private final boolean success;
+        private final String url;
+        private final long bytes;
+        private final String threadName;
+        
+        private Sample(long timeStamp, long elapsedNanos, String label, int responseCode, boolean success,
+                       String url, long bytes, String threadName) {
+            this.timeStamp = timeStamp;
+            this.elapsedNanos = elapsedNanos;
+            this.label = label;
+            this.responseCode = responseCode;
+            this.success = success;
+            this.url = url;
+            this.bytes = bytes;
+            this.threadName = threadName;
+        }
+        
+        private void appendTo(StringBuilder row, int threads) {
+            row.append(timeStamp).append(',')
+               .append(Math.round(Timing.toMillis(elapsedNanos))).append(',');
+            appendField(row, label).append(',');
+            if (responseCode == 0) {
+                // What JMeter writes when a request fails before any response
+                row.append("Non HTTP response code,Non HTTP response message,");
+            } else {
+                row.append(responseCode).append(',').append(success ? "OK" : "Error").append(',');
+            }
+            appendField(row, threadName).append(",text,")
+               .append(success).append(',')
+               .append(success ? "" : "Response code " + responseCode).append(',')
+               .append(bytes).append(",0,")
+               .append(threads).append(',').append(threads).append(',');
+            if (url != null) {
+                appendField(row, url);
+            }
+            // Latency, IdleTime and Connect are not measured separately
+            row.append(",0,0,0\n");
+        }
+        
+        private static StringBuilder appendField(StringBuilder row, String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+                return row.append(value);
+            }
+            return row.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.retailer.cart.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-memory latency histogram with log-linear buckets, in the manner of HdrHistogram.
+ * <p>
+ * Values below {@code 2^subBucketBits} get a bucket each and are recorded exactly. Above
+ * that, every power of two is split into {@code 2^(subBucketBits-1)} equal buckets, so a
+ * recorded value is never off by more than {@code 1/2^(subBucketBits-1)} of itself; the
+ * default of 8 bits keeps that under 0.8%. Bucket counts live in an
+ * {@link AtomicLongArray}, so recording is a single atomic add with no locks, percentile
+ * queries walk the buckets once, and two histograms with the same layout merge by adding
+ * counts, without losing anything.
+ * <p>
+ * Latencies cluster, so concurrent recorders tend to hit the same few buckets. Like
+ * {@link LongAdder}, the histogram starts with one array and, the first time a compare-and-set
+ * on a bucket fails, spreads recording threads over per-thread stripes of the counts,
+ * which readers add back together. A histogram that is never contended allocates
+ * nothing beyond its first array.
+ * <p>
+ * The histogram does not know its unit; callers record milliseconds, microseconds or
+ * nanoseconds consistently. Values above the highest trackable value land in the last
+ * bucket, although {@link #getMax()} still reports them exactly.
+ */
+public class LatencyHistogram {
+    
+    public static final int DEFAULT_SUB_BUCKET_BITS = 8;
+    
+    /** Stripes of a contended histogram: the processor count rounded up to a power of two, at most 16 */
+    private static final int STRIPES = Math.min(16,
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1);
+    
+    private final int subBucketBits;
+    private final int subBucketCount;
+    private final int subBucketHalfCount;
+    private final long highestTrackableValue;
+    
+    private final AtomicLongArray counts;
+    /** Null until recording is first contended; stripe 0 is {@link #counts} itself */
+    private final AtomicReference<AtomicReferenceArray<AtomicLongArray>> stripes = new AtomicReference<>();
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalSum = new LongAdder();
+    private final AtomicLong minValue = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maxValue = new AtomicLong(Long.MIN_VALUE);
+    
+    /**
+     * @param highestTrackableValue largest value kept at full precision
+     * @param subBucketBits precision; each power of two gets {@code 2^(subBucketBits-1)} buckets
+     */
+    public LatencyHistogram(long highestTrackableValue, int subBucketBits) {
+        if (subBucketBits < 2 || subBucketBits > 16) {
+            throw new IllegalArgumentException("Sub-bucket bits must be between 2 and 16");
+        }
+        if (highestTrackableValue < 1) {
+            throw new IllegalArgumentException("Highest trackable value must be positive");
+        }
+        this.subBucketBits = subBucketBits;
+        this.subBucketCount = 1 << subBucketBits;
+        this.subBucketHalfCount = subBucketCount >> 1;
+        this.highestTrackableValue = highestTrackableValue;
+        this.counts = new AtomicLongArray(indexOf(highestTrackableValue) + 1);
+    }
+    
+    public LatencyHistogram(long highestTrackableValue) {
+        this(highestTrackableValue, DEFAULT_SUB_BUCKET_BITS);
+    }
+    
+    /**
+     * Records one value; negative values count as zero.
+     */
+    public void record(long value) {
+        recordCount(value, 1);
+    }
+    
+    /**
+     * Records the same value {@code count} times.
+     */
+    public void recordCount(long value, long count) {
+        if (count <= 0) {
+            return;
+        }
+        long v = Math.max(0, value);
+        int index = indexOf(Math.min(v, highestTrackableValue));
+        AtomicReferenceArray<AtomicLongArray> striped = stripes.get();
+        if (striped != null) {
+            stripeOf(striped).addAndGet(index, count);
+        } else {
+            long current = counts.get(index);
+            if (!counts.compareAndSet(index, current, current + count)) {
+                stripeOf(stripe()).addAndGet(index, count);
+            }
+        }
+        totalCount.add(count);
+        totalSum.add(v * count);
+        updateMin(v);
+        updateMax(v);
+    }
+    
+    /**
+     * Adds every count from another histogram with the same layout into this one.
+     * @throws IllegalArgumentException if the two histograms bucket values differently
+     */
+    public void add(LatencyHistogram other) {
+        if (other.subBucketBits != subBucketBits || other.counts.length() != counts.length()) {
+            throw new IllegalArgumentException("Cannot merge histograms with different bucket layouts");
+        }
+        long[] otherCounts = other.snapshotCounts();
+        for (int i = 0; i < otherCounts.length; i++) {
+            if (otherCounts[i] != 0) {
+                counts.addAndGet(i, otherCounts[i]);
+            }
+        }
+        totalCount.add(other.totalCount.sum());
+        totalSum.add(other.totalSum.sum());
+        updateMin(other.minValue.get());
+        updateMax(other.maxValue.get());
+    }
+    
+    /**
+     * @return an independent histogram with the same layout and counts
+     */
+    public LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram(highestTrackableValue, subBucketBits);
+        copy.add(this);
+        return copy;
+    }
+    
+    public long getCount() {
+        return totalCount.sum();
+    }
+    
+    public long getMin() {
+        long min = minValue.get();
+        return min == Long.MAX_VALUE ? 0 : min;
+    }
+    
+    public long getMax() {
+        long max = maxValue.get();
+        return max == Long.MIN_VALUE ? 0 : max;
+    }
+    
+    public double getMean() {
+        long count = totalCount.sum();
+        return count == 0 ? 0.0 : (double) totalSum.sum() / count;
+    }
+    
+    /**
+     * Returns the smallest recorded value such that {@code percentile}% of all values are
+     * at or below it, to within the histogram's precision. Costs one pass over the buckets.
+     * @param percentile the percentile (e.g., 95.0 for 95th percentile)
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = snapshotCounts();
+        long total = 0;
+        // Sum the buckets rather than reading totalCount, so a concurrent record cannot
+        // leave the rank beyond what this walk will see
+        for (long count : snapshot) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        double p = Math.min(100.0, Math.max(0.0, percentile));
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.max(getMin(), Math.min(highestValueAt(i), getMax()));
+            }
+        }
+        return getMax();
+    }
+    
+    /**
+     * Visits every non-empty bucket in ascending order.
+     */
+    public void forEachBucket(BucketVisitor visitor) {
+        long[] snapshot = snapshotCounts();
+        for (int i = 0; i < snapshot.length; i++) {
+            if (snapshot[i] != 0) {
+                visitor.visit(lowestValueAt(i), highestValueAt(i), snapshot[i]);
+            }
+        }
+    }
+    
+    /**
+     * @return the number of buckets, which fixes this histogram's memory
+     */
+    public int getBucketCount() {
+        return counts.length();
+    }
+    
+    public long getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+    
+    /**
+     * @return the bucket counts with every stripe added in
+     */
+    private long[] snapshotCounts() {
+        int length = counts.length();
+        long[] snapshot = new long[length];
+        for (int i = 0; i < length; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        AtomicReferenceArray<AtomicLongArray> striped = stripes.get();
+        if (striped != null) {
+            for (int s = 1; s < striped.length(); s++) {
+                AtomicLongArray stripe = striped.get(s);
+                if (stripe != null) {
+                    for (int i = 0; i < length; i++) {
+                        snapshot[i] += stripe.get(i);
+                    }
+                }
+            }
+        }
+        return snapshot;
+    }
+    
+    /**
+     * @return the stripes, created on the first contended record
+     */
+    private AtomicReferenceArray<AtomicLongArray> stripe() {
+        AtomicReferenceArray<AtomicLongArray> striped = stripes.get();
+        if (striped == null) {
+            striped = new AtomicReferenceArray<>(STRIPES);
+            striped.set(0, counts);
+            if (!stripes.compareAndSet(null, striped)) {
+                striped = stripes.get();
+            }
+        }
+        return striped;
+    }
+    
+    /**
+     * @return the calling thread's stripe, allocated the first time a thread lands on it
+     */
+    private AtomicLongArray stripeOf(AtomicReferenceArray<AtomicLongArray> striped) {
+        // Thread IDs are handed out in sequence, so a pool's threads spread evenly
+        int s = (int) Thread.currentThread().getId() & (striped.length() - 1);
+        AtomicLongArray stripe = striped.get(s);
+        if (stripe == null) {
+            stripe = new AtomicLongArray(counts.length());
+            if (!striped.compareAndSet(s, null, stripe)) {
+                stripe = striped.get(s);
+            }
+        }
+        return stripe;
+    }
+    
+    private int indexOf(long value) {
+        if (value < subBucketCount) {
+            return (int) value;
+        }
+        // Keep the leading one bit and the subBucketBits-1 bits below it
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (subBucketBits - 1);
+        return subBucketCount + (shift - 1) * subBucketHalfCount
+                + (int) ((value >>> shift) - subBucketHalfCount);
+    }
+    
+    private long lowestValueAt(int index) {
+        if (index < subBucketCount) {
+            return index;
+        }
+        int offset = index - subBucketCount;
+        int shift = offset / subBucketHalfCount + 1;
+        return (long) (subBucketHalfCount + offset % subBucketHalfCount) << shift;
+    }
+    
+    private long highestValueAt(int index) {
+        if (index < subBucketCount) {
+            return index;
+        }
+        int shift = (index - subBucketCount) / subBucketHalfCount + 1;
+        return lowestValueAt(index) + (1L << shift) - 1;
+    }
+    
+    private void updateMin(long value) {
+        long current;
+        while (value < (current = minValue.get())) {
+            if (minValue.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+    
+    private void updateMax(long value) {
+        long current;
+        while (value > (current = maxValue.get())) {
+            if (maxValue.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Receives a bucket's value range, inclusive at both ends, and its count.
+     */
+    @FunctionalInterface
+    public interface BucketVisitor {
+        void visit(long lowestValue, long highestValue, long count);
+    }
+}
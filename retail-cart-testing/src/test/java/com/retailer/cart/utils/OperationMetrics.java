@@ -0,0 +1,109 @@
+package com.retailer.cart.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Handle to one operation's metrics in a {@link PerformanceMonitor}.
+ * <p>
+ * Obtain it once with {@link PerformanceMonitor#operation(String)} and keep it; each
+ * {@link #record} then goes straight to the operation's counters, with no name
+ * concatenation and no map lookup. Request count and total time live in the
+ * histogram's {@code LongAdder} cells and the error count in its own, so hundreds of
+ * recording threads do not all contend on one atomic; the histogram stripes its bucket
+ * counts once recorders collide, and min and max are only written when a sample beats them.
+ * <p>
+ * Each record also lands in two {@link RollingWindow}s: one-second slots for windows
+ * of up to 10 seconds, and ten-second slots for windows of up to a minute. While the
+ * monitor is streaming samples, {@link #record} also queues a JTL row for the sample.
+ */
+public class OperationMetrics {
+    
+    private final PerformanceMonitor monitor;
+    private final String name;
+    private final LatencyHistogram histogram;
+    private final LongAdder errorCount = new LongAdder();
+    private final RollingWindow seconds;
+    private final RollingWindow tenSeconds;
+    
+    OperationMetrics(PerformanceMonitor monitor, String name, long highestTrackableNanos, long originNanos) {
+        this.monitor = monitor;
+        this.name = name;
+        this.histogram = new LatencyHistogram(highestTrackableNanos);
+        this.seconds = new RollingWindow(originNanos, TimeUnit.SECONDS.toNanos(1), 10, highestTrackableNanos);
+        this.tenSeconds = new RollingWindow(originNanos, TimeUnit.SECONDS.toNanos(10), 6, highestTrackableNanos);
+    }
+    
+    /**
+     * @param responseTimeNanos the response time in nanoseconds, as measured with {@link Timing}
+     * @param isError whether the request resulted in an error
+     */
+    public void record(long responseTimeNanos, boolean isError) {
+        long nowNanos = recordStatistics(responseTimeNanos, isError);
+        JtlSampleWriter sampleWriter = monitor.getSampleWriter();
+        if (sampleWriter != null) {
+            sampleWriter.write(monitor.epochMillisAt(nowNanos - responseTimeNanos), responseTimeNanos,
+                    name, isError ? 500 : 200, !isError, null, 0);
+        }
+    }
+    
+    /**
+     * Records the sample's statistics without streaming it.
+     * @return the {@link Timing#start()} mark the sample was recorded at
+     */
+    long recordStatistics(long responseTimeNanos, boolean isError) {
+        histogram.record(responseTimeNanos);
+        if (isError) {
+            errorCount.increment();
+        }
+        long nowNanos = Timing.start();
+        seconds.record(nowNanos, responseTimeNanos, isError);
+        tenSeconds.record(nowNanos, responseTimeNanos, isError);
+        return nowNanos;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public long getRequestCount() {
+        return histogram.getCount();
+    }
+    
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+    
+    /**
+     * @return error rate as a percentage (0.0 to 100.0)
+     */
+    public double getErrorRate() {
+        long total = histogram.getCount();
+        return total == 0 ? 0.0 : (double) errorCount.sum() / total * 100.0;
+    }
+    
+    public double getAverageNanos() {
+        return histogram.getMean();
+    }
+    
+    /**
+     * Metrics for the last {@code windowSeconds} seconds, up to 60. Windows of up to
+     * 10 seconds have one-second resolution and longer ones ten-second resolution;
+     * either way the slot in progress is included.
+     * @param windowSeconds the window length in seconds
+     */
+    public RollingWindow.Stats getWindowStats(int windowSeconds) {
+        long nowNanos = Timing.start();
+        if (windowSeconds <= 10) {
+            return seconds.stats(nowNanos, windowSeconds);
+        }
+        return tenSeconds.stats(nowNanos, (windowSeconds + 9) / 10);
+    }
+    
+    /**
+     * @return the live histogram, in nanoseconds; copy it before handing it out
+     */
+    LatencyHistogram histogram() {
+        return histogram;
+    }
+}
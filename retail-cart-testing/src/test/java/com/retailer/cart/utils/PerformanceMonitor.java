@@ -11,25 +11,26 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
 
 public class PerformanceMonitor {
     
     private static final Logger logger = LoggerFactory.getLogger(PerformanceMonitor.class);
     private static final String PERFORMANCE_REPORTS_DIR = "target/performance-reports";
     private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+    private static final long HIGHEST_TRACKABLE_RESPONSE_NANOS = TimeUnit.HOURS.toNanos(1);
     
-    private final Map<String, AtomicLong> responseTimes = new ConcurrentHashMap<>();
-    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
-    private final Map<String, AtomicInteger> errorCounts = new ConcurrentHashMap<>();
-    private final Map<String, List<Long>> responseTimeHistory = new ConcurrentHashMap<>();
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final Map<String, ApiCallMetrics> apiCalls = new ConcurrentHashMap<>();
     
     private final long testStartTime;
+    private final long testStartNanos;
     private final String testSessionId;
+    private volatile JtlSampleWriter sampleWriter;
     
     public PerformanceMonitor(String testName) {
         this.testStartTime = System.currentTimeMillis();
+        this.testStartNanos = Timing.start();
         this.testSessionId = testName + "_" + LocalDateTime.now().format(TIMESTAMP_FORMAT);
         createReportsDirectory();
         logger.info("Performance monitoring started for session: {}", testSessionId);
@@ -43,6 +44,36 @@ public class PerformanceMonitor {
         }
     }
     
+    /**
+     * Registers an operation, or finds it if already registered. Hot recording loops
+     * should hold on to the returned handle rather than pass the name on every call.
+     * @param operationName the name of the operation
+     * @return the operation's metrics handle
+     */
+    public OperationMetrics operation(String operationName) {
+        OperationMetrics metrics = operations.get(operationName);
+        if (metrics == null) {
+            metrics = operations.computeIfAbsent(operationName,
+                    name -> new OperationMetrics(this, name, HIGHEST_TRACKABLE_RESPONSE_NANOS, testStartNanos));
+        }
+        return metrics;
+    }
+    
+    /**
+     * Registers an API endpoint, or finds it if already registered
+     * @param endpoint the API endpoint
+     * @param httpMethod the HTTP method (GET, POST, etc.)
+     * @return the endpoint's metrics handle, which also tracks each status code
+     */
+    public ApiCallMetrics apiCall(String endpoint, String httpMethod) {
+        String operationName = httpMethod + " " + endpoint;
+        ApiCallMetrics metrics = apiCalls.get(operationName);
+        if (metrics == null) {
+            metrics = apiCalls.computeIfAbsent(operationName, name -> new ApiCallMetrics(this, endpoint, name));
+        }
+        return metrics;
+    }
+    
     /**
      * Records a request execution time
      * @param operationName the name of the operation
@@ -50,19 +81,22 @@ public class PerformanceMonitor {
      * @param isError whether the request resulted in an error
      */
     public void recordRequest(String operationName, long responseTime, boolean isError) {
-        responseTimes.computeIfAbsent(operationName, k -> new AtomicLong(0)).addAndGet(responseTime);
-        requestCounts.computeIfAbsent(operationName, k -> new AtomicInteger(0)).incrementAndGet();
+        recordRequestNanos(operationName, TimeUnit.MILLISECONDS.toNanos(responseTime), isError);
+    }
+    
+    /**
+     * Records a request execution time measured with {@link Timing}
+     * @param operationName the name of the operation
+     * @param responseTimeNanos the response time in nanoseconds
+     * @param isError whether the request resulted in an error
+     */
+    public void recordRequestNanos(String operationName, long responseTimeNanos, boolean isError) {
+        operation(operationName).record(responseTimeNanos, isError);
         
-        if (isError) {
-            errorCounts.computeIfAbsent(operationName, k -> new AtomicInteger(0)).incrementAndGet();
+        if (logger.isDebugEnabled()) {
+            logger.debug("Recorded request - Operation: {}, Response Time: {}ms, Error: {}", 
+                        operationName, Timing.toMillis(responseTimeNanos), isError);
         }
-        
-        // Store individual response times for percentile calculations
-        responseTimeHistory.computeIfAbsent(operationName, k -> Collections.synchronizedList(new ArrayList<>()))
-                .add(responseTime);
-        
-        logger.debug("Recorded request - Operation: {}, Response Time: {}ms, Error: {}", 
-                    operationName, responseTime, isError);
     }
     
     /**
@@ -73,13 +107,19 @@ public class PerformanceMonitor {
      * @param responseTime the response time in milliseconds
      */
     public void recordApiCall(String endpoint, String httpMethod, int statusCode, long responseTime) {
-        String operationName = httpMethod + " " + endpoint;
-        boolean isError = statusCode >= 400;
-        recordRequest(operationName, responseTime, isError);
-        
-        // Also record by status code
-        String statusOperation = operationName + " [" + statusCode + "]";
-        recordRequest(statusOperation, responseTime, false);
+        recordApiCallNanos(endpoint, httpMethod, statusCode, TimeUnit.MILLISECONDS.toNanos(responseTime));
+    }
+    
+    /**
+     * Records API call performance measured with {@link Timing}
+     * @param endpoint the API endpoint
+     * @param httpMethod the HTTP method (GET, POST, etc.)
+     * @param statusCode the HTTP status code
+     * @param responseTimeNanos the response time in nanoseconds
+     */
+    public void recordApiCallNanos(String endpoint, String httpMethod, int statusCode, long responseTimeNanos) {
+        // Also records by status code
+        apiCall(endpoint, httpMethod).record(statusCode, responseTimeNanos);
     }
     
     /**
@@ -100,14 +140,12 @@ public class PerformanceMonitor {
      * @return average response time in milliseconds
      */
     public double getAverageResponseTime(String operationName) {
-        AtomicLong totalTime = responseTimes.get(operationName);
-        AtomicInteger count = requestCounts.get(operationName);
-        
-        if (totalTime == null || count == null || count.get() == 0) {
+        OperationMetrics metrics = operations.get(operationName);
+        if (metrics == null) {
             return 0.0;
         }
         
-        return (double) totalTime.get() / count.get();
+        return metrics.getAverageNanos() / 1_000_000.0;
     }
     
     /**
@@ -116,14 +154,8 @@ public class PerformanceMonitor {
      * @return error rate as a percentage (0.0 to 100.0)
      */
     public double getErrorRate(String operationName) {
-        AtomicInteger errors = errorCounts.get(operationName);
-        AtomicInteger total = requestCounts.get(operationName);
-        
-        if (errors == null || total == null || total.get() == 0) {
-            return 0.0;
-        }
-        
-        return (double) errors.get() / total.get() * 100.0;
+        OperationMetrics metrics = operations.get(operationName);
+        return metrics != null ? metrics.getErrorRate() : 0.0;
     }
     
     /**
@@ -132,17 +164,43 @@ public class PerformanceMonitor {
      * @return throughput in requests per second
      */
     public double getThroughput(String operationName) {
-        AtomicInteger count = requestCounts.get(operationName);
-        if (count == null || count.get() == 0) {
+        OperationMetrics metrics = operations.get(operationName);
+        long count = metrics != null ? metrics.getRequestCount() : 0;
+        if (count == 0) {
             return 0.0;
         }
         
-        long elapsedSeconds = (System.currentTimeMillis() - testStartTime) / 1000;
-        if (elapsedSeconds == 0) {
+        long elapsedNanos = Timing.elapsedNanos(testStartNanos);
+        if (elapsedNanos <= 0) {
             return 0.0;
         }
         
-        return (double) count.get() / elapsedSeconds;
+        return count * 1_000_000_000.0 / elapsedNanos;
+    }
+    
+    /**
+     * Gets the throughput for an operation over the last second, rather than
+     * averaged over the whole test
+     * @param operationName the operation name
+     * @return throughput in requests per second
+     */
+    public double getCurrentThroughput(String operationName) {
+        return getWindowStats(operationName, 1).getRequestsPerSecond();
+    }
+    
+    /**
+     * Gets request count, throughput, error rate and percentiles for an operation
+     * over a recent window, so steady-state checks are not diluted by ramp-up
+     * @param operationName the operation name
+     * @param windowSeconds the window length in seconds, up to 60
+     * @return the window's metrics; empty if the operation was never recorded
+     */
+    public RollingWindow.Stats getWindowStats(String operationName, int windowSeconds) {
+        OperationMetrics metrics = operations.get(operationName);
+        if (metrics == null) {
+            return new RollingWindow.Stats(new LatencyHistogram(1), 0, 0);
+        }
+        return metrics.getWindowStats(windowSeconds);
     }
     
     /**
@@ -152,18 +210,48 @@ public class PerformanceMonitor {
      * @return percentile response time in milliseconds
      */
     public long getPercentileResponseTime(String operationName, double percentile) {
-        List<Long> times = responseTimeHistory.get(operationName);
-        if (times == null || times.isEmpty()) {
+        return getPercentileResponseTime(operationName, percentile, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Gets the percentile response time for an operation in the given unit, for
+     * operations too fast to measure in whole milliseconds
+     * @param operationName the operation name
+     * @param percentile the percentile (e.g., 95.0 for 95th percentile)
+     * @param unit the unit of the result, e.g. MICROSECONDS
+     * @return percentile response time, truncated to the unit
+     */
+    public long getPercentileResponseTime(String operationName, double percentile, TimeUnit unit) {
+        OperationMetrics metrics = operations.get(operationName);
+        if (metrics == null) {
             return 0;
         }
-        
-        List<Long> sortedTimes = new ArrayList<>(times);
-        Collections.sort(sortedTimes);
-        
-        int index = (int) Math.ceil((percentile / 100.0) * sortedTimes.size()) - 1;
-        index = Math.max(0, Math.min(index, sortedTimes.size() - 1));
-        
-        return sortedTimes.get(index);
+        return unit.convert(metrics.histogram().getValueAtPercentile(percentile), TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Gets a copy of the response time histogram for an operation, e.g. to merge
+     * results from several monitors with {@link LatencyHistogram#add}
+     * @param operationName the operation name
+     * @return histogram of response times in nanoseconds, empty if nothing was recorded
+     */
+    public LatencyHistogram getResponseTimeHistogram(String operationName) {
+        OperationMetrics metrics = operations.get(operationName);
+        return metrics != null ? metrics.histogram().copy() : new LatencyHistogram(HIGHEST_TRACKABLE_RESPONSE_NANOS);
+    }
+    
+    /**
+     * @return names of the operations that have recorded at least one request;
+     * registering a handle alone does not add an operation to reports
+     */
+    public List<String> getRecordedOperations() {
+        List<String> recorded = new ArrayList<>();
+        for (OperationMetrics metrics : operations.values()) {
+            if (metrics.getRequestCount() > 0) {
+                recorded.add(metrics.getName());
+            }
+        }
+        return recorded;
     }
     
     /**
@@ -174,26 +262,28 @@ public class PerformanceMonitor {
         Map<String, Object> report = new HashMap<>();
         report.put("sessionId", testSessionId);
         report.put("testStartTime", testStartTime);
-        report.put("testDuration", System.currentTimeMillis() - testStartTime);
+        report.put("testDuration", TimeUnit.NANOSECONDS.toMillis(Timing.elapsedNanos(testStartNanos)));
         report.put("timestamp", LocalDateTime.now().format(TIMESTAMP_FORMAT));
         
         Map<String, Map<String, Object>> operations = new HashMap<>();
         
-        for (String operation : requestCounts.keySet()) {
+        for (String operation : getRecordedOperations()) {
+            OperationMetrics metrics = this.operations.get(operation);
             Map<String, Object> operationStats = new HashMap<>();
-            operationStats.put("totalRequests", requestCounts.get(operation).get());
-            operationStats.put("totalErrors", errorCounts.getOrDefault(operation, new AtomicInteger(0)).get());
+            operationStats.put("totalRequests", metrics.getRequestCount());
+            operationStats.put("totalErrors", metrics.getErrorCount());
             operationStats.put("averageResponseTime", getAverageResponseTime(operation));
             operationStats.put("errorRate", getErrorRate(operation));
             operationStats.put("throughput", getThroughput(operation));
-            operationStats.put("p95ResponseTime", getPercentileResponseTime(operation, 95.0));
-            operationStats.put("p99ResponseTime", getPercentileResponseTime(operation, 99.0));
+            operationStats.put("currentThroughput", getCurrentThroughput(operation));
             
-            // Min and Max response times
-            List<Long> times = responseTimeHistory.get(operation);
-            if (times != null && !times.isEmpty()) {
-                operationStats.put("minResponseTime", Collections.min(times));
-                operationStats.put("maxResponseTime", Collections.max(times));
+            // Percentiles, min and max in milliseconds to microsecond resolution
+            LatencyHistogram histogram = metrics.histogram();
+            if (histogram.getCount() > 0) {
+                operationStats.put("p95ResponseTime", Timing.toMillisRounded(histogram.getValueAtPercentile(95.0)));
+                operationStats.put("p99ResponseTime", Timing.toMillisRounded(histogram.getValueAtPercentile(99.0)));
+                operationStats.put("minResponseTime", Timing.toMillisRounded(histogram.getMin()));
+                operationStats.put("maxResponseTime", Timing.toMillisRounded(histogram.getMax()));
             }
             
             operations.put(operation, operationStats);
@@ -269,18 +359,20 @@ public class PerformanceMonitor {
         System.out.println("PERFORMANCE TEST SUMMARY");
         System.out.println("=".repeat(60));
         System.out.println("Session ID: " + testSessionId);
-        System.out.println("Test Duration: " + (System.currentTimeMillis() - testStartTime) + "ms");
+        System.out.println("Test Duration: " + TimeUnit.NANOSECONDS.toMillis(Timing.elapsedNanos(testStartNanos)) + "ms");
         System.out.println();
         
-        for (String operation : requestCounts.keySet()) {
+        for (String operation : getRecordedOperations()) {
+            OperationMetrics metrics = operations.get(operation);
             System.out.println("Operation: " + operation);
-            System.out.println("  Total Requests: " + requestCounts.get(operation).get());
-            System.out.println("  Total Errors: " + errorCounts.getOrDefault(operation, new AtomicInteger(0)).get());
-            System.out.printf("  Average Response Time: %.2fms%n", getAverageResponseTime(operation));
+            System.out.println("  Total Requests: " + metrics.getRequestCount());
+            System.out.println("  Total Errors: " + metrics.getErrorCount());
+            System.out.printf("  Average Response Time: %.3fms%n", getAverageResponseTime(operation));
             System.out.printf("  Error Rate: %.2f%%%n", getErrorRate(operation));
-            System.out.printf("  Throughput: %.2f req/s%n", getThroughput(operation));
-            System.out.printf("  95th Percentile: %dms%n", getPercentileResponseTime(operation, 95.0));
-            System.out.printf("  99th Percentile: %dms%n", getPercentileResponseTime(operation, 99.0));
+            System.out.printf("  Throughput: %.2f req/s (last second: %.2f req/s)%n",
+                getThroughput(operation), getCurrentThroughput(operation));
+            System.out.printf("  95th Percentile: %.3fms%n", Timing.toMillis(getPercentileResponseTime(operation, 95.0, TimeUnit.NANOSECONDS)));
+            System.out.printf("  99th Percentile: %.3fms%n", Timing.toMillis(getPercentileResponseTime(operation, 99.0, TimeUnit.NANOSECONDS)));
             System.out.println();
         }
         
@@ -296,7 +388,7 @@ public class PerformanceMonitor {
     public boolean checkThresholds(double maxAverageResponseTime, double maxErrorRate) {
         boolean allPassed = true;
         
-        for (String operation : requestCounts.keySet()) {
+        for (String operation : getRecordedOperations()) {
             double avgResponseTime = getAverageResponseTime(operation);
             double errorRate = getErrorRate(operation);
             
@@ -317,48 +409,45 @@ public class PerformanceMonitor {
     }
     
     /**
-     * Exports performance data in JMeter JTL format for integration
-     * @param filename the output filename
+     * Starts streaming every subsequently recorded request to a JMeter JTL file, one
+     * row per sample, written in the background as the test runs
+     * @param filename the output filename, relative to the performance reports directory
      */
-    public void exportToJTLFormat(String filename) {
+    public synchronized void startSampleStreaming(String filename) {
+        stopSampleStreaming();
+        Path outputPath = Paths.get(PERFORMANCE_REPORTS_DIR, filename);
         try {
-            Path outputPath = Paths.get(PERFORMANCE_REPORTS_DIR, filename);
-            
-            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(outputPath))) {
-                // JTL header
-                writer.println("timeStamp,elapsed,label,responseCode,responseMessage,threadName,dataType,success,failureMessage,bytes,sentBytes,grpThreads,allThreads,URL,Filename,latency,encoding,SampleCount,ErrorCount,hostname,idleTime");
-                
-                // Export data for each operation
-                long currentTime = System.currentTimeMillis();
-                for (String operation : requestCounts.keySet()) {
-                    List<Long> times = responseTimeHistory.get(operation);
-                    int errorCount = errorCounts.getOrDefault(operation, new AtomicInteger(0)).get();
-                    int totalCount = requestCounts.get(operation).get();
-                    
-                    if (times != null) {
-                        for (int i = 0; i < times.size(); i++) {
-                            long responseTime = times.get(i);
-                            boolean isError = i < errorCount; // Simple approximation
-                            
-                            writer.printf("%d,%d,%s,%d,%s,Thread-1,text,%s,,1024,512,1,1,,,%d,,1,%d,localhost,0%n",
-                                currentTime - (times.size() - i) * 1000, // Simulated timestamp
-                                responseTime,
-                                operation,
-                                isError ? 500 : 200,
-                                isError ? "Error" : "OK",
-                                isError ? "false" : "true",
-                                responseTime, // latency = response time for simplicity
-                                isError ? 1 : 0
-                            );
-                        }
-                    }
-                }
-            }
-            
-            logger.info("Performance data exported to JTL format: {}", outputPath);
-            
+            sampleWriter = new JtlSampleWriter(outputPath);
+            logger.info("Streaming performance samples to JTL file: {}", outputPath);
+        } catch (IOException e) {
+            logger.error("Failed to open JTL file for streaming samples", e);
+        }
+    }
+    
+    /**
+     * Stops streaming samples and flushes the JTL file; does nothing if not streaming
+     */
+    public synchronized void stopSampleStreaming() {
+        JtlSampleWriter writer = sampleWriter;
+        if (writer == null) {
+            return;
+        }
+        sampleWriter = null;
+        try {
+            writer.close();
         } catch (IOException e) {
-            logger.error("Failed to export performance data to JTL format", e);
+            logger.error("Failed to close JTL sample stream", e);
         }
     }
-}
\ No newline at end of file
+    
+    JtlSampleWriter getSampleWriter() {
+        return sampleWriter;
+    }
+    
+    /**
+     * Converts a {@link Timing} mark to epoch milliseconds, anchored at the test start
+     */
+    long epochMillisAt(long nanoMark) {
+        return testStartTime + TimeUnit.NANOSECONDS.toMillis(nanoMark - testStartNanos);
+    }
+}
@@ -0,0 +1,65 @@
+package com.retailer.cart.utils;
+
+import com.retailer.cart.models.ActivePromotionIndex;
+import com.retailer.cart.models.PromotionPlan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hands out a {@link PromotionPlan} for the current promotion catalog.
+ * The plan is compiled once per catalog version and pricing date and then
+ * shared by every cart priced against it.
+ */
+public class PromotionEngine {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PromotionEngine.class);
+    
+    private final PromotionService promotionService;
+    private volatile PromotionPlan plan;
+    
+    public PromotionEngine(PromotionService promotionService) {
+        this.promotionService = promotionService;
+    }
+    
+    /**
+     * @return the plan for today, recompiling only if the catalog or the date changed
+     */
+    public PromotionPlan plan() {
+        return planFor(LocalDate.now());
+    }
+    
+    public PromotionPlan planFor(LocalDate pricingDate) {
+        PromotionPlan current = plan;
+        PromotionRegistry.Snapshot snapshot = promotionService.snapshot();
+        if (current != null && current.getCatalogVersion() == snapshot.getVersion()
+                && current.getPricingDate().equals(pricingDate)) {
+            return current;
+        }
+        PromotionPlan compiled = PromotionPlan.compile(snapshot.getPromotions(),
+                snapshot.getCompatibilityMatrix(), snapshot.getVersion(), pricingDate);
+        plan = compiled;
+        logger.debug("Compiled promotion plan - Version: {}, Date: {}, Promotions: {}",
+                    snapshot.getVersion(), pricingDate, compiled.size());
+        return compiled;
+    }
+    
+    /**
+     * Compiles one plan per run of days with an unchanged active set in {@code [from, to]},
+     * for what-if pricing across a date range. Each plan is dated at the start of its run
+     * and holds until the next plan's date, or through {@code to} for the last one.
+     */
+    public List<PromotionPlan> plansBetween(LocalDate from, LocalDate to) {
+        PromotionRegistry.Snapshot snapshot = promotionService.snapshot();
+        List<ActivePromotionIndex.Segment> segments = snapshot.getActiveIndex().segmentsBetween(from, to);
+        List<PromotionPlan> plans = new ArrayList<>(segments.size());
+        for (ActivePromotionIndex.Segment segment : segments) {
+            plans.add(PromotionPlan.compile(snapshot.getPromotions(), snapshot.getCompatibilityMatrix(),
+                    snapshot.getVersion(), segment.getStartDate()));
+        }
+        return plans;
+    }
+}
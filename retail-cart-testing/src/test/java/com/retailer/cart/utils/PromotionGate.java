@@ -0,0 +1,58 @@
+package com.retailer.cart.utils;
+
+import com.retailer.cart.models.CartError;
+import com.retailer.cart.models.Promotion;
+import com.retailer.cart.models.ShoppingCart;
+
+/**
+ * Front door for customer-entered promotion codes.
+ * <p>
+ * An attempt first takes a token from the client's bucket in the
+ * {@link PromotionRateLimiter}, then must pass the catalog's
+ * {@link com.retailer.cart.models.PromotionCodeFilter} before the code is looked up
+ * and applied to the cart. A bot guessing codes is therefore stopped by an array
+ * probe and a compare-and-set, and records only preallocated error entries.
+ */
+public class PromotionGate {
+    
+    public enum Outcome {
+        APPLIED,
+        REJECTED,
+        UNKNOWN_CODE,
+        THROTTLED
+    }
+    
+    private final PromotionService promotionService;
+    private final PromotionRateLimiter rateLimiter;
+    
+    public PromotionGate(PromotionService promotionService, PromotionRateLimiter rateLimiter) {
+        this.promotionService = promotionService;
+        this.rateLimiter = rateLimiter;
+    }
+    
+    public PromotionGate(PromotionService promotionService) {
+        this(promotionService, new PromotionRateLimiter());
+    }
+    
+    /**
+     * @param clientKey the cart, session or client the attempt is charged to
+     */
+    public Outcome applyCode(ShoppingCart cart, String clientKey, String code) {
+        if (!rateLimiter.tryAcquire(clientKey)) {
+            cart.getErrors().record(CartError.TOO_MANY_PROMOTION_ATTEMPTS, null);
+            return Outcome.THROTTLED;
+        }
+        PromotionRegistry.Snapshot snapshot = promotionService.snapshot();
+        if (!snapshot.getCodeFilter().mightContain(code)) {
+            cart.getErrors().record(CartError.INVALID_PROMOTION_CODE, null);
+            return Outcome.UNKNOWN_CODE;
+        }
+        // Rare filter false positives fall through to the cart's null check
+        Promotion promotion = snapshot.getPromotion(code);
+        return cart.applyPromotion(promotion) ? Outcome.APPLIED : Outcome.REJECTED;
+    }
+    
+    public PromotionRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+}
@@ -0,0 +1,113 @@
+package com.retailer.cart.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Token-bucket limiter for promotion attempts, keyed by cart or client ID.
+ * <p>
+ * Buckets live in a fixed, power-of-two sized {@link AtomicLongArray}; a key hashes
+ * to one stripe, so memory stays constant however many clients appear, at the cost
+ * of unrelated keys occasionally sharing a bucket. Each bucket is a single long that
+ * packs the refill timestamp with the token count in thousandths, and is updated
+ * with one compare-and-set, so no thread ever blocks.
+ */
+public class PromotionRateLimiter {
+    
+    private static final int TOKEN_BITS = 22;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long MILLI_TOKENS_PER_TOKEN = 1000;
+    
+    private final AtomicLongArray buckets;
+    private final int stripeMask;
+    private final long capacityMilliTokens;
+    private final long refillPerSecond;
+    private final long originNanos;
+    
+    /**
+     * @param stripes number of buckets, rounded up to a power of two
+     * @param burst attempts a client may make at once, at most 4000
+     * @param refillPerSecond attempts regained per second
+     */
+    public PromotionRateLimiter(int stripes, int burst, int refillPerSecond) {
+        this(stripes, burst, refillPerSecond, Timing.start());
+    }
+    
+    /**
+     * @param originNanos {@link Timing#start()} mark that bucket timestamps count from
+     */
+    public PromotionRateLimiter(int stripes, int burst, int refillPerSecond, long originNanos) {
+        if (burst <= 0 || burst * MILLI_TOKENS_PER_TOKEN > TOKEN_MASK) {
+            throw new IllegalArgumentException("Burst must be between 1 and " + TOKEN_MASK / MILLI_TOKENS_PER_TOKEN);
+        }
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.buckets = new AtomicLongArray(size);
+        this.stripeMask = size - 1;
+        this.capacityMilliTokens = burst * MILLI_TOKENS_PER_TOKEN;
+        this.refillPerSecond = refillPerSecond;
+        this.originNanos = originNanos;
+        // Every bucket starts full
+        for (int i = 0; i < size; i++) {
+            buckets.set(i, capacityMilliTokens);
+        }
+    }
+    
+    /**
+     * Defaults suited to promotion entry: a burst of 5 codes, then one per second.
+     */
+    public PromotionRateLimiter() {
+        this(4096, 5, 1);
+    }
+    
+    /**
+     * Takes one token from the key's bucket.
+     * @return false if the bucket is empty and the attempt should be refused
+     */
+    public boolean tryAcquire(String key) {
+        return tryAcquire(key, Timing.start());
+    }
+    
+    /**
+     * Takes one token from the key's bucket as of the given time. A time before the
+     * bucket's last use counts as that time, so a late caller never mints tokens.
+     * @param nowNanos {@link Timing#start()} mark of the attempt
+     * @return false if the bucket is empty and the attempt should be refused
+     */
+    public boolean tryAcquire(String key, long nowNanos) {
+        int stripe = stripeOf(key);
+        long nowMillis = Math.max(0, nowNanos - originNanos) / 1_000_000;
+        while (true) {
+            long state = buckets.get(stripe);
+            long lastMillis = state >>> TOKEN_BITS;
+            long tokens = state & TOKEN_MASK;
+            if (nowMillis > lastMillis) {
+                // Tokens per second equal thousandths of a token per millisecond
+                tokens = Math.min(capacityMilliTokens, tokens + (nowMillis - lastMillis) * refillPerSecond);
+            } else {
+                nowMillis = lastMillis;
+            }
+            if (tokens < MILLI_TOKENS_PER_TOKEN) {
+                return false;
+            }
+            long next = (nowMillis << TOKEN_BITS) | (tokens - MILLI_TOKENS_PER_TOKEN);
+            if (buckets.compareAndSet(stripe, state, next)) {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * @return whole tokens left in the key's bucket, ignoring refill since its last use
+     */
+    public long availableTokens(String key) {
+        return (buckets.get(stripeOf(key)) & TOKEN_MASK) / MILLI_TOKENS_PER_TOKEN;
+    }
+    
+    public int stripes() {
+        return buckets.length();
+    }
+    
+    private int stripeOf(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & stripeMask;
+    }
+}
@@ -0,0 +1,324 @@
+package com.retailer.cart.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.retailer.cart.models.ActivePromotionIndex;
+import com.retailer.cart.models.Promotion;
+import com.retailer.cart.models.PromotionCompatibilityMatrix;
+import com.retailer.cart.models.PromotionCodeFilter;
+import com.retailer.cart.utils.exceptions.TestDataException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Promotion catalog published as immutable, versioned snapshots.
+ * <p>
+ * Readers take the current {@link Snapshot} with a single volatile read and never
+ * lock, so carts being priced keep using the snapshot they started with while a
+ * reload builds and swaps in the next one. Writers are serialized so versions are
+ * published strictly in order. Promotions must not be mutated once published.
+ * <p>
+ * {@link #getInstance()} is the process-wide registry, and the one place that decides
+ * who may share it: callers that only read promotions (the application, the Cucumber
+ * step definitions and {@code PromotionAttackBenchmark}, all through
+ * {@code new PromotionService()}) share it, and anything that publishes or reloads a
+ * catalog of its own ({@code CartPricingBenchmark} and unit tests) creates a private
+ * registry, so that classes run in parallel never see each other's promotions.
+ */
+public final class PromotionRegistry {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PromotionRegistry.class);
+    private static final PromotionRegistry INSTANCE = new PromotionRegistry();
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final CsvMapper csvMapper = new CsvMapper();
+    
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(Snapshot.EMPTY);
+    private final Object writeLock = new Object();
+    
+    /**
+     * Creates an empty registry, separate from the process-wide one.
+     */
+    public PromotionRegistry() {
+    }
+    
+    /**
+     * @return the shared registry; only for callers that never publish, see the class comment
+     */
+    public static PromotionRegistry getInstance() {
+        return INSTANCE;
+    }
+    
+    public Snapshot snapshot() {
+        return current.get();
+    }
+    
+    public long getVersion() {
+        return current.get().getVersion();
+    }
+    
+    /**
+     * Publishes the supplied promotions only if nothing has been published yet.
+     */
+    public Snapshot initializeIfEmpty(Supplier<Collection<Promotion>> defaults, String source) {
+        Snapshot snapshot = current.get();
+        if (snapshot.getVersion() != 0) {
+            return snapshot;
+        }
+        synchronized (writeLock) {
+            snapshot = current.get();
+            return snapshot.getVersion() != 0 ? snapshot : publishLocked(defaults.get(), source, null);
+        }
+    }
+    
+    /**
+     * Replaces the catalog with the given promotions and bumps the version.
+     * Later entries win when codes repeat.
+     */
+    public Snapshot publish(Collection<Promotion> promotions, String source) {
+        synchronized (writeLock) {
+            return publishLocked(promotions, source, null);
+        }
+    }
+    
+    /**
+     * Reloads the catalog from a JSON or CSV promotions file.
+     */
+    public Snapshot reload(Path file) {
+        synchronized (writeLock) {
+            return publishLocked(readFile(file), file.toString(), lastModified(file));
+        }
+    }
+    
+    /**
+     * Reloads from the file only if its modification time differs from the last load
+     * of that same file; cheap enough to call from a polling loop.
+     */
+    public Snapshot reloadIfModified(Path file) {
+        Snapshot snapshot = current.get();
+        FileTime modified = lastModified(file);
+        if (file.toString().equals(snapshot.getSource()) && modified.equals(snapshot.getSourceModified())) {
+            return snapshot;
+        }
+        return reload(file);
+    }
+    
+    /**
+     * Reloads from a classpath resource such as {@code testdata/promotions.json}.
+     */
+    public Snapshot reloadFromResource(String resourcePath) {
+        try (InputStream inputStream = PromotionRegistry.class.getClassLoader().getResourceAsStream(resourcePath)) {
+            if (inputStream == null) {
+                throw new TestDataException(resourcePath, "promotions", "Promotion resource not found: " + resourcePath);
+            }
+            List<Promotion> promotions = parse(inputStream, resourcePath);
+            synchronized (writeLock) {
+                return publishLocked(promotions, resourcePath, null);
+            }
+        } catch (IOException e) {
+            throw new TestDataException(resourcePath, "promotions", "Failed to load promotions from: " + resourcePath, e);
+        }
+    }
+    
+    private Snapshot publishLocked(Collection<Promotion> promotions, String source, FileTime sourceModified) {
+        Snapshot next = new Snapshot(current.get().getVersion() + 1, promotions, source, sourceModified);
+        current.set(next);
+        logger.info("Published promotion catalog - Version: {}, Promotions: {}, Source: {}",
+                   next.getVersion(), next.getPromotions().size(), source);
+        return next;
+    }
+    
+    private static List<Promotion> readFile(Path file) {
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            return parse(inputStream, file.toString());
+        } catch (IOException e) {
+            throw new TestDataException(file.toString(), "promotions", "Failed to load promotions from: " + file, e);
+        }
+    }
+    
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            throw new TestDataException(file.toString(), "promotions", "Cannot read promotion file: " + file, e);
+        }
+    }
+    
+    private static List<Promotion> parse(InputStream inputStream, String name) throws IOException {
+        return name.toLowerCase().endsWith(".csv") ? parseCsv(inputStream) : parseJson(inputStream);
+    }
+    
+    private static List<Promotion> parseJson(InputStream inputStream) throws IOException {
+        JsonNode root = objectMapper.readTree(inputStream);
+        JsonNode entries = root.isArray() ? root : root.path("promotions");
+        
+        List<Promotion> promotions = new ArrayList<>();
+        for (JsonNode entry : entries) {
+            Map<String, String> row = new HashMap<>();
+            entry.fields().forEachRemaining(field -> {
+                if (!field.getValue().isArray()) {
+                    row.put(field.getKey(), field.getValue().asText());
+                }
+            });
+            Promotion promotion = createPromotion(row);
+            for (JsonNode incompatible : entry.path("incompatibleWith")) {
+                promotion.addIncompatiblePromotion(incompatible.asText());
+            }
+            promotions.add(promotion);
+        }
+        return promotions;
+    }
+    
+    private static List<Promotion> parseCsv(InputStream inputStream) throws IOException {
+        CsvSchema schema = CsvSchema.emptySchema().withHeader();
+        List<Map<String, String>> rows = csvMapper.readerFor(Map.class)
+            .with(schema)
+            .<Map<String, String>>readValues(inputStream)
+            .readAll();
+        
+        List<Promotion> promotions = new ArrayList<>(rows.size());
+        for (Map<String, String> row : rows) {
+            promotions.add(createPromotion(row));
+        }
+        return promotions;
+    }
+    
+    /**
+     * Maps one JSON object or CSV row; accepts both the promotions.json and the
+     * promotions.csv column names. Missing dates mean the promotion never expires.
+     */
+    private static Promotion createPromotion(Map<String, String> row) {
+        String code = first(row, "code", "promoCode");
+        if (code == null || code.isEmpty()) {
+            throw new TestDataException("promotions", "code", "Promotion entry without a code: " + row);
+        }
+        
+        Promotion.DiscountType type;
+        String value;
+        if (row.containsKey("discountPercentage")) {
+            type = Promotion.DiscountType.PERCENTAGE;
+            value = row.get("discountPercentage");
+        } else {
+            type = Promotion.DiscountType.valueOf(row.getOrDefault("discountType", "PERCENTAGE"));
+            value = row.get("discountValue");
+        }
+        
+        String start = row.get("startDate");
+        String end = row.get("endDate");
+        String minSpend = row.get("minSpend");
+        String combinable = first(row, "combinable", "isCombinable");
+        
+        Promotion promotion = new Promotion(
+                code,
+                type,
+                Double.parseDouble(value),
+                start == null || start.isEmpty() ? LocalDate.MIN : LocalDate.parse(start),
+                end == null || end.isEmpty() ? LocalDate.MAX : LocalDate.parse(end),
+                minSpend == null || minSpend.isEmpty() ? 0.0 : Double.parseDouble(minSpend),
+                combinable == null || Boolean.parseBoolean(combinable)
+        );
+        promotion.setDescription(row.get("description"));
+        return promotion;
+    }
+    
+    private static String first(Map<String, String> row, String key, String alternative) {
+        String value = row.get(key);
+        return value != null ? value : row.get(alternative);
+    }
+    
+    /**
+     * One immutable published version of the catalog. Dense promotion IDs in the
+     * compatibility matrix follow {@link #getPromotions()} order.
+     */
+    public static final class Snapshot {
+        
+        static final Snapshot EMPTY = new Snapshot(0, Collections.emptyList(), "empty", null);
+        
+        private final long version;
+        private final List<Promotion> promotions;
+        private final Map<String, Promotion> promotionsByCode;
+        private final PromotionCompatibilityMatrix compatibilityMatrix;
+        private final String source;
+        private final FileTime sourceModified;
+        // Built on first date query; any racing builds produce equal indexes
+        private volatile ActivePromotionIndex activeIndex;
+        private volatile PromotionCodeFilter codeFilter;
+        
+        private Snapshot(long version, Collection<Promotion> source, String sourceName, FileTime sourceModified) {
+            Map<String, Promotion> byCode = new LinkedHashMap<>();
+            for (Promotion promotion : source) {
+                if (promotion != null) {
+                    byCode.put(promotion.getCode(), promotion);
+                }
+            }
+            this.version = version;
+            this.promotionsByCode = Collections.unmodifiableMap(byCode);
+            this.promotions = List.copyOf(byCode.values());
+            this.compatibilityMatrix = PromotionCompatibilityMatrix.build(promotions);
+            this.source = sourceName;
+            this.sourceModified = sourceModified;
+        }
+        
+        public long getVersion() {
+            return version;
+        }
+        
+        public List<Promotion> getPromotions() {
+            return promotions;
+        }
+        
+        public Promotion getPromotion(String code) {
+            return code == null ? null : promotionsByCode.get(code);
+        }
+        
+        public PromotionCompatibilityMatrix getCompatibilityMatrix() {
+            return compatibilityMatrix;
+        }
+        
+        public ActivePromotionIndex getActiveIndex() {
+            ActivePromotionIndex index = activeIndex;
+            if (index == null) {
+                index = ActivePromotionIndex.build(promotions);
+                activeIndex = index;
+            }
+            return index;
+        }
+        
+        /**
+         * @return a Bloom filter over this snapshot's codes, for rejecting guessed codes cheaply
+         */
+        public PromotionCodeFilter getCodeFilter() {
+            PromotionCodeFilter filter = codeFilter;
+            if (filter == null) {
+                filter = PromotionCodeFilter.build(promotions);
+                codeFilter = filter;
+            }
+            return filter;
+        }
+        
+        public String getSource() {
+            return source;
+        }
+        
+        public FileTime getSourceModified() {
+            return sourceModified;
+        }
+    }
+}
@@ -1,24 +1,32 @@
 package com.retailer.cart.utils;
 
 import com.retailer.cart.models.Promotion;
+import com.retailer.cart.models.PromotionCompatibilityMatrix;
 
 import java.time.LocalDate;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
 /**
  * Service class to manage promotions for testing purposes.
  * In a real application, this would likely fetch from a database or API.
+ * By default instances read the shared {@link PromotionRegistry}; pass a private one
+ * to work on a catalog of your own (see the registry's class comment for which callers
+ * may share it). Either is seeded with the built-in promotions the
+ * first time a service is created over it.
  */
 public class PromotionService {
-    private final Map<String, Promotion> promotions;
+    private final PromotionRegistry registry;
     
     public PromotionService() {
-        this.promotions = new HashMap<>();
-        initializePromotions();
+        this(PromotionRegistry.getInstance());
     }
     
-    private void initializePromotions() {
+    public PromotionService(PromotionRegistry registry) {
+        this.registry = registry;
+        registry.initializeIfEmpty(PromotionService::defaultPromotions, "built-in");
+    }
+    
+    private static List<Promotion> defaultPromotions() {
         // Valid promotions
         LocalDate now = LocalDate.now();
         LocalDate oneMonthAgo = now.minusMonths(1);
@@ -98,25 +106,67 @@ public class PromotionService {
                 true
         );
         
-        // Add all promotions to the map
-        promotions.put(summer25.getCode(), summer25);
-        promotions.put(summer10.getCode(), summer10);
-        promotions.put(newCustomer5.getCode(), newCustomer5);
-        promotions.put(sale30.getCode(), sale30);
-        promotions.put(bundle20.getCode(), bundle20);
-        promotions.put(expired21.getCode(), expired21);
-        promotions.put(seasonal22.getCode(), seasonal22);
-        
-        // Add a non-existent promotion code for testing
-        promotions.put("INVALID123", null);
+        // Unknown codes such as INVALID123 are simply absent from the catalog
+        return List.of(summer25, summer10, newCustomer5, sale30, bundle20, expired21, seasonal22);
+    }
+    
+    public PromotionRegistry.Snapshot snapshot() {
+        return registry.snapshot();
     }
     
     public Promotion getPromotionByCode(String code) {
-        return promotions.getOrDefault(code, null);
+        return registry.snapshot().getPromotion(code);
+    }
+    
+    /**
+     * @return all known promotions in dense-ID order
+     */
+    public List<Promotion> getAllPromotions() {
+        return registry.snapshot().getPromotions();
+    }
+    
+    public PromotionCompatibilityMatrix getCompatibilityMatrix() {
+        return registry.snapshot().getCompatibilityMatrix();
+    }
+    
+    /**
+     * @return the dense integer ID of the promotion, or -1 if the code is unknown
+     */
+    public int getPromotionId(String code) {
+        return getCompatibilityMatrix().idOf(code);
+    }
+    
+    /**
+     * Checks a candidate code against a set of applied promotion IDs.
+     * @param appliedSet bit set created by {@link PromotionCompatibilityMatrix#newSet()}
+     */
+    public boolean canCombine(String code, long[] appliedSet) {
+        PromotionCompatibilityMatrix matrix = getCompatibilityMatrix();
+        int id = matrix.idOf(code);
+        return id >= 0 && matrix.isCompatibleWithAll(id, appliedSet);
+    }
+    
+    /**
+     * @return the catalog version; compiled promotion plans are keyed on it
+     */
+    public long getVersion() {
+        return registry.getVersion();
     }
     
     public boolean isValidPromotion(String code) {
-        Promotion promotion = getPromotionByCode(code);
-        return promotion != null && promotion.isActive(LocalDate.now());
+        PromotionRegistry.Snapshot snapshot = registry.snapshot();
+        int id = snapshot.getCompatibilityMatrix().idOf(code);
+        return id >= 0 && snapshot.getActiveIndex().isActive(id, LocalDate.now());
+    }
+    
+    public List<Promotion> getActivePromotions(LocalDate date) {
+        return registry.snapshot().getActiveIndex().activeOn(date);
+    }
+    
+    /**
+     * @return the next day the set of active promotions changes, or null if it never does
+     */
+    public LocalDate getNextPromotionChange(LocalDate date) {
+        return registry.snapshot().getActiveIndex().nextChangeAfter(date);
     }
 }
@@ -0,0 +1,162 @@
+package com.retailer.cart.utils;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ring of fixed-length time slots, each with its own latency histogram and error
+ * count, for metrics over the last few seconds rather than the whole run.
+ * <p>
+ * A slot is tagged with the tick it covers. The first recording in a new tick swaps
+ * in a fresh slot with one compare-and-set, so recording never locks. A window query
+ * merges the slots still inside the window; merging is lossless, so windowed
+ * percentiles are as precise as the slots. A thread that stalls across a slot
+ * boundary may drop its sample from the window; lifetime totals are unaffected.
+ */
+public class RollingWindow {
+    
+    /** Windowed percentiles within about 3%, at a fraction of a full histogram's memory */
+    private static final int SUB_BUCKET_BITS = 6;
+    
+    private final long originNanos;
+    private final long slotNanos;
+    private final long highestTrackableNanos;
+    private final AtomicReferenceArray<Slot> slots;
+    
+    /**
+     * @param originNanos {@link Timing#start()} mark that tick 0 begins at
+     * @param slotNanos length of one slot
+     * @param maxWindowSlots the longest window that can be asked for, in slots
+     * @param highestTrackableNanos largest response time kept at full precision
+     */
+    public RollingWindow(long originNanos, long slotNanos, int maxWindowSlots, long highestTrackableNanos) {
+        this.originNanos = originNanos;
+        this.slotNanos = slotNanos;
+        this.highestTrackableNanos = highestTrackableNanos;
+        // One extra slot for the tick in progress
+        this.slots = new AtomicReferenceArray<>(maxWindowSlots + 1);
+    }
+    
+    /**
+     * @param nowNanos {@link Timing#start()} mark the sample completed at; samples for a
+     *                 slot the ring has already reused are dropped
+     * @param responseTimeNanos the response time in nanoseconds
+     * @param isError whether the request resulted in an error
+     */
+    public void record(long nowNanos, long responseTimeNanos, boolean isError) {
+        Slot slot = slotFor(tickAt(nowNanos));
+        if (slot != null) {
+            slot.histogram.record(responseTimeNanos);
+            if (isError) {
+                slot.errorCount.increment();
+            }
+        }
+    }
+    
+    /**
+     * Merges the slots of the last {@code windowSlots} whole slots plus the one in progress.
+     * @param nowNanos {@link Timing#start()} mark for the end of the window
+     * @param windowSlots window length in slots, clamped to what the ring keeps
+     */
+    public Stats stats(long nowNanos, int windowSlots) {
+        int window = Math.max(1, Math.min(windowSlots, slots.length() - 1));
+        long tick = tickAt(nowNanos);
+        LatencyHistogram merged = new LatencyHistogram(highestTrackableNanos, SUB_BUCKET_BITS);
+        long errors = 0;
+        for (long t = Math.max(0, tick - window); t <= tick; t++) {
+            Slot slot = slots.get(indexOf(t));
+            if (slot != null && slot.tick == t) {
+                merged.add(slot.histogram);
+                errors += slot.errorCount.sum();
+            }
+        }
+        long intoCurrentSlot = Math.max(0, nowNanos - originNanos) - tick * slotNanos;
+        long coveredNanos = Math.min(window, tick) * slotNanos + intoCurrentSlot;
+        return new Stats(merged, errors, coveredNanos);
+    }
+    
+    private long tickAt(long nowNanos) {
+        return Math.max(0, nowNanos - originNanos) / slotNanos;
+    }
+    
+    private int indexOf(long tick) {
+        return (int) (tick % slots.length());
+    }
+    
+    private Slot slotFor(long tick) {
+        int index = indexOf(tick);
+        while (true) {
+            Slot slot = slots.get(index);
+            if (slot != null && slot.tick >= tick) {
+                // A newer tick already owns the slot: this sample is too late for any window
+                return slot.tick == tick ? slot : null;
+            }
+            Slot fresh = new Slot(tick, new LatencyHistogram(highestTrackableNanos, SUB_BUCKET_BITS));
+            if (slots.compareAndSet(index, slot, fresh)) {
+                return fresh;
+            }
+        }
+    }
+    
+    private static final class Slot {
+        private final long tick;
+        private final LatencyHistogram histogram;
+        private final LongAdder errorCount = new LongAdder();
+        
+        private Slot(long tick, LatencyHistogram histogram) {
+            this.tick = tick;
+            this.histogram = histogram;
+        }
+    }
+    
+    /**
+     * Metrics for one window, computed when it was requested.
+     */
+    public static final class Stats {
+        private final LatencyHistogram histogram;
+        private final long errorCount;
+        private final long coveredNanos;
+        
+        Stats(LatencyHistogram histogram, long errorCount, long coveredNanos) {
+            this.histogram = histogram;
+            this.errorCount = errorCount;
+            this.coveredNanos = coveredNanos;
+        }
+        
+        public long getRequestCount() {
+            return histogram.getCount();
+        }
+        
+        public long getErrorCount() {
+            return errorCount;
+        }
+        
+        /**
+         * @return error rate as a percentage (0.0 to 100.0)
+         */
+        public double getErrorRate() {
+            long total = histogram.getCount();
+            return total == 0 ? 0.0 : (double) errorCount / total * 100.0;
+        }
+        
+        /**
+         * Requests per second over the time the window actually covers, which early in a
+         * run is less than its nominal length.
+         */
+        public double getRequestsPerSecond() {
+            return coveredNanos <= 0 ? 0.0 : histogram.getCount() * 1_000_000_000.0 / coveredNanos;
+        }
+        
+        /**
+         * @param percentile the percentile (e.g., 95.0 for 95th percentile)
+         * @return response time in nanoseconds, 0 if the window is empty
+         */
+        public long getValueAtPercentile(double percentile) {
+            return histogram.getValueAtPercentile(percentile);
+        }
+        
+        public long getCoveredNanos() {
+            return coveredNanos;
+        }
+    }
+}
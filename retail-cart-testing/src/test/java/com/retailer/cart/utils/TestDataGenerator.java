@@ -2,7 +2,9 @@ package com.retailer.cart.utils;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retailer.cart.models.Money;
 import com.retailer.cart.models.Product;
+import com.retailer.cart.models.ProductDescriptor;
 import com.retailer.cart.models.Promotion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,7 +58,9 @@ public class TestDataGenerator {
     );
 
     /**
-     * Generate a random product with realistic data
+     * Generate a random product with realistic data. Generated products are one-offs
+     * whose IDs overlap the real test data, so they are not interned in the shared
+     * {@link com.retailer.cart.models.ProductCatalog}.
      */
     public static Product generateRandomProduct() {
         String category = getRandomKey(PRODUCT_CATEGORIES);
@@ -67,7 +71,7 @@ public class TestDataGenerator {
         double price = generateRandomPrice(category);
         int quantity = ThreadLocalRandom.current().nextInt(1, 6); // 1-5 quantity
         
-        return new Product(productId, name, price, quantity);
+        return oneOffProduct(productId, name, price, category, quantity);
     }
     
     /**
@@ -83,7 +87,8 @@ public class TestDataGenerator {
         price = BigDecimal.valueOf(price).setScale(2, RoundingMode.HALF_UP).doubleValue();
         int quantity = ThreadLocalRandom.current().nextInt(1, 4);
         
-        return new Product(productId, name, price, quantity);
+        return oneOffProduct(productId, name, price,
+            PRODUCT_CATEGORIES.containsKey(category) ? category : "Clothing", quantity);
     }
     
     /**
@@ -158,6 +163,42 @@ public class TestDataGenerator {
         return new Promotion(code, type, value, startDate, endDate, minSpend, combinable);
     }
     
+    /**
+     * Generate a reproducible catalog of active promotions with random pairwise
+     * incompatibilities, for combination and pricing benchmarks
+     */
+    public static List<Promotion> generatePromotionCatalog(int count, double incompatibilityRate, long seed) {
+        return generatePromotionCatalog(count, incompatibilityRate, seed, false);
+    }
+    
+    /**
+     * Generate a reproducible promotion catalog; with fixedAmountsOnly every promotion
+     * takes a fixed 1.00 to 20.00 off, so a large enough subtotal is never used up
+     */
+    public static List<Promotion> generatePromotionCatalog(int count, double incompatibilityRate, long seed,
+                                                           boolean fixedAmountsOnly) {
+        Random seeded = new Random(seed);
+        LocalDate startDate = LocalDate.now().minusDays(1);
+        LocalDate endDate = LocalDate.now().plusDays(30);
+        List<Promotion> promotions = new ArrayList<>(count);
+        
+        for (int i = 0; i < count; i++) {
+            boolean percentage = seeded.nextInt(4) != 0 && !fixedAmountsOnly;
+            double value = percentage ? 1 + seeded.nextInt(15) : 1 + seeded.nextInt(20);
+            boolean combinable = seeded.nextInt(10) != 0;
+            promotions.add(new Promotion("GEN" + i, "Generated promotion " + i, value, percentage,
+                    startDate, endDate, combinable));
+        }
+        for (int i = 0; i < count; i++) {
+            for (int j = i + 1; j < count; j++) {
+                if (seeded.nextDouble() < incompatibilityRate) {
+                    promotions.get(i).addIncompatiblePromotion(promotions.get(j).getCode());
+                }
+            }
+        }
+        return promotions;
+    }
+    
     /**
      * Generate test customer data
      */
@@ -328,6 +369,10 @@ public class TestDataGenerator {
     }
     
     // Helper methods
+    private static Product oneOffProduct(String productId, String name, double price, String category, int quantity) {
+        return Product.of(new ProductDescriptor(productId, name, Money.ofMajor(price), category), quantity);
+    }
+    
     private static String generateProductId() {
         return "P" + String.format("%03d", ThreadLocalRandom.current().nextInt(1, 1000));
     }
@@ -4,7 +4,9 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.retailer.cart.models.ActivePromotionIndex;
 import com.retailer.cart.models.Product;
+import com.retailer.cart.models.ProductCatalog;
 import com.retailer.cart.models.Promotion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,6 +24,7 @@ public class TestDataReader {
     
     private static final Map<String, Object> dataCache = new HashMap<>();
     private static final String CACHE_PREFIX = "cached_";
+    private static ActivePromotionIndex activePromotionIndex;
     
     /**
      * Load test data from JSON file
@@ -76,7 +79,7 @@ public class TestDataReader {
             CsvSchema schema = CsvSchema.emptySchema().withHeader();
             List<Map<String, String>> csvData = csvMapper.readerFor(Map.class)
                 .with(schema)
-                .readValues(inputStream)
+                .<Map<String, String>>readValues(inputStream)
                 .readAll();
             
             for (Map<String, String> row : csvData) {
@@ -116,7 +119,7 @@ public class TestDataReader {
             CsvSchema schema = CsvSchema.emptySchema().withHeader();
             List<Map<String, String>> csvData = csvMapper.readerFor(Map.class)
                 .with(schema)
-                .readValues(inputStream)
+                .<Map<String, String>>readValues(inputStream)
                 .readAll();
             
             for (Map<String, String> row : csvData) {
@@ -263,7 +266,9 @@ public class TestDataReader {
     public static List<Product> getProductsByCategory(String category) {
         List<Product> products = getAllProducts();
         return products.stream()
-            .filter(product -> product.getName().toLowerCase().contains(category.toLowerCase()))
+            .filter(product -> product.getCategory() != null
+                ? product.getCategory().equalsIgnoreCase(category)
+                : product.getName().toLowerCase().contains(category.toLowerCase()))
             .toList();
     }
     
@@ -271,13 +276,17 @@ public class TestDataReader {
      * Get active promotions
      */
     public static List<Promotion> getActivePromotions() {
-        List<Promotion> promotions = getAllPromotions();
-        LocalDate today = LocalDate.now();
-        
-        return promotions.stream()
-            .filter(promotion -> !promotion.getStartDate().isAfter(today) && 
-                               !promotion.getEndDate().isBefore(today))
-            .toList();
+        return getActivePromotions(LocalDate.now());
+    }
+    
+    /**
+     * Get promotions active on a given date, via an index built once per cache lifetime
+     */
+    public static synchronized List<Promotion> getActivePromotions(LocalDate date) {
+        if (activePromotionIndex == null) {
+            activePromotionIndex = ActivePromotionIndex.build(getAllPromotions());
+        }
+        return activePromotionIndex.activeOn(date);
     }
     
     /**
@@ -285,6 +294,9 @@ public class TestDataReader {
      */
     public static void clearCache() {
         dataCache.clear();
+        synchronized (TestDataReader.class) {
+            activePromotionIndex = null;
+        }
         logger.info("Test data cache cleared");
     }
     
@@ -310,7 +322,7 @@ public class TestDataReader {
         double price = Double.parseDouble(row.get("price"));
         int quantity = Integer.parseInt(row.getOrDefault("quantity", "1"));
         
-        return new Product(productId, name, price, quantity);
+        return ProductCatalog.getInstance().newProduct(productId, name, price, row.get("category"), quantity);
     }
     
     private static Promotion createPromotionFromCsvRow(Map<String, String> row) {
@@ -333,7 +345,8 @@ public class TestDataReader {
         double price = ((Number) productMap.get("price")).doubleValue();
         int quantity = ((Number) productMap.getOrDefault("quantity", 1)).intValue();
         
-        return new Product(productId, name, price, quantity);
+        return ProductCatalog.getInstance().newProduct(productId, name, price,
+            (String) productMap.get("category"), quantity);
     }
     
     private static Promotion createPromotionFromMap(Map<String, Object> promoMap) {
@@ -0,0 +1,89 @@
+package com.retailer.cart.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Monotonic timing for performance measurements.
+ * <p>
+ * Everything here is based on {@link System#nanoTime()}, which neither jumps with NTP
+ * corrections nor rounds sub-millisecond cart operations down to zero the way
+ * {@code System.currentTimeMillis()} differences do. Latencies are passed around as
+ * nanoseconds and only converted for display.
+ */
+public final class Timing {
+    
+    private Timing() {
+    }
+    
+    /**
+     * @return a start mark for {@link #elapsedNanos}; meaningless as a time of day
+     */
+    public static long start() {
+        return System.nanoTime();
+    }
+    
+    public static long elapsedNanos(long startNanos) {
+        return System.nanoTime() - startNanos;
+    }
+    
+    public static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+    
+    /**
+     * Converts to milliseconds rounded to the nearest microsecond, for reports.
+     */
+    public static double toMillisRounded(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+    
+    public static FixedRateSchedule fixedRate(long interval, TimeUnit unit) {
+        return new FixedRateSchedule(unit.toNanos(interval));
+    }
+    
+    /**
+     * Issues requests on a fixed schedule and reports when each one was meant to start.
+     * <p>
+     * If a slow response holds up the caller, the requests that should have gone out in
+     * the meantime are not silently skipped: the next slots start immediately, and
+     * measuring from {@link #awaitNextStart()}'s intended start rather than the actual
+     * send time charges the wait to their latency. That is the correction for coordinated
+     * omission, where a stalled load generator otherwise stops sampling exactly while the
+     * system is slow.
+     */
+    public static final class FixedRateSchedule {
+        private final long intervalNanos;
+        private long nextStartNanos;
+        
+        private FixedRateSchedule(long intervalNanos) {
+            if (intervalNanos <= 0) {
+                throw new IllegalArgumentException("Schedule interval must be positive");
+            }
+            this.intervalNanos = intervalNanos;
+            this.nextStartNanos = System.nanoTime();
+        }
+        
+        /**
+         * Parks until the next slot is due, or returns at once if it is already late.
+         * @return the slot's intended start, as a mark for {@link Timing#elapsedNanos}
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public long awaitNextStart() throws InterruptedException {
+            long intendedStart = nextStartNanos;
+            nextStartNanos += intervalNanos;
+            long waitNanos;
+            while ((waitNanos = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(waitNanos);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            return intendedStart;
+        }
+        
+        public long getIntervalNanos() {
+            return intervalNanos;
+        }
+    }
+}
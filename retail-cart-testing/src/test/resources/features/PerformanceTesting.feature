@@ -22,6 +22,7 @@ Feature: Performance Testing for Shopping Cart
     Then the average response time for "POST /cart" should be less than 1500 milliseconds
     And the 95th percentile response time for "POST /cart" should be less than 3000 milliseconds
     And the throughput for "POST /cart" should be at least 5 requests per second
+    And the current throughput for "POST /cart" should be at least 5 requests per second
 
   @performance @api @stress
   Scenario: Concurrent user simulation for cart operations
@@ -55,6 +56,19 @@ Feature: Performance Testing for Shopping Cart
     And I perform 5 "GET" requests to "/cart/spike"
     Then the average response time for "GET /cart/spike" should be less than 2500 milliseconds
     And the average response time for "GET /cart/spike_concurrent" should be less than 4000 milliseconds
+    # The requests after the spike should be back to normal
+    And the 95th percentile response time for "GET /cart/spike" over the last 1 seconds should be less than 2500 milliseconds
+    And the error rate for "GET /cart/spike" over the last 1 seconds should be less than 5 percent
+
+  @performance @api @ramp-up
+  Scenario: Steady-state validation after ramp-up
+    # Ten seconds on a fixed schedule, so a slow response delays the requests due after it
+    # and is charged to them; early requests pay for connection setup and warm-up
+    When I perform 100 "GET" requests to "/cart/ramp-up" at 10 requests per second
+    Then the throughput for "GET /cart/ramp-up" over the last 5 seconds should be at least 8 requests per second
+    And the 95th percentile response time for "GET /cart/ramp-up" over the last 5 seconds should be less than 1500 milliseconds
+    And the 99th percentile response time for "GET /cart/ramp-up" over the last 5 seconds should be less than 2500 milliseconds
+    And the error rate for "GET /cart/ramp-up" over the last 5 seconds should be less than 1 percent
 
   @performance @ui @page-load
   Scenario: UI page load performance validation